@@ -0,0 +1,170 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks das operações públicas da ArvoreAVL (buscar, inserir, remover e listar)
+ * para vários tamanhos de catálogo e distribuições de IDs.
+ *
+ * O catálogo contém os IDs pares; inserções e remoções usam IDs ímpares, em lotes
+ * de {@link #LOTE} operações por invocação, para que a árvore volte sempre ao
+ * tamanho original. Os tempos de inserir/remover são por operação (dividindo o lote).
+ *
+ * Exemplo: java -jar benchmarks/target/benchmarks.jar ArvoreAVLBenchmark -p tamanho=100000 -prof gc
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ArvoreAVLBenchmark {
+
+    /** Quantidade de inserções/remoções por invocação. */
+    public static final int LOTE = 1024;
+
+    /** Quantidade de IDs de consulta pré-sorteados (potência de 2). */
+    private static final int CONSULTAS = 1 << 16;
+
+    private static final long SEMENTE = 42L;
+
+    /**
+     * Catálogo somente leitura usado por buscar e listar.
+     */
+    @State(Scope.Benchmark)
+    public static class Catalogo {
+
+        @Param({"10000", "100000", "1000000", "10000000"})
+        public int tamanho;
+
+        @Param({"SEQUENCIAL", "ALEATORIA", "ZIPF"})
+        public Distribuicao distribuicao;
+
+        public ArvoreAVL arvore;
+        public int[] consultas;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            arvore = DadosBenchmark.arvoreComPares(tamanho, SEMENTE);
+            consultas = distribuicao.gerar(CONSULTAS, tamanho, SEMENTE);
+            for (int i = 0; i < consultas.length; i++) consultas[i] *= 2; // posição -> ID par existente
+        }
+    }
+
+    /**
+     * Cursor de consultas de cada thread.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int posicao;
+
+        public int proximo() {
+            return posicao++ & (CONSULTAS - 1);
+        }
+    }
+
+    /**
+     * Catálogo + lote de produtos novos. Depois de cada invocação de inserir,
+     * o lote é removido (fora da medição).
+     */
+    @State(Scope.Benchmark)
+    public static class CatalogoInsercao {
+
+        @Param({"10000", "100000", "1000000", "10000000"})
+        public int tamanho;
+
+        @Param({"SEQUENCIAL", "ALEATORIA", "ZIPF"})
+        public Distribuicao distribuicao;
+
+        public ArvoreAVL arvore;
+        public Produto[] lote;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            arvore = DadosBenchmark.arvoreComPares(tamanho, SEMENTE);
+            lote = loteImpares(distribuicao, tamanho);
+        }
+
+        @TearDown(Level.Invocation)
+        public void desfazer() {
+            for (Produto p : lote) arvore.remover(p.getId());
+        }
+    }
+
+    /**
+     * Catálogo + lote de produtos a remover. Antes de cada invocação de remover,
+     * o lote é inserido (fora da medição).
+     */
+    @State(Scope.Benchmark)
+    public static class CatalogoRemocao {
+
+        @Param({"10000", "100000", "1000000", "10000000"})
+        public int tamanho;
+
+        @Param({"SEQUENCIAL", "ALEATORIA", "ZIPF"})
+        public Distribuicao distribuicao;
+
+        public ArvoreAVL arvore;
+        public Produto[] lote;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            arvore = DadosBenchmark.arvoreComPares(tamanho, SEMENTE);
+            lote = loteImpares(distribuicao, tamanho);
+        }
+
+        @Setup(Level.Invocation)
+        public void repor() {
+            for (Produto p : lote) arvore.inserir(p);
+        }
+    }
+
+    @Benchmark
+    public Produto buscar(Catalogo catalogo, Cursor cursor) {
+        return catalogo.arvore.buscar(catalogo.consultas[cursor.proximo()]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public void inserir(CatalogoInsercao catalogo) {
+        ArvoreAVL arvore = catalogo.arvore;
+        for (Produto p : catalogo.lote) arvore.inserir(p);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public int remover(CatalogoRemocao catalogo) {
+        ArvoreAVL arvore = catalogo.arvore;
+        int removidos = 0;
+        for (Produto p : catalogo.lote) {
+            if (arvore.remover(p.getId())) removidos++;
+        }
+        return removidos;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Produto> listar(Catalogo catalogo) {
+        return catalogo.arvore.listar();
+    }
+
+    /**
+     * Monta um lote de produtos com IDs ímpares (inexistentes no catálogo),
+     * na ordem da distribuição escolhida.
+     */
+    private static Produto[] loteImpares(Distribuicao distribuicao, int tamanho) {
+        int[] posicoes = distribuicao.gerarDistintos(Math.min(LOTE, tamanho), tamanho, SEMENTE + 1);
+        Produto[] lote = new Produto[LOTE];
+        for (int i = 0; i < LOTE; i++) {
+            // Catálogos menores que o lote reaproveitam posições com deslocamento para manter IDs únicos.
+            int posicao = posicoes[i % posicoes.length] + (i / posicoes.length) * tamanho;
+            lote[i] = DadosBenchmark.produto(2 * posicao + 1);
+        }
+        return lote;
+    }
+}
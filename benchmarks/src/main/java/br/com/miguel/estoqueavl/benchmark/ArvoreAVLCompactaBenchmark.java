@@ -0,0 +1,61 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLCompacta;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a busca na ArvoreAVL (um No por produto) com a ArvoreAVLCompacta
+ * (arrays paralelos) sobre o mesmo catálogo e a mesma sequência de consultas.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ArvoreAVLCompactaBenchmark {
+
+    private static final int CONSULTAS = 1 << 16;
+    private static final long SEMENTE = 42L;
+
+    @Param({"100000", "1000000", "10000000"})
+    public int tamanho;
+
+    @Param({"ALEATORIA", "ZIPF"})
+    public Distribuicao distribuicao;
+
+    private ArvoreAVL arvore;
+    private ArvoreAVLCompacta compacta;
+    private int[] consultas;
+    private int posicao;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        int[] ordem = new int[tamanho];
+        for (int i = 0; i < tamanho; i++) ordem[i] = i;
+        DadosBenchmark.embaralhar(ordem, SEMENTE);
+
+        arvore = new ArvoreAVL();
+        compacta = new ArvoreAVLCompacta(tamanho);
+        for (int i : ordem) {
+            Produto p = DadosBenchmark.produto(i);
+            arvore.inserir(p);
+            compacta.inserir(p);
+        }
+        consultas = distribuicao.gerar(CONSULTAS, tamanho, SEMENTE);
+    }
+
+    @Benchmark
+    public Produto buscarArvoreAVL() {
+        return arvore.buscar(consultas[posicao++ & (CONSULTAS - 1)]);
+    }
+
+    @Benchmark
+    public Produto buscarCompacta() {
+        return compacta.buscar(consultas[posicao++ & (CONSULTAS - 1)]);
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escalabilidade de leitura da ArvoreAVLConcorrente.
+ *
+ * {@code buscar} mede só leituras; rode com -t 1, 2, 4... para ver a vazão
+ * crescer com o número de threads. O grupo {@code misto} coloca leitores
+ * disputando com um escritor que insere e remove IDs ímpares sem parar.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ArvoreAVLConcorrenteBenchmark {
+
+    private static final int CONSULTAS = 1 << 16;
+    private static final long SEMENTE = 42L;
+
+    @State(Scope.Benchmark)
+    public static class Estoque {
+
+        @Param({"1000000"})
+        public int tamanho;
+
+        public ArvoreAVLConcorrente estoque;
+        public int[] consultas;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            estoque = new ArvoreAVLConcorrente(DadosBenchmark.arvoreComPares(tamanho, SEMENTE));
+            consultas = Distribuicao.ALEATORIA.gerar(CONSULTAS, tamanho, SEMENTE);
+            for (int i = 0; i < consultas.length; i++) consultas[i] *= 2;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int posicao;
+        private boolean inserir = true;
+    }
+
+    @Benchmark
+    public Produto buscar(Estoque estoque, Cursor cursor) {
+        return estoque.estoque.buscar(estoque.consultas[cursor.posicao++ & (CONSULTAS - 1)]);
+    }
+
+    @Benchmark
+    @Group("misto")
+    @GroupThreads(3)
+    public Produto leitor(Estoque estoque, Cursor cursor) {
+        return estoque.estoque.buscar(estoque.consultas[cursor.posicao++ & (CONSULTAS - 1)]);
+    }
+
+    @Benchmark
+    @Group("misto")
+    @GroupThreads(1)
+    public boolean escritor(Estoque estoque, Cursor cursor) {
+        int id = estoque.consultas[cursor.posicao & (CONSULTAS - 1)] + 1; // ímpar vizinho de um ID existente
+        boolean alterou;
+        if (cursor.inserir) {
+            alterou = estoque.estoque.inserir(DadosBenchmark.produto(id));
+        } else {
+            alterou = estoque.estoque.remover(id);
+            cursor.posicao++;
+        }
+        cursor.inserir = !cursor.inserir;
+        return alterou;
+    }
+}
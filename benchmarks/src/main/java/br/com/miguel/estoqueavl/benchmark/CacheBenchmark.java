@@ -0,0 +1,84 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import br.com.miguel.estoqueavl.model.estrutura.CacheProdutos;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buscas por ID com e sem o {@link CacheProdutos} (capacidade 0 = árvore pura),
+ * em um catálogo de 1M de produtos. Com ZIPF, poucos SKUs concentram as buscas e o
+ * cache deve ganhar; com ALEATORIA, quase toda busca é uma falta e o resultado mostra
+ * o custo do cache quando ele não ajuda. A taxa de acerto é impressa no fim de cada rodada.
+ *
+ * Exemplo: java -jar benchmarks/target/benchmarks.jar CacheBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    private static final int TAMANHO = 1_000_000;
+    private static final int CONSULTAS = 1 << 20;
+    private static final long SEMENTE = 42L;
+
+    @Param({"0", "1024", "16384"})
+    public int capacidade;
+
+    @Param({"ZIPF", "ALEATORIA"})
+    public Distribuicao distribuicao;
+
+    private ArvoreAVL arvore;
+    private ArvoreAVLConcorrente concorrente;
+    private int[] consultas;
+    private int posicao;
+    private int ultimoId;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        arvore = DadosBenchmark.arvoreComPares(TAMANHO, SEMENTE);
+        arvore.usarCache(capacidade);
+        concorrente = new ArvoreAVLConcorrente(arvore);
+        consultas = distribuicao.gerar(CONSULTAS, TAMANHO, SEMENTE);
+        for (int i = 0; i < consultas.length; i++) consultas[i] *= 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        CacheProdutos cache = arvore.getCache();
+        if (cache != null) {
+            System.out.printf("%n[cache %d, %s] taxa de acerto %.1f%% %s%n",
+                    capacidade, distribuicao, 100 * cache.taxaAcerto(), cache.estatisticas());
+        }
+    }
+
+    @Benchmark
+    public Produto buscar() {
+        return arvore.buscar(consultas[posicao++ & (CONSULTAS - 1)]);
+    }
+
+    /** A mesma busca pela leitura otimista da árvore concorrente. */
+    @Benchmark
+    public Produto buscarConcorrente() {
+        return concorrente.buscar(consultas[posicao++ & (CONSULTAS - 1)]);
+    }
+
+    /**
+     * Cada busca depende do resultado da anterior (o deslocamento é sempre 0, mas o JIT
+     * não sabe), então o processador não sobrepõe as descidas de buscas seguidas, como
+     * acontece com uma busca por requisição. Mede a latência de uma busca; {@link #buscar}
+     * mede a vazão de buscas independentes.
+     */
+    @Benchmark
+    public Produto buscarEncadeado() {
+        Produto produto = arvore.buscar(consultas[(posicao++ + (ultimoId >>> 31)) & (CONSULTAS - 1)]);
+        ultimoId = produto.getId();
+        return produto;
+    }
+}
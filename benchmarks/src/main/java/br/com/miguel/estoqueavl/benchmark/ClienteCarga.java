@@ -0,0 +1,174 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Cliente de carga para o modo servidor (mainApp --servidor). Aprende os IDs do
+ * estoque pela listagem e dispara, de N threads virtuais em laço fechado (cada uma
+ * espera a resposta antes de mandar a próxima requisição):
+ *   - 85% GET /produtos/{id}, com IDs em distribuição de Zipf (poucos SKUs quentes);
+ *   - 10% POST /produtos/{id}/ajuste com delta +1 ou -1 (409 por falta de saldo é resposta válida);
+ *   -  5% GET /produtos?de=&limite=50.
+ * No fim imprime requisições por segundo, p50/p99/p999/máximo exatos (cada latência
+ * é guardada) e a quantidade de erros (falha de conexão ou status inesperado).
+ *
+ * Uso: java -cp benchmarks/target/benchmarks.jar br.com.miguel.estoqueavl.benchmark.ClienteCarga [url] [conexoes] [segundos]
+ */
+public class ClienteCarga {
+
+    private static final int MAXIMO_IDS = 100_000;
+    private static final int PAGINA = 1000;
+    private static final double THETA_ZIPF = 0.99;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080/produtos";
+        int conexoes = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        int[] ids = aprenderIds(cliente, url);
+        if (ids.length == 0) {
+            System.out.println("O estoque está vazio: nada para consultar.");
+            return;
+        }
+        System.out.printf("IDs conhecidos: %,d | Conexões: %d | Duração: %d s%n", ids.length, conexoes, segundos);
+
+        long fim = System.nanoTime() + segundos * 1_000_000_000L;
+        List<Future<Trabalhador>> resultados = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < conexoes; i++) {
+                Trabalhador trabalhador = new Trabalhador(cliente, url, ids, i);
+                resultados.add(executor.submit(() -> trabalhador.executar(fim)));
+            }
+        }
+        double decorrido = (System.nanoTime() - inicio) / 1e9;
+
+        long[] latencias = new long[0];
+        long buscas = 0, ajustes = 0, listagens = 0, erros = 0;
+        for (Future<Trabalhador> resultado : resultados) {
+            Trabalhador t = resultado.get();
+            int inicioCopia = latencias.length;
+            latencias = Arrays.copyOf(latencias, inicioCopia + t.feitas);
+            System.arraycopy(t.latencias, 0, latencias, inicioCopia, t.feitas);
+            buscas += t.buscas;
+            ajustes += t.ajustes;
+            listagens += t.listagens;
+            erros += t.erros;
+        }
+        Arrays.sort(latencias);
+
+        System.out.printf("Requisições: %,d (buscas %,d, ajustes %,d, listagens %,d) | Erros: %,d%n",
+                latencias.length, buscas, ajustes, listagens, erros);
+        System.out.printf("Vazão: %,.0f req/s%n", latencias.length / decorrido);
+        System.out.printf("Latência: p50 %s | p99 %s | p999 %s | máximo %s%n",
+                ms(latencias, 0.50), ms(latencias, 0.99), ms(latencias, 0.999), ms(latencias, 1.0));
+        if (erros > 0) System.exit(1);
+    }
+
+    /**
+     * Percorre a listagem página por página (de = último ID + 1) até {@link #MAXIMO_IDS} IDs.
+     */
+    private static int[] aprenderIds(HttpClient cliente, String url) throws IOException, InterruptedException {
+        int[] ids = new int[MAXIMO_IDS];
+        int quantidade = 0;
+        long de = Integer.MIN_VALUE;
+        while (quantidade < MAXIMO_IDS && de <= Integer.MAX_VALUE) {
+            HttpRequest pedido = HttpRequest.newBuilder(URI.create(url + "?de=" + de + "&limite=" + PAGINA)).GET().build();
+            HttpResponse<String> resposta = cliente.send(pedido, HttpResponse.BodyHandlers.ofString());
+            if (resposta.statusCode() != 200) {
+                throw new IOException("Listagem respondeu " + resposta.statusCode() + ": " + resposta.body());
+            }
+            JsonArray pagina = JsonParser.parseString(resposta.body()).getAsJsonArray();
+            for (JsonElement produto : pagina) {
+                if (quantidade == MAXIMO_IDS) break;
+                ids[quantidade++] = produto.getAsJsonObject().get("id").getAsInt();
+            }
+            if (pagina.size() < PAGINA) break;
+            de = (long) ids[quantidade - 1] + 1;
+        }
+        return Arrays.copyOf(ids, quantidade);
+    }
+
+    private static String ms(long[] ordenadas, double fracao) {
+        if (ordenadas.length == 0) return "-";
+        int posicao = (int) Math.min(ordenadas.length - 1, Math.ceil(fracao * ordenadas.length) - 1);
+        return String.format("%.3f ms", ordenadas[Math.max(0, posicao)] / 1e6);
+    }
+
+    /**
+     * Uma conexão lógica: manda uma requisição por vez e guarda a latência de cada uma.
+     */
+    private static class Trabalhador {
+        private final HttpClient cliente;
+        private final String url;
+        private final int[] ids;
+        private final SplittableRandom aleatorio;
+        private final GeradorZipf zipf;
+
+        long[] latencias = new long[1024];
+        int feitas;
+        long buscas, ajustes, listagens, erros;
+
+        Trabalhador(HttpClient cliente, String url, int[] ids, long semente) {
+            this.cliente = cliente;
+            this.url = url;
+            this.ids = ids;
+            this.aleatorio = new SplittableRandom(semente);
+            this.zipf = new GeradorZipf(ids.length, THETA_ZIPF, semente);
+        }
+
+        Trabalhador executar(long fim) {
+            while (System.nanoTime() < fim) {
+                // Espalha os SKUs quentes pelo catálogo, em vez de concentrá-los nos menores IDs.
+                int id = ids[(int) ((zipf.proximo() * 0x9E3779B1L) % ids.length)];
+                int sorteio = aleatorio.nextInt(100);
+                HttpRequest pedido;
+                boolean ajuste = false;
+                if (sorteio < 85) {
+                    pedido = HttpRequest.newBuilder(URI.create(url + "/" + id)).GET().build();
+                    buscas++;
+                } else if (sorteio < 95) {
+                    String corpo = "{\"delta\": " + (aleatorio.nextBoolean() ? 1 : -1) + "}";
+                    pedido = HttpRequest.newBuilder(URI.create(url + "/" + id + "/ajuste"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(corpo)).build();
+                    ajuste = true;
+                    ajustes++;
+                } else {
+                    pedido = HttpRequest.newBuilder(URI.create(url + "?de=" + id + "&limite=50")).GET().build();
+                    listagens++;
+                }
+
+                long inicio = System.nanoTime();
+                try {
+                    int status = cliente.send(pedido, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+                    if (status != 200 && !(ajuste && status == 409)) erros++;
+                } catch (IOException e) {
+                    erros++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (feitas == latencias.length) latencias = Arrays.copyOf(latencias, feitas * 2);
+                latencias[feitas++] = System.nanoTime() - inicio;
+            }
+            return this;
+        }
+    }
+}
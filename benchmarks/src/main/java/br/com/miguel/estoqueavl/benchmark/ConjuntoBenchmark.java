@@ -0,0 +1,74 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconciliação do estoque (1M de produtos, IDs pares) com um catálogo de m produtos
+ * em que metade dos IDs já existe no estoque e metade é nova (ímpar).
+ *
+ * Compara a união e a diferença por join/split ({@code uniao}/{@code diferenca}, com
+ * fork-join no pool comum) com o laço de inserções ou remoções individuais.
+ * Cada invocação recebe um estoque novo, montado fora da medição.
+ *
+ * Exemplo: java -jar benchmarks/target/benchmarks.jar ConjuntoBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class ConjuntoBenchmark {
+
+    private static final int TAMANHO = 1_000_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogo;
+
+    @Param({"UNIAO", "DIFERENCA"})
+    public String operacao;
+
+    @Param({"JOIN", "UM_A_UM"})
+    public String modo;
+
+    private List<Produto> estoqueInicial;
+    private ArvoreAVL outra;
+    private ArvoreAVL arvore;
+
+    @Setup(Level.Trial)
+    public void sortear() {
+        estoqueInicial = new ArrayList<>(TAMANHO);
+        for (int i = 0; i < TAMANHO; i++) estoqueInicial.add(DadosBenchmark.produto(2 * i));
+
+        SplittableRandom aleatorio = new SplittableRandom(18L);
+        List<Produto> produtos = new ArrayList<>(catalogo);
+        for (int i = 0; i < catalogo; i++) {
+            produtos.add(DadosBenchmark.produto(aleatorio.nextInt(2 * TAMANHO)));
+        }
+        outra = ArvoreAVL.construirDeLista(produtos);
+    }
+
+    @Setup(Level.Invocation)
+    public void preparar() {
+        arvore = ArvoreAVL.construirDeLista(estoqueInicial);
+    }
+
+    @Benchmark
+    public int reconciliar() {
+        boolean uniao = operacao.equals("UNIAO");
+        if (modo.equals("JOIN")) return uniao ? arvore.uniao(outra) : arvore.diferenca(outra);
+
+        int alterados = 0;
+        for (Produto produto : outra) {
+            if (uniao ? arvore.inserir(produto) : arvore.remover(produto.getId())) alterados++;
+        }
+        return alterados;
+    }
+}
@@ -0,0 +1,94 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+/**
+ * Utilitários para montar catálogos sintéticos nos benchmarks.
+ * Nomes e preços são compartilhados entre os produtos para que catálogos de
+ * 10M de itens caibam no heap e o custo medido seja o da árvore.
+ */
+public final class DadosBenchmark {
+
+    private static final String[] NOMES = {
+            "Mouse", "Teclado", "Monitor", "Cabo HDMI", "Mousepad", "Notebook", "Headset", "Webcam"
+    };
+
+    private static final String[] MARCAS = {
+            "Logitech", "Dell", "Samsung", "LG", "Multilaser", "Positivo", "Razer", "Corsair",
+            "HyperX", "Lenovo", "Acer", "Philips", "Intelbras", "Redragon", "Microsoft", "Asus"
+    };
+
+    private static final BigDecimal[] PRECOS = {
+            new BigDecimal("15.00"), new BigDecimal("25.50"), new BigDecimal("89.90"), new BigDecimal("150.00"),
+            new BigDecimal("250.00"), new BigDecimal("1200.00"), new BigDecimal("3500.00"), new BigDecimal("9.99")
+    };
+
+    private DadosBenchmark() {
+    }
+
+    /**
+     * Cria um produto sintético para o ID informado.
+     * @param id O ID do produto.
+     * @return Um novo Produto.
+     */
+    public static Produto produto(int id) {
+        int i = id & 7;
+        return new Produto(id, NOMES[i], PRECOS[i], id % 100);
+    }
+
+    /**
+     * Cria um produto com nome variado no estilo de catálogo real
+     * ("Teclado Redragon K3F9"), para benchmarks de busca por nome.
+     * @param id O ID do produto.
+     * @return Um novo Produto.
+     */
+    public static Produto produtoComNome(int id) {
+        Produto p = produto(id);
+        p.setNome(NOMES[id & 7] + " " + MARCAS[(id >>> 3) & 15] + " " + modelo(id));
+        return p;
+    }
+
+    /**
+     * Código de modelo pseudoaleatório e único por ID (base 36, maiúsculo).
+     */
+    public static String modelo(int id) {
+        long misturado = (id * 0x9E3779B97F4A7C15L) >>> 24;
+        return Long.toString(misturado % 60_466_176L, 36).toUpperCase(); // até 5 dígitos
+    }
+
+    /**
+     * Cria uma árvore com os IDs pares 0, 2, ..., 2 * (tamanho - 1), inseridos em
+     * ordem aleatória. Os IDs ímpares ficam livres para benchmarks de inserção.
+     * @param tamanho Quantidade de produtos.
+     * @param semente Semente do embaralhamento.
+     * @return A árvore preenchida.
+     */
+    public static ArvoreAVL arvoreComPares(int tamanho, long semente) {
+        int[] ordem = new int[tamanho];
+        for (int i = 0; i < tamanho; i++) ordem[i] = i;
+        embaralhar(ordem, semente);
+
+        ArvoreAVL arvore = new ArvoreAVL();
+        for (int posicao : ordem) {
+            arvore.inserir(produto(2 * posicao));
+        }
+        return arvore;
+    }
+
+    /**
+     * Embaralha um array no lugar (Fisher-Yates).
+     */
+    public static void embaralhar(int[] valores, long semente) {
+        SplittableRandom aleatorio = new SplittableRandom(semente);
+        for (int i = valores.length - 1; i > 0; i--) {
+            int j = aleatorio.nextInt(i + 1);
+            int t = valores[i];
+            valores[i] = valores[j];
+            valores[j] = t;
+        }
+    }
+}
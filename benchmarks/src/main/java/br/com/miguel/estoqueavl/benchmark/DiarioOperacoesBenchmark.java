@@ -0,0 +1,61 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.service.DiarioOperacoes;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do diário de operações em cada escrita: inserir + remover de um ID ímpar
+ * sem diário e com cada política de sincronização.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class DiarioOperacoesBenchmark {
+
+    private static final int TAMANHO = 100_000;
+
+    @Param({"SEM_DIARIO", "NUNCA", "EM_GRUPO", "SEMPRE"})
+    public String sincronizacao;
+
+    private ArvoreAVL arvore;
+    private DiarioOperacoes diario;
+    private Path pasta;
+    private int proximo;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        arvore = DadosBenchmark.arvoreComPares(TAMANHO, 42L);
+        if (!sincronizacao.equals("SEM_DIARIO")) {
+            pasta = Files.createTempDirectory("diario_benchmark");
+            diario = new DiarioOperacoes(pasta.resolve("estoque.wal").toString(),
+                    DiarioOperacoes.Sincronizacao.valueOf(sincronizacao), 50);
+            diario.abrir(arvore);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() throws IOException {
+        if (diario == null) return;
+        diario.close();
+        try (var arquivos = Files.list(pasta)) {
+            for (Path arquivo : arquivos.toList()) Files.delete(arquivo);
+        }
+        Files.delete(pasta);
+    }
+
+    @Benchmark
+    public boolean inserirERemover() {
+        int id = 2 * (proximo++ % TAMANHO) + 1;
+        arvore.inserir(DadosBenchmark.produto(id));
+        return arvore.remover(id);
+    }
+}
@@ -0,0 +1,121 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Distribuições de IDs usadas pelos benchmarks.
+ * Todas geram posições em [0, universo); cada benchmark converte a posição
+ * para um ID real do catálogo (ex.: IDs pares já existentes, ímpares novos).
+ */
+public enum Distribuicao {
+
+    /** Posições em ordem crescente, voltando ao início quando o universo acaba. */
+    SEQUENCIAL,
+
+    /** Posições uniformes, sorteadas com reposição. */
+    ALEATORIA,
+
+    /**
+     * Posições com distribuição de Zipf (theta = 0.99): poucos SKUs concentram
+     * a maior parte dos acessos. Os SKUs "quentes" são espalhados pelo universo
+     * para não ficarem todos no mesmo canto da árvore.
+     */
+    ZIPF;
+
+    private static final double THETA_ZIPF = 0.99;
+
+    /**
+     * Gera uma sequência de posições, podendo repetir valores.
+     * @param quantidade Tamanho da sequência.
+     * @param universo   Quantidade de posições possíveis.
+     * @param semente    Semente do gerador aleatório.
+     * @return Um array com as posições sorteadas.
+     */
+    public int[] gerar(int quantidade, int universo, long semente) {
+        int[] posicoes = new int[quantidade];
+        switch (this) {
+            case SEQUENCIAL -> {
+                for (int i = 0; i < quantidade; i++) posicoes[i] = i % universo;
+            }
+            case ALEATORIA -> {
+                SplittableRandom aleatorio = new SplittableRandom(semente);
+                for (int i = 0; i < quantidade; i++) posicoes[i] = aleatorio.nextInt(universo);
+            }
+            case ZIPF -> {
+                GeradorZipf zipf = new GeradorZipf(universo, THETA_ZIPF, semente);
+                long multiplicador = multiplicadorCoprimo(universo);
+                for (int i = 0; i < quantidade; i++) {
+                    posicoes[i] = (int) ((zipf.proximo() * multiplicador) % universo);
+                }
+            }
+        }
+        return posicoes;
+    }
+
+    /**
+     * Gera uma sequência de posições sem repetição, na ordem ditada pela
+     * distribuição. Usada por inserções e remoções, que não podem repetir IDs.
+     * @param quantidade Tamanho da sequência (no máximo igual ao universo).
+     * @param universo   Quantidade de posições possíveis.
+     * @param semente    Semente do gerador aleatório.
+     * @return Um array com posições distintas.
+     */
+    public int[] gerarDistintos(int quantidade, int universo, long semente) {
+        if (quantidade > universo) {
+            throw new IllegalArgumentException("Quantidade maior que o universo: " + quantidade + " > " + universo);
+        }
+        if (this == SEQUENCIAL) {
+            return gerar(quantidade, universo, semente);
+        }
+
+        int[] posicoes = new int[quantidade];
+        BitSet usadas = new BitSet(universo);
+        SplittableRandom reserva = new SplittableRandom(semente ^ 0x5DEECE66DL);
+        int preenchidas = 0;
+        long tentativa = 0;
+
+        while (preenchidas < quantidade) {
+            // Lotes sucessivos da distribuição; se ela "saturar" (Zipf repete muito),
+            // completa com posições uniformes ainda livres.
+            int[] lote = gerar(quantidade, universo, semente + tentativa++);
+            for (int i = 0; i < lote.length && preenchidas < quantidade; i++) {
+                if (!usadas.get(lote[i])) {
+                    usadas.set(lote[i]);
+                    posicoes[preenchidas++] = lote[i];
+                }
+            }
+            if (tentativa > 8) {
+                while (preenchidas < quantidade) {
+                    int p = reserva.nextInt(universo);
+                    if (!usadas.get(p)) {
+                        usadas.set(p);
+                        posicoes[preenchidas++] = p;
+                    }
+                }
+            }
+        }
+        return posicoes;
+    }
+
+    /**
+     * Escolhe um multiplicador primo entre si com o universo, de modo que
+     * (posição * multiplicador) % universo seja uma permutação.
+     */
+    private static long multiplicadorCoprimo(int universo) {
+        long candidato = 1_000_003L;
+        while (mdc(candidato, universo) != 1) {
+            candidato += 2;
+        }
+        return candidato;
+    }
+
+    private static long mdc(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,97 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.EstoqueParticionado;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EstoqueParticionado com 1 partição (equivale a uma ArvoreAVLConcorrente com o
+ * roteamento na frente) contra 16 partições.
+ *
+ * O grupo {@code escrita} tem só escritores inserindo e removendo IDs ímpares
+ * espalhados: com 1 partição eles se revezam na mesma trava, com 16 raramente se
+ * encontram. Rode com -t igual ao número de núcleos para ver a diferença; com um
+ * núcleo só, o que aparece é o custo do roteamento. {@code intervalo} e {@code
+ * valorTotal} medem a leitura em paralelo das partições (fork-join).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EstoqueParticionadoBenchmark {
+
+    private static final int CONSULTAS = 1 << 16;
+    private static final int LARGURA_INTERVALO = 20_000;
+    private static final long SEMENTE = 42L;
+
+    @State(Scope.Benchmark)
+    public static class Estoque {
+
+        @Param({"1000000"})
+        public int tamanho;
+
+        @Param({"1", "16"})
+        public int particoes;
+
+        public EstoqueParticionado estoque;
+        public int[] consultas;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            ArvoreAVL arvore = DadosBenchmark.arvoreComPares(tamanho, SEMENTE);
+            estoque = new EstoqueParticionado(arvore, particoes);
+            consultas = Distribuicao.ALEATORIA.gerar(CONSULTAS, tamanho, SEMENTE);
+            for (int i = 0; i < consultas.length; i++) consultas[i] *= 2;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int posicao;
+        private boolean inserir = true;
+    }
+
+    @Benchmark
+    public Produto buscar(Estoque estoque, Cursor cursor) {
+        return estoque.estoque.buscar(estoque.consultas[cursor.posicao++ & (CONSULTAS - 1)]);
+    }
+
+    @Benchmark
+    @Group("escrita")
+    @GroupThreads(4)
+    public boolean escritor(Estoque estoque, Cursor cursor) {
+        // Cada thread começa num ponto diferente da sequência para não alterar os mesmos IDs.
+        if (cursor.posicao == 0) cursor.posicao = (int) (Thread.currentThread().threadId() * 7919);
+        int id = estoque.consultas[cursor.posicao & (CONSULTAS - 1)] + 1; // ímpar vizinho de um ID existente
+        boolean alterou;
+        if (cursor.inserir) {
+            alterou = estoque.estoque.inserir(DadosBenchmark.produto(id));
+        } else {
+            alterou = estoque.estoque.remover(id);
+            cursor.posicao++;
+        }
+        cursor.inserir = !cursor.inserir;
+        return alterou;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Produto> intervalo(Estoque estoque, Cursor cursor) {
+        int de = estoque.consultas[cursor.posicao++ & (CONSULTAS - 1)];
+        return estoque.estoque.intervalo(de, de + 2 * LARGURA_INTERVALO);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public BigDecimal valorTotal(Estoque estoque) {
+        return estoque.estoque.agregar(arvore -> arvore.intervalo(Integer.MIN_VALUE, Integer.MAX_VALUE)
+                .map(p -> p.getPreco().multiply(BigDecimal.valueOf(p.getQuantidade())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add), BigDecimal::add);
+    }
+}
@@ -0,0 +1,60 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Gerador de posições (ranks) seguindo uma distribuição de Zipf em [0, n).
+ * Implementa o algoritmo de Gray et al. (o mesmo usado pelo YCSB): o custo de
+ * preparação é O(n) para calcular zeta(n), e cada sorteio é O(1).
+ */
+public class GeradorZipf {
+
+    private final int n;
+    private final double theta;
+    private final double alfa;
+    private final double zetaN;
+    private final double eta;
+    private final SplittableRandom aleatorio;
+
+    /**
+     * @param n         Quantidade de elementos distintos.
+     * @param theta     Expoente da distribuição (0.99 é o padrão do YCSB).
+     * @param semente   Semente do gerador aleatório, para resultados reprodutíveis.
+     */
+    public GeradorZipf(int n, double theta, long semente) {
+        this.n = n;
+        this.theta = theta;
+        this.aleatorio = new SplittableRandom(semente);
+
+        double zeta2 = zeta(2, theta);
+        this.zetaN = zeta(n, theta);
+        this.alfa = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetaN);
+    }
+
+    /**
+     * Sorteia a próxima posição. A posição 0 é a mais frequente.
+     * @return Um valor em [0, n).
+     */
+    public int proximo() {
+        double u = aleatorio.nextDouble();
+        double uz = u * zetaN;
+
+        if (uz < 1.0) return 0;
+        if (uz < 1.0 + Math.pow(0.5, theta)) return Math.min(1, n - 1);
+
+        int rank = (int) (n * Math.pow(eta * u - eta + 1, alfa));
+        return Math.min(rank, n - 1);
+    }
+
+    /**
+     * Calcula a constante de normalização zeta(n) = soma de 1/i^theta para i em [1, n].
+     */
+    private static double zeta(int n, double theta) {
+        double soma = 0;
+        for (int i = 1; i <= n; i++) {
+            soma += 1.0 / Math.pow(i, theta);
+        }
+        return soma;
+    }
+}
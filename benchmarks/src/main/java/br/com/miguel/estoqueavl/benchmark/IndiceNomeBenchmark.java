@@ -0,0 +1,78 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.IndiceNome;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Busca por nome com o IndiceNome comparada à varredura da árvore inteira.
+ *
+ * {@code modelo} procura um código de modelo que aparece em poucos produtos (o caso
+ * em que a varredura precisa olhar o catálogo todo); {@code marca} procura um trecho
+ * comum, limitado à primeira página de resultados.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class IndiceNomeBenchmark {
+
+    private static final int PAGINA = 50;
+
+    @Param({"1000000"})
+    public int tamanho;
+
+    private ArvoreAVL arvore;
+    private IndiceNome indice;
+    private String modelo;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        List<Produto> produtos = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) produtos.add(DadosBenchmark.produtoComNome(i));
+        arvore = ArvoreAVL.construirDeLista(produtos);
+        indice = IndiceNome.indexar(arvore);
+        modelo = DadosBenchmark.modelo(tamanho / 2).toLowerCase(Locale.ROOT);
+    }
+
+    @Benchmark
+    public List<Produto> prefixoIndice() {
+        return indice.buscarPorPrefixo("teclado redragon", PAGINA);
+    }
+
+    @Benchmark
+    public List<Produto> modeloIndice() {
+        return indice.buscarPorTrecho(modelo, PAGINA);
+    }
+
+    @Benchmark
+    public List<Produto> modeloVarredura() {
+        return varrer(modelo);
+    }
+
+    @Benchmark
+    public List<Produto> marcaIndice() {
+        return indice.buscarPorTrecho("redrag", PAGINA);
+    }
+
+    @Benchmark
+    public List<Produto> marcaVarredura() {
+        return varrer("redrag");
+    }
+
+    private List<Produto> varrer(String trecho) {
+        return arvore.stream()
+                .filter(p -> p.getNome().toLowerCase(Locale.ROOT).contains(trecho))
+                .limit(PAGINA)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.IndiceOrdenado;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Consultas por faixa com os índices de preço e quantidade comparadas à varredura
+ * da árvore inteira: "quantidade abaixo de 5" (~0,5% do catálogo) e "preço entre
+ * R$ 100 e R$ 500" (~4%), listando e só contando.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class IndiceOrdenadoBenchmark {
+
+    private static final BigDecimal PRECO_MINIMO = new BigDecimal("100.00");
+    private static final BigDecimal PRECO_MAXIMO = new BigDecimal("500.00");
+
+    @Param({"1000000"})
+    public int tamanho;
+
+    private ArvoreAVL arvore;
+    private IndiceOrdenado<BigDecimal> porPreco;
+    private IndiceOrdenado<Integer> porQuantidade;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        SplittableRandom aleatorio = new SplittableRandom(42L);
+        List<Produto> produtos = new ArrayList<>(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            BigDecimal preco = BigDecimal.valueOf(aleatorio.nextInt(100, 1_000_000), 2); // R$ 1,00 a R$ 10.000,00
+            produtos.add(new Produto(i, "Produto " + i, preco, aleatorio.nextInt(1000)));
+        }
+        arvore = ArvoreAVL.construirDeLista(produtos);
+        porPreco = IndiceOrdenado.porPreco(arvore);
+        porQuantidade = IndiceOrdenado.porQuantidade(arvore);
+    }
+
+    @Benchmark
+    public List<Produto> estoqueBaixoIndice() {
+        return porQuantidade.menoresQue(5, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Produto> estoqueBaixoVarredura() {
+        return arvore.stream().filter(p -> p.getQuantidade() < 5).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Produto> faixaPrecoIndice() {
+        return porPreco.intervalo(PRECO_MINIMO, PRECO_MAXIMO, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Produto> faixaPrecoVarredura() {
+        return arvore.stream()
+                .filter(p -> p.getPreco().compareTo(PRECO_MINIMO) >= 0 && p.getPreco().compareTo(PRECO_MAXIMO) <= 0)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public int contarFaixaPrecoIndice() {
+        return porPreco.contarIntervalo(PRECO_MINIMO, PRECO_MAXIMO);
+    }
+
+    @Benchmark
+    public long contarFaixaPrecoVarredura() {
+        return arvore.stream()
+                .filter(p -> p.getPreco().compareTo(PRECO_MINIMO) >= 0 && p.getPreco().compareTo(PRECO_MAXIMO) <= 0)
+                .count();
+    }
+}
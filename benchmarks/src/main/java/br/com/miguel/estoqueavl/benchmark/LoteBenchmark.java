@@ -0,0 +1,94 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.Operacao;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplicação de um lote de operações (um terço inserções de IDs novos, um terço
+ * ajustes e um terço remoções de IDs existentes, em ordem aleatória) em um catálogo
+ * de 1M de produtos: {@code aplicarLote} contra as chamadas individuais na ordem do lote.
+ *
+ * Cada invocação recebe uma árvore nova (montada fora da medição), então o tempo
+ * medido é o de aplicar o lote inteiro; vazão = lote / tempo.
+ *
+ * Exemplo: java -jar benchmarks/target/benchmarks.jar LoteBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class LoteBenchmark {
+
+    private static final int TAMANHO = 1_000_000;
+
+    @Param({"1000", "10000", "100000", "500000"})
+    public int lote;
+
+    @Param({"LOTE", "UM_A_UM"})
+    public String modo;
+
+    private int[] ids;
+    private int[] tipos;
+    private ArvoreAVL arvore;
+    private List<Operacao> operacoes;
+
+    @Setup(Level.Trial)
+    public void sortear() {
+        SplittableRandom aleatorio = new SplittableRandom(17L);
+        ids = new int[lote];
+        tipos = new int[lote];
+        for (int i = 0; i < lote; i++) {
+            tipos[i] = aleatorio.nextInt(3);
+            int posicao = aleatorio.nextInt(TAMANHO);
+            ids[i] = (tipos[i] == 0) ? 2 * posicao + 1 : 2 * posicao; // inserções usam IDs ímpares (livres)
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void preparar() {
+        List<Produto> produtos = new ArrayList<>(TAMANHO);
+        for (int i = 0; i < TAMANHO; i++) produtos.add(DadosBenchmark.produto(2 * i));
+        arvore = ArvoreAVL.construirDeLista(produtos);
+
+        operacoes = new ArrayList<>(lote);
+        for (int i = 0; i < lote; i++) {
+            operacoes.add(switch (tipos[i]) {
+                case 0 -> Operacao.inserir(DadosBenchmark.produto(ids[i]));
+                case 1 -> Operacao.ajustar(ids[i], (i & 1) == 0 ? 5 : -5);
+                default -> Operacao.remover(ids[i]);
+            });
+        }
+    }
+
+    @Benchmark
+    public int aplicar() {
+        if (modo.equals("LOTE")) return arvore.aplicarLote(operacoes);
+
+        int aplicadas = 0;
+        for (Operacao operacao : operacoes) {
+            boolean efeito = switch (operacao.tipo()) {
+                case INSERIR -> arvore.inserir(operacao.produto());
+                case REMOVER -> arvore.remover(operacao.id());
+                case AJUSTAR -> {
+                    try {
+                        yield arvore.ajustarQuantidade(operacao.id(), operacao.delta()) != null;
+                    } catch (IllegalArgumentException e) {
+                        yield false;
+                    }
+                }
+                case ATUALIZAR -> throw new IllegalStateException();
+            };
+            if (efeito) aplicadas++;
+        }
+        return aplicadas;
+    }
+}
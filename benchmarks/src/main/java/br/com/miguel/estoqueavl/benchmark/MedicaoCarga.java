@@ -0,0 +1,121 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.service.PersistenciaServico;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mede, de ponta a ponta, o tempo e o pico de heap de salvar e carregar um
+ * catálogo grande com o PersistenciaServico (JSON formatado, JSON compacto e
+ * binário), além da montagem da árvore em memória (inserir um a um x construirDeLista).
+ *
+ * Uso: java -Xmx4g -cp benchmarks/target/benchmarks.jar br.com.miguel.estoqueavl.benchmark.MedicaoCarga [quantidade]
+ */
+public class MedicaoCarga {
+
+    public static void main(String[] args) throws IOException {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        List<Produto> produtos = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            produtos.add(new Produto(i, "Produto " + i, BigDecimal.valueOf(i % 100_000, 2), i % 100));
+        }
+        System.out.printf("Produtos: %,d%n", quantidade);
+
+        // Montagem em memória a partir de uma lista já ordenada.
+        System.gc();
+        long inicio = System.nanoTime();
+        ArvoreAVL umAUm = new ArvoreAVL();
+        for (Produto p : produtos) umAUm.inserir(p);
+        System.out.printf("inserir um a um:     %,8d ms%n", (System.nanoTime() - inicio) / 1_000_000);
+        umAUm = null;
+
+        System.gc(); // Não cobra da próxima medição a coleta da árvore anterior
+        inicio = System.nanoTime();
+        ArvoreAVL arvore = ArvoreAVL.construirDeLista(produtos);
+        System.out.printf("construirDeLista:    %,8d ms%n", (System.nanoTime() - inicio) / 1_000_000);
+        produtos = null;
+
+        // Persistência completa em arquivo temporário.
+        File arquivo = File.createTempFile("estoque_medicao", ".json");
+        arquivo.deleteOnExit();
+        PersistenciaServico servico = new PersistenciaServico(arquivo.getPath());
+
+        medir("salvar", () -> servico.salvar(arvore));
+        System.out.printf("Arquivo: %,d MB%n", Files.size(arquivo.toPath()) / (1024 * 1024));
+
+        final ArvoreAVL[] carregada = new ArvoreAVL[1];
+        medir("carregar", () -> carregada[0] = carregar(servico));
+        conferir(carregada[0], arvore);
+        carregada[0] = null;
+
+        PersistenciaServico compacto = new PersistenciaServico(arquivo.getPath(), true);
+        medir("salvar (compacto)", () -> compacto.salvar(arvore));
+        System.out.printf("Arquivo: %,d MB%n", Files.size(arquivo.toPath()) / (1024 * 1024));
+        medir("carregar (compacto)", () -> carregada[0] = carregar(compacto));
+        conferir(carregada[0], arvore);
+        carregada[0] = null;
+
+        File binario = File.createTempFile("estoque_medicao", ".bin");
+        binario.deleteOnExit();
+        PersistenciaServico servicoBinario = new PersistenciaServico(binario.getPath(), PersistenciaServico.Formato.BINARIO);
+        medir("salvar (binário)", () -> servicoBinario.salvar(arvore));
+        System.out.printf("Arquivo: %,d MB%n", Files.size(binario.toPath()) / (1024 * 1024));
+        medir("carregar (binário)", () -> carregada[0] = carregar(servicoBinario));
+        conferir(carregada[0], arvore);
+    }
+
+    private static ArvoreAVL carregar(PersistenciaServico servico) {
+        try {
+            return servico.carregar();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void conferir(ArvoreAVL carregada, ArvoreAVL original) {
+        if (carregada.tamanho() != original.tamanho()) {
+            System.out.println("ERRO: quantidade carregada difere da salva.");
+        }
+    }
+
+    /**
+     * Executa a operação e imprime o tempo e o pico de heap observado durante ela.
+     */
+    static void medir(String nome, Runnable operacao) {
+        System.gc();
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long base = heapAtual(pools);
+
+        long inicio = System.nanoTime();
+        operacao.run();
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        long pico = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) pico += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf("%-20s %,8d ms | pico de heap acima do inicial: %,d MB%n",
+                nome + ":", ms, Math.max(0, pico - base) / (1024 * 1024));
+    }
+
+    private static long heapAtual(List<MemoryPoolMXBean> pools) {
+        long usado = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) usado += pool.getUsage().getUsed();
+        }
+        return usado;
+    }
+}
@@ -0,0 +1,143 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import br.com.miguel.estoqueavl.service.ImportadorProdutos;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Mede a vazão do {@link ImportadorProdutos} e confere o resultado. Gera um CSV (com
+ * cabeçalho, IDs embaralhados, ~0,1% de linhas inválidas e ~0,1% de IDs repetidos) e um
+ * JSON lines equivalente, importa cada um para um estoque que já tem alguns desses IDs
+ * (modo INSERIR) e verifica que:
+ *   - o estoque tem exatamente os produtos existentes mais as linhas válidas, com os dados do arquivo;
+ *   - os produtos existentes não foram alterados;
+ *   - as recusas (inválidas, repetidas e já cadastradas) batem com o esperado e estão no arquivo de rejeitados.
+ *
+ * Uso: java -Xmx4g -cp benchmarks/target/benchmarks.jar br.com.miguel.estoqueavl.benchmark.MedicaoImportacao [linhas]
+ */
+public class MedicaoImportacao {
+
+    private static final int INVALIDA_A_CADA = 1000;
+    private static final int REPETIDA_A_CADA = 997;
+    private static final int EXISTENTE_A_CADA = 10_007;
+
+    public static void main(String[] args) throws IOException {
+        int linhas = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int[] ids = embaralhados(linhas);
+
+        // Referência sequencial: o que cada linha deve virar.
+        BitSet existentes = new BitSet();
+        BitSet esperados = new BitSet();
+        int rejeitadas = 0;
+        for (int i = 0; i < linhas; i++) {
+            int id = idDaLinha(ids, i);
+            if (id % EXISTENTE_A_CADA == 0) existentes.set(id);
+        }
+        for (int i = 0; i < linhas; i++) {
+            int id = idDaLinha(ids, i);
+            if (invalida(i) || esperados.get(id) || existentes.get(id)) rejeitadas++;
+            else esperados.set(id);
+        }
+        esperados.or(existentes);
+
+        boolean sucesso = true;
+        for (String formato : List.of("csv", "jsonl")) {
+            Path arquivo = Files.createTempFile("importacao", "." + formato);
+            gerar(arquivo, ids, formato.equals("csv"));
+            System.out.printf("%n%s: %,d linhas, %,d MB%n", formato, linhas, Files.size(arquivo) / (1024 * 1024));
+
+            ArvoreAVLConcorrente estoque = new ArvoreAVLConcorrente();
+            existentes.stream().forEach(id -> estoque.inserir(new Produto(id, "Existente", BigDecimal.ONE, 1)));
+
+            System.gc();
+            ImportadorProdutos.Resultado resultado = new ImportadorProdutos(estoque, ImportadorProdutos.Modo.INSERIR).importar(arquivo);
+            System.out.println(resultado);
+
+            sucesso &= conferir(estoque, esperados, existentes, resultado, rejeitadas);
+            Files.delete(arquivo);
+            if (resultado.arquivoRejeitados() != null) Files.delete(resultado.arquivoRejeitados());
+        }
+
+        System.out.println(sucesso ? "SUCESSO" : "FALHA");
+        if (!sucesso) System.exit(1);
+    }
+
+    private static boolean conferir(ArvoreAVLConcorrente estoque, BitSet esperados, BitSet existentes,
+                                    ImportadorProdutos.Resultado resultado, int rejeitadas) throws IOException {
+        List<Produto> produtos = estoque.listar();
+        int erradas = 0;
+        for (Produto p : produtos) {
+            boolean certo = existentes.get(p.getId())
+                    ? p.getNome().equals("Existente")
+                    : esperados.get(p.getId()) && p.getNome().equals(nome(p.getId()))
+                            && p.getPreco().compareTo(preco(p.getId())) == 0 && p.getQuantidade() == p.getId() % 500;
+            if (!certo) erradas++;
+        }
+        long linhasRejeitados = (resultado.arquivoRejeitados() == null) ? 0
+                : Files.lines(resultado.arquivoRejeitados(), StandardCharsets.UTF_8).count() - 1;
+
+        System.out.printf("Produtos: %,d (esperado %,d) | Divergentes: %,d | Rejeitadas: %,d (esperado %,d, no arquivo %,d)%n",
+                produtos.size(), esperados.cardinality(), erradas, resultado.rejeitados(), rejeitadas, linhasRejeitados);
+        return produtos.size() == esperados.cardinality() && erradas == 0
+                && resultado.rejeitados() == rejeitadas && linhasRejeitados == rejeitadas;
+    }
+
+    /**
+     * Escreve as linhas em CSV (com cabeçalho, separador ';' e vírgula decimal) ou JSON lines.
+     */
+    private static void gerar(Path arquivo, int[] ids, boolean csv) throws IOException {
+        try (BufferedWriter saida = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8)) {
+            if (csv) saida.write("ID;Nome;Preço;Quantidade;Fornecedor\n");
+            for (int i = 0; i < ids.length; i++) {
+                int id = idDaLinha(ids, i);
+                String preco = invalida(i) ? "abc" : preco(id).toPlainString();
+                if (csv) {
+                    saida.write(id + ";\"" + nome(id).replace("\"", "\"\"") + "\";" + preco.replace('.', ',') + ";" + (id % 500) + ";ACME\n");
+                } else {
+                    saida.write("{\"id\":" + id + ",\"nome\":\"" + nome(id).replace("\"", "\\\"") + "\",\"preco\":\"" + preco
+                            + "\",\"quantidade\":" + (id % 500) + "}\n");
+                }
+            }
+        }
+    }
+
+    /** ID da linha i: a permutação, exceto nas linhas que repetem o ID de cinco linhas antes. */
+    private static int idDaLinha(int[] ids, int i) {
+        return (i >= 5 && i % REPETIDA_A_CADA == 0) ? ids[i - 5] : ids[i];
+    }
+
+    private static boolean invalida(int i) {
+        return i % INVALIDA_A_CADA == 7;
+    }
+
+    private static String nome(int id) {
+        return "Produto; \"" + id + "\"";
+    }
+
+    private static BigDecimal preco(int id) {
+        return BigDecimal.valueOf(id % 100_000, 2);
+    }
+
+    private static int[] embaralhados(int quantidade) {
+        int[] ids = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) ids[i] = i;
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        for (int i = quantidade - 1; i > 0; i--) {
+            int j = aleatorio.nextInt(i + 1);
+            int t = ids[i];
+            ids[i] = ids[j];
+            ids[j] = t;
+        }
+        return ids;
+    }
+}
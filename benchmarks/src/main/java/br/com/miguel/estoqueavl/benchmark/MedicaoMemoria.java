@@ -0,0 +1,74 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLCompacta;
+
+import java.math.BigDecimal;
+
+/**
+ * Mede o heap ocupado por produto em cada estrutura de armazenamento.
+ *
+ * Os produtos são criados antes e mantidos vivos, então a diferença de heap ao
+ * montar cada árvore é só o custo da estrutura (nós, arrays e folgas).
+ *
+ * Uso: java -Xmx4g -cp benchmarks/target/benchmarks.jar br.com.miguel.estoqueavl.benchmark.MedicaoMemoria [quantidade]
+ */
+public class MedicaoMemoria {
+
+    public static void main(String[] args) {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long antesProdutos = heapUsado();
+        Produto[] produtos = new Produto[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            // Nome e preço distintos por produto, como em um catálogo real.
+            produtos[i] = new Produto(i, "Produto " + i, BigDecimal.valueOf(i % 100_000, 2), i % 100);
+        }
+        long custoProdutos = heapUsado() - antesProdutos;
+
+        int[] ordem = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) ordem[i] = i;
+        DadosBenchmark.embaralhar(ordem, 42L);
+
+        long antes = heapUsado();
+        ArvoreAVL arvore = new ArvoreAVL();
+        for (int i : ordem) arvore.inserir(produtos[i]);
+        long custoArvore = heapUsado() - antes;
+
+        antes = heapUsado();
+        ArvoreAVLCompacta compacta = new ArvoreAVLCompacta();
+        for (int i : ordem) compacta.inserir(produtos[i]);
+        long custoCompacta = heapUsado() - antes;
+
+        System.out.printf("Produtos: %,d%n", quantidade);
+        System.out.printf("Produto (objeto + nome + preço): %6.1f bytes/produto%n", (double) custoProdutos / quantidade);
+        System.out.printf("ArvoreAVL (No por produto):      %6.1f bytes/produto%n", (double) custoArvore / quantidade);
+        System.out.printf("ArvoreAVLCompacta (arrays):      %6.1f bytes/produto%n", (double) custoCompacta / quantidade);
+
+        // Mantém as estruturas vivas até o fim da medição.
+        if (arvore.buscar(0) == null || compacta.buscar(0) == null || produtos.length == 0) {
+            System.out.println("Inconsistência nas árvores medidas.");
+        }
+    }
+
+    /**
+     * Força coletas até o heap estabilizar e retorna os bytes em uso.
+     */
+    private static long heapUsado() {
+        Runtime runtime = Runtime.getRuntime();
+        long anterior = Long.MAX_VALUE;
+        long atual = runtime.totalMemory() - runtime.freeMemory();
+        for (int i = 0; i < 10 && atual < anterior; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            anterior = atual;
+            atual = runtime.totalMemory() - runtime.freeMemory();
+        }
+        return atual;
+    }
+}
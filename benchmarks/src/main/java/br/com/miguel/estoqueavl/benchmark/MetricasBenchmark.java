@@ -0,0 +1,62 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.metricas.Metricas;
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo das métricas nas operações da árvore (1M de produtos), desligadas e ligadas.
+ * Desligadas, o resultado deve ficar dentro do erro do mesmo benchmark em uma
+ * versão sem métricas; ligadas, cada operação paga duas leituras do relógio.
+ *
+ * Exemplo: java -jar benchmarks/target/benchmarks.jar MetricasBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class MetricasBenchmark {
+
+    private static final int TAMANHO = 1_000_000;
+    private static final int CONSULTAS = 1 << 16;
+
+    @Param({"false", "true"})
+    public boolean ativas;
+
+    private ArvoreAVL arvore;
+    private int[] ids;
+    private int posicao;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        arvore = DadosBenchmark.arvoreComPares(TAMANHO, 42L);
+        ids = new int[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) ids[i] = i * (TAMANHO / CONSULTAS);
+        DadosBenchmark.embaralhar(ids, 7L);
+        Metricas.ativar(ativas);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        Metricas.ativar(false);
+        Metricas.zerar();
+    }
+
+    @Benchmark
+    public Produto buscar() {
+        return arvore.buscar(2 * ids[posicao++ & (CONSULTAS - 1)]);
+    }
+
+    /** Insere um ID ímpar (livre) e o remove em seguida: duas descidas com rebalanceamento. */
+    @Benchmark
+    public boolean inserirRemover() {
+        int id = 2 * ids[posicao++ & (CONSULTAS - 1)] + 1;
+        arvore.inserir(DadosBenchmark.produto(id));
+        return arvore.remover(id);
+    }
+}
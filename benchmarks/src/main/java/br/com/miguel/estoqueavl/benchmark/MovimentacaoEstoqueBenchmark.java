@@ -0,0 +1,90 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import br.com.miguel.estoqueavl.model.estrutura.IndiceNome;
+import br.com.miguel.estoqueavl.model.estrutura.IndiceOrdenado;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fluxo contínuo de movimentações de estoque (entradas e saídas) em um catálogo
+ * de 1M de produtos, pela {@link ArvoreAVLConcorrente}.
+ *
+ * Compara o ajuste ({@code ajustarQuantidade}, que troca o produto sem rotações)
+ * com o caminho antigo de remover e reinserir o produto, com e sem os índices
+ * secundários (nome, preço e quantidade) registrados na árvore. Cada thread faz
+ * pares entrada/saída no mesmo produto, então o estoque nunca fica negativo.
+ * A meta é 1 ops/us (1M de movimentações por segundo).
+ *
+ * Exemplo: java -jar benchmarks/target/benchmarks.jar MovimentacaoEstoqueBenchmark -t 4
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class MovimentacaoEstoqueBenchmark {
+
+    private static final int TAMANHO = 1_000_000;
+
+    /** Quantidade de produtos sorteados para as movimentações (potência de 2). */
+    private static final int MOVIMENTOS = 1 << 16;
+
+    private static final int QUANTIDADE = 3;
+
+    @Param({"AJUSTAR", "REMOVER_INSERIR"})
+    public String modo;
+
+    @Param({"false", "true"})
+    public boolean indices;
+
+    @Param({"ALEATORIA", "ZIPF"})
+    public Distribuicao distribuicao;
+
+    private ArvoreAVLConcorrente estoque;
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        ArvoreAVL arvore = DadosBenchmark.arvoreComPares(TAMANHO, 42L);
+        if (indices) {
+            for (Produto p : arvore.listar()) arvore.atualizar(p.getId(), c -> c.setNome(DadosBenchmark.produtoComNome(c.getId()).getNome()));
+            IndiceNome.indexar(arvore);
+            IndiceOrdenado.porPreco(arvore);
+            IndiceOrdenado.porQuantidade(arvore);
+        }
+        estoque = new ArvoreAVLConcorrente(arvore);
+
+        ids = distribuicao.gerar(MOVIMENTOS, TAMANHO, 7L);
+        for (int i = 0; i < ids.length; i++) ids[i] *= 2; // posição -> ID par existente
+    }
+
+    /**
+     * Posição de cada thread no fluxo: movimentos pares são entradas e os ímpares
+     * as saídas correspondentes, no mesmo produto.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int posicao;
+    }
+
+    @Benchmark
+    public Produto movimentar(Cursor cursor) {
+        int i = cursor.posicao++;
+        int id = ids[(i >>> 1) & (MOVIMENTOS - 1)];
+        int delta = ((i & 1) == 0) ? QUANTIDADE : -QUANTIDADE;
+
+        if (modo.equals("AJUSTAR")) return estoque.ajustarQuantidade(id, delta);
+        return estoque.escrever(arvore -> {
+            Produto atual = arvore.buscar(id);
+            arvore.remover(id);
+            Produto novo = new Produto(id, atual.getNome(), atual.getPreco(), atual.getQuantidade() + delta);
+            arvore.inserir(novo);
+            return novo;
+        });
+    }
+}
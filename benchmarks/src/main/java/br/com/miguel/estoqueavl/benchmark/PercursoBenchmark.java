@@ -0,0 +1,73 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compara a listagem completa (listar) com os percursos preguiçosos
+ * (stream, parallelStream, intervalo) em consultas típicas:
+ * valor total do estoque e primeira página de produtos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class PercursoBenchmark {
+
+    private static final int PAGINA = 50;
+
+    @Param({"100000", "1000000"})
+    public int tamanho;
+
+    private ArvoreAVL arvore;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        arvore = DadosBenchmark.arvoreComPares(tamanho, 42L);
+    }
+
+    @Benchmark
+    public BigDecimal valorTotalListar() {
+        return arvore.listar().stream()
+                .map(p -> p.getPreco().multiply(BigDecimal.valueOf(p.getQuantidade())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal valorTotalStream() {
+        return arvore.stream()
+                .map(p -> p.getPreco().multiply(BigDecimal.valueOf(p.getQuantidade())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal valorTotalParallelStream() {
+        return arvore.parallelStream()
+                .map(p -> p.getPreco().multiply(BigDecimal.valueOf(p.getQuantidade())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public List<Produto> primeiraPaginaListar() {
+        return arvore.listar().subList(0, PAGINA);
+    }
+
+    @Benchmark
+    public List<Produto> primeiraPaginaStream() {
+        return arvore.stream().limit(PAGINA).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Produto> intervaloNoMeio() {
+        int meio = tamanho; // IDs são pares de 0 a 2 * (tamanho - 1)
+        return arvore.intervalo(meio, meio + 2 * PAGINA).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,111 @@
+package br.com.miguel.estoqueavl.benchmark;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Teste de estresse da ArvoreAVLConcorrente com escritores e leitores simultâneos.
+ *
+ * Cada escritor insere uma faixa própria de IDs e depois remove os ímpares dela,
+ * publicando até onde já inseriu. Os leitores consultam IDs já publicados e
+ * verificam que:
+ *   - um ID par publicado é sempre encontrado (nenhuma atualização perdida);
+ *   - o produto retornado tem exatamente o ID pedido (nenhuma leitura rasgada).
+ * No final, a listagem precisa estar ordenada e ter exatamente os IDs pares.
+ *
+ * Uso: java -cp benchmarks/target/benchmarks.jar br.com.miguel.estoqueavl.benchmark.TesteEstresseConcorrente [escritores] [leitores] [idsPorEscritor]
+ */
+public class TesteEstresseConcorrente {
+
+    public static void main(String[] args) throws InterruptedException {
+        int escritores = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int leitores = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int idsPorEscritor = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        ArvoreAVLConcorrente estoque = new ArvoreAVLConcorrente();
+        AtomicInteger[] publicados = new AtomicInteger[escritores];
+        for (int i = 0; i < escritores; i++) publicados[i] = new AtomicInteger(-1);
+
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        AtomicLong leituras = new AtomicLong();
+        AtomicLong falhas = new AtomicLong();
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int e = 0; e < escritores; e++) {
+            final int escritor = e;
+            threads.add(new Thread(() -> {
+                aguardar(largada);
+                int base = escritor * idsPorEscritor;
+                for (int i = 0; i < idsPorEscritor; i++) {
+                    if (!estoque.inserir(DadosBenchmark.produto(base + i))) falhas.incrementAndGet();
+                    publicados[escritor].set(i);
+                }
+                for (int i = 1; i < idsPorEscritor; i += 2) {
+                    if (!estoque.remover(base + i)) falhas.incrementAndGet();
+                }
+            }, "escritor-" + e));
+        }
+
+        for (int l = 0; l < leitores; l++) {
+            final long semente = l;
+            threads.add(new Thread(() -> {
+                aguardar(largada);
+                SplittableRandom aleatorio = new SplittableRandom(semente);
+                long feitas = 0;
+                while (escrevendo.get()) {
+                    int escritor = aleatorio.nextInt(escritores);
+                    int limite = publicados[escritor].get();
+                    if (limite < 0) continue;
+
+                    int id = escritor * idsPorEscritor + (aleatorio.nextInt(limite + 1) & ~1); // só pares
+                    Produto p = estoque.buscar(id);
+                    if (p == null || p.getId() != id) falhas.incrementAndGet();
+                    feitas++;
+                }
+                leituras.addAndGet(feitas);
+            }, "leitor-" + l));
+        }
+
+        long inicio = System.nanoTime();
+        threads.forEach(Thread::start);
+        largada.countDown();
+        for (int i = 0; i < escritores; i++) threads.get(i).join();
+        escrevendo.set(false);
+        for (int i = escritores; i < threads.size(); i++) threads.get(i).join();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        List<Produto> lista = estoque.listar();
+        int esperado = escritores * ((idsPorEscritor + 1) / 2);
+        boolean ordenada = true;
+        for (int i = 0; i < lista.size(); i++) {
+            Produto p = lista.get(i);
+            if ((p.getId() & 1) != 0 || (i > 0 && lista.get(i - 1).getId() >= p.getId())) ordenada = false;
+        }
+
+        System.out.printf("Escritores: %d | Leitores: %d | IDs por escritor: %,d%n", escritores, leitores, idsPorEscritor);
+        System.out.printf("Tempo: %.2f s | Leituras: %,d (%.1f M/s)%n", segundos, leituras.get(), leituras.get() / segundos / 1e6);
+        System.out.printf("Produtos: %,d (esperado %,d) | Ordenada: %s | Falhas: %,d%n",
+                lista.size(), esperado, ordenada, falhas.get());
+
+        boolean sucesso = lista.size() == esperado && ordenada && falhas.get() == 0;
+        System.out.println(sucesso ? "SUCESSO" : "FALHA");
+        if (!sucesso) System.exit(1);
+    }
+
+    private static void aguardar(CountDownLatch largada) {
+        try {
+            largada.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package br.com.miguel.estoqueavl;
+
+import br.com.miguel.estoqueavl.dao.EstoqueDados;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import br.com.miguel.estoqueavl.service.AgendadorPersistencia;
+import br.com.miguel.estoqueavl.service.DiarioOperacoes;
+import br.com.miguel.estoqueavl.service.PersistenciaServico;
+import br.com.miguel.estoqueavl.service.ServidorEstoque;
+
+import java.io.IOException;
+
+/**
+ * Classe principal do modo servidor: carrega o estoque como a {@link mainApp}, mas
+ * sem janela, e o serve por HTTP/JSON ({@link ServidorEstoque}) até o processo ser
+ * encerrado, com o mesmo salvamento automático e diário de operações.
+ * Não estende Application, para o Java não iniciar o toolkit JavaFX (e não exigir uma tela).
+ *
+ * Propriedades: -Destoque.porta (padrão 8080), -Destoque.cache e -Destoque.metricas.
+ */
+public class ServidorApp {
+
+    /**
+     * Ponto de entrada do modo servidor.
+     */
+    public static void main(String[] args) throws IOException {
+        mainApp.registrarMetricas();
+        PersistenciaServico servico = new PersistenciaServico();
+        DiarioOperacoes diario = new DiarioOperacoes(mainApp.ARQUIVO_DIARIO);
+        ArvoreAVL arvore = mainApp.carregarEstoque(servico, diario, (mensagem, etapa) -> System.out.println(mensagem));
+        EstoqueDados.arvore = new ArvoreAVLConcorrente(arvore);
+
+        AgendadorPersistencia agendador = new AgendadorPersistencia(servico, EstoqueDados.arvore, diario,
+                mainApp.INTERVALO_SALVAMENTO, mainApp.LIMITE_ALTERACOES, mainApp.LIMITE_DIARIO_BYTES);
+        EstoqueDados.agendador = agendador;
+        ServidorEstoque servidor = new ServidorEstoque(EstoqueDados.arvore,
+                Integer.getInteger("estoque.porta", ServidorEstoque.PORTA_PADRAO));
+
+        // Ao encerrar (Ctrl+C, SIGTERM): para de atender e sincroniza o diário, como o stop() da janela.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.close();
+            agendador.close();
+            try {
+                diario.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+
+        servidor.iniciar();
+        System.out.println("Servidor do estoque em http://localhost:" + servidor.porta() + "/produtos");
+    }
+}
@@ -3,10 +3,13 @@ package br.com.miguel.estoqueavl.controller;
 import br.com.miguel.estoqueavl.mainApp;
 import br.com.miguel.estoqueavl.dao.EstoqueDados;
 import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -14,13 +17,16 @@ import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 /**
  * Controlador para a tela de busca e listagem de produtos (busca-view.fxml).
  */
 public class BuscaController {
 
+    private static final int LIMITE_BUSCA_NOME = 500; // Máximo de produtos exibidos em uma busca por nome
+
     // Injeção dos componentes da interface gráfica.
     @FXML private TextField campoBusca;
     @FXML private Button btnPesquisar;
@@ -34,6 +40,12 @@ public class BuscaController {
     @FXML private TableColumn<Produto, BigDecimal> colPreco; // Corrigido para BigDecimal
     @FXML private TableColumn<Produto, Integer> colQtd;
 
+    // Busca em andamento (cancelada quando outra começa) e quantas já foram iniciadas,
+    // para descartar o resultado de uma busca substituída que termine depois da nova.
+    private Task<?> buscaAtual;
+    private int buscasIniciadas;
+    private Node avisoTabelaVazia;
+
     /**
      * Configura a tabela, as ações dos botões e carrega os dados iniciais.
      */
@@ -44,6 +56,13 @@ public class BuscaController {
         colNome.setCellValueFactory(new PropertyValueFactory<>("nome"));
         colPreco.setCellValueFactory(new PropertyValueFactory<>("preco"));
         colQtd.setCellValueFactory(new PropertyValueFactory<>("quantidade"));
+        avisoTabelaVazia = tabelaProdutos.getPlaceholder();
+
+        // A lista paginada não se ordena: a ordenação padrão copiaria o catálogo inteiro,
+        // página por página, na thread do JavaFX. Ela já vem em ordem de ID; os resultados
+        // de busca (listas comuns) continuam ordenáveis pelo cabeçalho.
+        tabelaProdutos.setSortPolicy(tabela -> !(tabela.getItems() instanceof ListaProdutosPaginada)
+                && TableView.DEFAULT_SORT_POLICY.call(tabela));
 
         // Carrega todos os produtos na tabela ao iniciar a tela.
         atualizarTabela();
@@ -55,16 +74,20 @@ public class BuscaController {
     }
 
     /**
-     * Pega a lista de produtos da árvore e a exibe na tabela.
+     * Exibe todos os produtos da árvore na tabela. A lista é paginada sobre um instantâneo
+     * da árvore: nada é copiado, e a tabela lê dele só as linhas que aparecem na tela.
      */
     private void atualizarTabela() {
-        List<Produto> listaDeProdutos = EstoqueDados.arvore.listar();
-        ObservableList<Produto> listaObservavel = FXCollections.observableArrayList(listaDeProdutos);
-        tabelaProdutos.setItems(listaObservavel);
+        iniciarBusca(EstoqueDados.arvore::instantaneo,
+                instantaneo -> {
+                    tabelaProdutos.getSortOrder().clear(); // Volta à ordem de ID
+                    tabelaProdutos.setItems(new ListaProdutosPaginada(instantaneo));
+                });
     }
 
     /**
-     * Filtra a tabela para exibir apenas o produto com o ID pesquisado.
+     * Filtra a tabela pelo texto pesquisado: um número busca pelo ID; qualquer
+     * outro texto busca pelo nome (início ou trecho, sem diferenciar maiúsculas e acentos).
      */
     private void pesquisarProduto() {
         String textoBusca = campoBusca.getText();
@@ -77,23 +100,61 @@ public class BuscaController {
 
         try {
             int idBusca = Integer.parseInt(textoBusca);
-            Produto produtoEncontrado = EstoqueDados.arvore.buscar(idBusca);
-
-            if (produtoEncontrado != null) {
-                // Se encontrou, exibe apenas ele na tabela.
-                tabelaProdutos.setItems(FXCollections.observableArrayList(produtoEncontrado));
-            } else {
-                // Se não encontrou, limpa a tabela e informa o usuário.
-                tabelaProdutos.getItems().clear();
-                mostrarAlerta(Alert.AlertType.INFORMATION, "Busca", "Nenhum produto encontrado com o ID " + idBusca);
-            }
+            iniciarBusca(() -> EstoqueDados.arvore.buscar(idBusca), produtoEncontrado -> {
+                if (produtoEncontrado != null) {
+                    // Se encontrou, exibe apenas ele na tabela.
+                    tabelaProdutos.setItems(FXCollections.observableArrayList(produtoEncontrado));
+                } else {
+                    // Se não encontrou, informa o usuário (a tabela já está vazia).
+                    mostrarAlerta(Alert.AlertType.INFORMATION, "Busca", "Nenhum produto encontrado com o ID " + idBusca);
+                }
+            });
         } catch (NumberFormatException e) {
-            mostrarAlerta(Alert.AlertType.WARNING, "ID Inválido", "A busca deve ser feita pelo número do ID.");
+            pesquisarPorNome(textoBusca);
         }
     }
 
     /**
-     * Remove o produto selecionado na tabela da árvore de estoque.
+     * Exibe na tabela os produtos cujo nome começa com o texto ou o contém.
+     */
+    private void pesquisarPorNome(String textoBusca) {
+        iniciarBusca(() -> EstoqueDados.arvore.ler(arvore -> EstoqueDados.indiceNome.buscar(textoBusca, LIMITE_BUSCA_NOME)),
+                encontrados -> {
+                    if (encontrados.isEmpty()) {
+                        mostrarAlerta(Alert.AlertType.INFORMATION, "Busca", "Nenhum produto encontrado com o nome \"" + textoBusca + "\"");
+                    } else {
+                        tabelaProdutos.setItems(FXCollections.observableArrayList(encontrados));
+                    }
+                });
+    }
+
+    /**
+     * Executa uma busca fora da thread do JavaFX, com um indicador de progresso no lugar
+     * da tabela. A busca anterior, se ainda estiver em andamento, é cancelada, e o
+     * resultado dela é descartado mesmo que chegue depois.
+     * @param busca A consulta à árvore.
+     * @param exibir Exibe o resultado, na thread do JavaFX.
+     */
+    private <T> void iniciarBusca(Callable<T> busca, Consumer<T> exibir) {
+        if (buscaAtual != null) buscaAtual.cancel();
+        int numero = ++buscasIniciadas;
+
+        tabelaProdutos.setItems(FXCollections.observableArrayList());
+        tabelaProdutos.setPlaceholder(new ProgressIndicator());
+
+        buscaAtual = EstoqueDados.tarefas.executar(busca, resultado -> {
+            if (numero != buscasIniciadas) return; // Substituída por uma busca mais nova.
+            tabelaProdutos.setPlaceholder(avisoTabelaVazia);
+            exibir.accept(resultado);
+        }, erro -> {
+            if (numero != buscasIniciadas) return;
+            tabelaProdutos.setPlaceholder(avisoTabelaVazia);
+            mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Não foi possível concluir a busca: " + erro.getMessage());
+        });
+    }
+
+    /**
+     * Remove o produto selecionado na tabela da árvore de estoque, fora da thread do JavaFX.
      */
     private void excluirProduto() {
         Produto produtoSelecionado = tabelaProdutos.getSelectionModel().getSelectedItem();
@@ -103,15 +164,31 @@ public class BuscaController {
             return;
         }
 
-        // Remove o produto da árvore.
-        boolean foiRemovido = EstoqueDados.arvore.remover(produtoSelecionado.getId());
-
-        if (foiRemovido) {
-            mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Produto removido com sucesso.");
-            atualizarTabela(); // Atualiza a tabela para refletir a remoção.
-        } else {
-            mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Não foi possível remover o produto selecionado.");
-        }
+        // Remove o produto da árvore, guardando a posição que ele ocupava e um instantâneo
+        // de logo depois (sob a mesma trava).
+        int id = produtoSelecionado.getId();
+        ObservableList<Produto> itens = tabelaProdutos.getItems();
+        btnExcluir.setDisable(true);
+        EstoqueDados.tarefas.executar(() -> EstoqueDados.arvore.escrever(arvore -> {
+            int rank = arvore.rank(id);
+            return arvore.remover(id) ? new Remocao(rank, arvore.instantaneo()) : null;
+        }), remocao -> {
+            btnExcluir.setDisable(false);
+            if (remocao != null) {
+                // Retira só a linha removida, sem recarregar a tabela.
+                if (itens instanceof ListaProdutosPaginada lista) {
+                    lista.removido(remocao.posicao(), produtoSelecionado, remocao.depois());
+                } else {
+                    itens.remove(produtoSelecionado);
+                }
+                mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Produto removido com sucesso.");
+            } else {
+                mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Não foi possível remover o produto selecionado.");
+            }
+        }, erro -> {
+            btnExcluir.setDisable(false);
+            mostrarAlerta(Alert.AlertType.ERROR, "Erro", "Não foi possível remover o produto selecionado: " + erro.getMessage());
+        });
     }
 
     /**
@@ -138,4 +215,8 @@ public class BuscaController {
         alert.setContentText(mensagem);
         alert.showAndWait();
     }
+
+    /** Resultado de uma exclusão: a posição que o produto ocupava e o estoque logo depois. */
+    private record Remocao(int posicao, ArvoreAVL depois) {
+    }
 }
@@ -3,16 +3,23 @@ package br.com.miguel.estoqueavl.controller;
 import br.com.miguel.estoqueavl.mainApp;
 import br.com.miguel.estoqueavl.dao.EstoqueDados;
 import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.service.ImportadorProdutos;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Optional;
 
 /**
  * Controlador para a tela de cadastro de produtos (cadastro-view.fxml).
@@ -26,48 +33,163 @@ public class CadastroController {
     @FXML private TextField txtQtd;
     @FXML private Button btnSalvar;
     @FXML private Button btnCancelar;
+    @FXML private Button btnImportar;
+    @FXML private Label lblImportacao;
 
     /**
-     * Configura as ações dos botões "Salvar" e "Cancelar".
+     * Configura as ações dos botões "Salvar", "Cancelar" e "Importar".
      */
     @FXML
     public void initialize() {
         btnSalvar.setOnAction(e -> salvarProduto());
         btnCancelar.setOnAction(e -> voltarParaHome());
+        btnImportar.setOnAction(e -> importarArquivo());
     }
 
     /**
-     * Valida os campos, cria um objeto Produto e o insere/atualiza na árvore.
+     * Valida os campos, cria um objeto Produto e o insere/atualiza na árvore. A inserção e
+     * a atualização rodam fora da thread do JavaFX: as duas esperam pela trava de escrita,
+     * que pode estar com uma importação ou um checkpoint.
      */
     private void salvarProduto() {
-        try {
-            // Validação de campos essenciais.
-            if (txtId.getText().isEmpty() || txtNome.getText().isEmpty()) {
-                mostrarAlerta(Alert.AlertType.WARNING, "Campos Obrigatórios", "Por favor, preencha pelo menos o ID e o Nome.");
-                return;
-            }
+        // Validação de campos essenciais.
+        if (txtId.getText().isEmpty() || txtNome.getText().isEmpty()) {
+            mostrarAlerta(Alert.AlertType.WARNING, "Campos Obrigatórios", "Por favor, preencha pelo menos o ID e o Nome.");
+            return;
+        }
 
-            // Conversão dos dados dos campos de texto.
+        // Conversão dos dados dos campos de texto.
+        Produto novoProduto;
+        try {
             int id = Integer.parseInt(txtId.getText());
             String nome = txtNome.getText();
             // Converte o preço para BigDecimal, o tipo correto para valores monetários.
             BigDecimal preco = new BigDecimal(txtPreco.getText().replace(",", "."));
             int qtd = Integer.parseInt(txtQtd.getText());
+            novoProduto = new Produto(id, nome, preco, qtd);
+        } catch (NumberFormatException e) {
+            mostrarAlerta(Alert.AlertType.ERROR, "Erro de Formato", "ID e Quantidade devem ser números inteiros.\nPreço deve ser um valor numérico.");
+            return;
+        }
+
+        // Insere o produto na árvore.
+        btnSalvar.setDisable(true);
+        EstoqueDados.tarefas.executar(() -> EstoqueDados.arvore.inserir(novoProduto), inserido -> {
+            btnSalvar.setDisable(false);
+            if (inserido) {
+                // Exibe mensagem de sucesso e limpa os campos para um novo cadastro.
+                mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Produto cadastrado com sucesso!");
+                limparCampos();
+                return;
+            }
 
-            // Cria o produto e o insere na árvore.
-            Produto novoProduto = new Produto(id, nome, preco, qtd);
-            EstoqueDados.arvore.inserir(novoProduto);
+            // ID já existe: confirma e atualiza o produto (sem remover e reinserir).
+            if (confirmar("ID Existente", "Já existe um produto cadastrado com o ID " + novoProduto.getId() + ". Deseja atualizá-lo?")) {
+                atualizarProduto(novoProduto);
+            }
+        }, this::falharAoSalvar);
+    }
 
-            // Exibe mensagem de sucesso e limpa os campos para um novo cadastro.
-            mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Produto cadastrado com sucesso!");
+    /**
+     * Troca nome, preço e quantidade do produto de mesmo ID, fora da thread do JavaFX.
+     * @param dados O produto com os novos dados.
+     */
+    private void atualizarProduto(Produto dados) {
+        int id = dados.getId();
+        btnSalvar.setDisable(true);
+        EstoqueDados.tarefas.executar(() -> EstoqueDados.arvore.atualizar(id, p -> {
+            p.setNome(dados.getNome());
+            p.setPreco(dados.getPreco());
+            p.setQuantidade(dados.getQuantidade());
+        }), atualizado -> {
+            btnSalvar.setDisable(false);
+            if (atualizado == null) {
+                mostrarAlerta(Alert.AlertType.WARNING, "Produto Removido", "O produto com o ID " + id + " foi removido antes da atualização.");
+                return;
+            }
+            mostrarAlerta(Alert.AlertType.INFORMATION, "Sucesso", "Produto atualizado com sucesso!");
             limparCampos();
+        }, this::falharAoSalvar);
+    }
 
-        } catch (NumberFormatException e) {
-            mostrarAlerta(Alert.AlertType.ERROR, "Erro de Formato", "ID e Quantidade devem ser números inteiros.\nPreço deve ser um valor numérico.");
-        } catch (Exception e) {
-            mostrarAlerta(Alert.AlertType.ERROR, "Erro Inesperado", "Ocorreu um erro: " + e.getMessage());
-            e.printStackTrace();
-        }
+    /**
+     * Libera o botão de salvar e informa a falha de uma inserção ou atualização
+     * (ex.: o diário de operações não pôde gravar; nesse caso nada foi alterado).
+     */
+    private void falharAoSalvar(Throwable erro) {
+        btnSalvar.setDisable(false);
+        erro.printStackTrace();
+        mostrarAlerta(Alert.AlertType.ERROR, "Erro Inesperado", "Ocorreu um erro: " + erro.getMessage());
+    }
+
+    /**
+     * Importa um catálogo de fornecedor (CSV ou JSON lines) escolhido pelo usuário.
+     * A importação roda em segundo plano, com o andamento exibido abaixo do botão.
+     */
+    private void importarArquivo() {
+        FileChooser seletor = new FileChooser();
+        seletor.setTitle("Importar produtos");
+        seletor.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV ou JSON lines", "*.csv", "*.txt", "*.jsonl", "*.ndjson", "*.json"),
+                new FileChooser.ExtensionFilter("Todos os arquivos", "*.*"));
+        File arquivo = seletor.showOpenDialog(btnImportar.getScene().getWindow());
+        if (arquivo == null) return;
+
+        Optional<ImportadorProdutos.Modo> modo = escolherModo();
+        if (modo.isEmpty()) return;
+
+        ImportadorProdutos importador = new ImportadorProdutos(EstoqueDados.arvore, modo.get());
+        Task<ImportadorProdutos.Resultado> tarefa = new Task<>() {
+            @Override
+            protected ImportadorProdutos.Resultado call() throws IOException {
+                return importador.importar(arquivo.toPath(), (mensagem, fracao) -> {
+                    updateMessage(mensagem);
+                    updateProgress(fracao, 1);
+                });
+            }
+        };
+        btnImportar.setDisable(true);
+        lblImportacao.textProperty().bind(tarefa.messageProperty());
+
+        tarefa.setOnSucceeded(e -> {
+            ImportadorProdutos.Resultado resultado = tarefa.getValue();
+            encerrarImportacao(resultado.toString());
+            String mensagem = "Importação concluída: " + resultado + ".";
+            if (resultado.arquivoRejeitados() != null) {
+                mensagem += "\nAs linhas rejeitadas e os motivos estão em " + resultado.arquivoRejeitados() + ".";
+            }
+            mostrarAlerta(Alert.AlertType.INFORMATION, "Importação", mensagem);
+        });
+        tarefa.setOnFailed(e -> {
+            encerrarImportacao("");
+            mostrarAlerta(Alert.AlertType.ERROR, "Erro na Importação", "Não foi possível importar o arquivo: " + tarefa.getException().getMessage());
+        });
+        EstoqueDados.tarefas.iniciar(tarefa);
+    }
+
+    /**
+     * Pergunta o que fazer com os produtos do arquivo cujo ID já está cadastrado.
+     * @return O modo escolhido, ou vazio se o usuário desistiu.
+     */
+    private Optional<ImportadorProdutos.Modo> escolherModo() {
+        ButtonType atualizar = new ButtonType("Atualizar");
+        ButtonType manter = new ButtonType("Manter os atuais");
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "", atualizar, manter, ButtonType.CANCEL);
+        alert.setTitle("IDs Existentes");
+        alert.setHeaderText(null);
+        alert.setContentText("Se o arquivo tiver produtos com IDs já cadastrados, atualizar o nome, o preço e a quantidade deles?\n"
+                + "Mantendo os atuais, essas linhas vão para o arquivo de rejeitados.");
+        return alert.showAndWait().flatMap(botao -> botao == atualizar ? Optional.of(ImportadorProdutos.Modo.ATUALIZAR)
+                : botao == manter ? Optional.of(ImportadorProdutos.Modo.INSERIR) : Optional.empty());
+    }
+
+    /**
+     * Libera o botão de importação e deixa o texto final abaixo dele.
+     */
+    private void encerrarImportacao(String texto) {
+        lblImportacao.textProperty().unbind();
+        lblImportacao.setText(texto);
+        btnImportar.setDisable(false);
     }
 
     /**
@@ -95,6 +217,20 @@ public class CadastroController {
         }
     }
 
+    /**
+     * Exibe um pop-up de confirmação para o usuário.
+     * @param titulo O título da janela.
+     * @param mensagem A pergunta a ser exibida.
+     * @return true se o usuário confirmou.
+     */
+    private boolean confirmar(String titulo, String mensagem) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle(titulo);
+        alert.setHeaderText(null);
+        alert.setContentText(mensagem);
+        return alert.showAndWait().filter(ButtonType.OK::equals).isPresent();
+    }
+
     /**
      * Exibe um pop-up de alerta para o usuário.
      * @param tipo O tipo de alerta (ERRO, INFORMAÇÃO, AVISO).
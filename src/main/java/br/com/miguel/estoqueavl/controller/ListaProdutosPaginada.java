@@ -0,0 +1,104 @@
+package br.com.miguel.estoqueavl.controller;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import javafx.collections.ObservableListBase;
+
+import java.util.List;
+import java.util.Objects;
+
+// Classe que representa a lista de todos os produtos exibida na tabela, lida de um instantâneo da árvore por páginas
+
+/**
+ * Lista observável, somente leitura, com todos os produtos da árvore de estoque em
+ * ordem de ID, para a TableView da tela de busca.
+ *
+ * Não copia a árvore: a lista guarda um instantâneo dela ({@link ArvoreAVL#instantaneo()},
+ * O(1)), e a TableView, que é virtualizada, só pede as linhas visíveis ({@link #get}).
+ * Um pedido fora das páginas guardadas lê do instantâneo a página que contém a posição
+ * com {@link ArvoreAVL#pagina} (O(log n + página)). O instantâneo não muda com as escritas
+ * no estoque e não precisa de trava, então a leitura acontece na própria thread do JavaFX
+ * sem nunca esperar por uma importação ou operação de conjunto, e todas as páginas vêm
+ * do mesmo estado do estoque. Criar a lista custa O(1), qualquer que seja o tamanho do catálogo.
+ *
+ * Exclusões feitas pela tela são repassadas com {@link #removido}, junto com um instantâneo
+ * tirado logo depois da remoção, e a tabela é avisada só da linha removida. A lista é
+ * somente leitura e sempre em ordem de ID: a tela de busca recusa a ordenação pelos
+ * cabeçalhos enquanto ela é exibida (a ordenação padrão da TableView copiaria todas as
+ * páginas para uma lista comum).
+ */
+class ListaProdutosPaginada extends ObservableListBase<Produto> {
+
+    private static final int TAMANHO_PAGINA = 256;
+
+    private ArvoreAVL instantaneo;
+
+    // Duas páginas guardadas: ao rolar, a tabela costuma exibir o fim de uma e o início da seguinte.
+    private int inicioAtual = -1;
+    private List<Produto> paginaAtual = List.of();
+    private int inicioAnterior = -1;
+    private List<Produto> paginaAnterior = List.of();
+
+    /**
+     * @param instantaneo Um instantâneo da árvore (tirado fora da thread do JavaFX).
+     */
+    ListaProdutosPaginada(ArvoreAVL instantaneo) {
+        this.instantaneo = instantaneo;
+    }
+
+    /**
+     * Retorna o produto da posição, lendo do instantâneo a página dele se ela não estiver guardada.
+     * @param indice A posição na ordem de ID.
+     * @return O produto.
+     */
+    @Override
+    public Produto get(int indice) {
+        Objects.checkIndex(indice, size());
+
+        int inicio = indice - indice % TAMANHO_PAGINA;
+        if (inicio != inicioAtual) {
+            if (inicio == inicioAnterior) {
+                trocarPaginas();
+            } else {
+                inicioAnterior = inicioAtual;
+                paginaAnterior = paginaAtual;
+                inicioAtual = inicio;
+                paginaAtual = instantaneo.pagina(inicio, TAMANHO_PAGINA);
+            }
+        }
+        return paginaAtual.get(indice - inicioAtual);
+    }
+
+    @Override
+    public int size() {
+        return instantaneo.tamanho();
+    }
+
+    /**
+     * Avisa a tabela de que um produto foi removido da árvore. Só a linha removida é
+     * atualizada; as páginas guardadas são descartadas, pois as posições mudaram.
+     * @param indice A posição que o produto ocupava (o rank dele antes da remoção).
+     * @param produto O produto removido.
+     * @param depois Um instantâneo da árvore tirado logo depois da remoção.
+     */
+    void removido(int indice, Produto produto, ArvoreAVL depois) {
+        instantaneo = depois;
+        inicioAtual = -1;
+        paginaAtual = List.of();
+        inicioAnterior = -1;
+        paginaAnterior = List.of();
+
+        beginChange();
+        nextRemove(indice, produto);
+        endChange();
+    }
+
+    private void trocarPaginas() {
+        int inicio = inicioAtual;
+        List<Produto> pagina = paginaAtual;
+        inicioAtual = inicioAnterior;
+        paginaAtual = paginaAnterior;
+        inicioAnterior = inicio;
+        paginaAnterior = pagina;
+    }
+}
@@ -1,6 +1,13 @@
 package br.com.miguel.estoqueavl.dao;
 
-import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import br.com.miguel.estoqueavl.model.estrutura.IndiceNome;
+import br.com.miguel.estoqueavl.model.estrutura.IndiceOrdenado;
+import br.com.miguel.estoqueavl.service.AgendadorPersistencia;
+import br.com.miguel.estoqueavl.service.ServicoAssincrono;
+
+import java.math.BigDecimal;
 
 /**
  * Mantém a instância única da árvore de estoque para toda a aplicação,
@@ -10,7 +17,33 @@ public class EstoqueDados {
 
     /**
      * Instância estática da árvore que armazena todos os produtos.
-     * Acessível globalmente através de `EstoqueDados.arvore`.
+     * Acessível globalmente através de `EstoqueDados.arvore`, inclusive a partir
+     * de threads de trabalho, pois o acesso é sincronizado pela ArvoreAVLConcorrente.
+     */
+    public static ArvoreAVLConcorrente arvore = new ArvoreAVLConcorrente();
+
+    /**
+     * Índice por nome da árvore acima, atualizado a cada inserção e remoção.
+     * Deve ser consultado dentro de `EstoqueDados.arvore.ler(...)`.
+     */
+    public static IndiceNome indiceNome = new IndiceNome();
+
+    /**
+     * Índices ordenados por preço e por quantidade, para consultas por faixa
+     * (ex.: estoque baixo, faixa de preço). Também consultados dentro de `ler(...)`.
+     */
+    public static IndiceOrdenado<BigDecimal> indicePreco = new IndiceOrdenado<>(Produto::getPreco);
+    public static IndiceOrdenado<Integer> indiceQuantidade = new IndiceOrdenado<>(Produto::getQuantidade);
+
+    /**
+     * Executor dos trabalhos pesados das telas (carregamento, buscas, exclusões),
+     * para que não rodem na thread do JavaFX.
+     */
+    public static final ServicoAssincrono tarefas = new ServicoAssincrono();
+
+    /**
+     * Salvamento automático da árvore acima; null até o estoque ser carregado.
+     * As métricas (MetricasEstoque) leem dele as estatísticas dos checkpoints.
      */
-    public static ArvoreAVL arvore = new ArvoreAVL();
+    public static volatile AgendadorPersistencia agendador;
 }
@@ -1,13 +1,31 @@
 package br.com.miguel.estoqueavl;
 
 import br.com.miguel.estoqueavl.dao.EstoqueDados;
+import br.com.miguel.estoqueavl.metricas.Metricas;
+import br.com.miguel.estoqueavl.metricas.MetricasEstoque;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import br.com.miguel.estoqueavl.model.estrutura.IndiceNome;
+import br.com.miguel.estoqueavl.model.estrutura.IndiceOrdenado;
+import br.com.miguel.estoqueavl.service.AgendadorPersistencia;
+import br.com.miguel.estoqueavl.service.DiarioOperacoes;
 import br.com.miguel.estoqueavl.service.PersistenciaServico;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Classe principal que inicia a aplicação JavaFX.
@@ -15,41 +33,168 @@ import java.io.IOException;
  */
 public class mainApp extends Application {
 
+    static final String ARQUIVO_DIARIO = "estoque_dados.wal";
+    static final Duration INTERVALO_SALVAMENTO = Duration.ofMinutes(5);
+    static final long LIMITE_ALTERACOES = 100_000;
+    static final long LIMITE_DIARIO_BYTES = 16L * 1024 * 1024;
+    private static final int ETAPAS_CARREGAMENTO = 4;
+
     private final PersistenciaServico servico = new PersistenciaServico();
+    private final DiarioOperacoes diario = new DiarioOperacoes(ARQUIVO_DIARIO);
+    private Task<ArvoreAVL> carregamento;
 
     /**
      * Método principal do ciclo de vida do JavaFX, chamado ao iniciar a aplicação.
+     * A janela aparece na hora, com o progresso do carregamento; o estoque é carregado
+     * em segundo plano e a tela inicial só é exibida quando ele termina.
      * @param stage O palco principal da aplicação, fornecido pelo JavaFX.
      */
     @Override
-    public void start(Stage stage) throws IOException {
-        // Carrega os dados do arquivo JSON para a árvore de estoque.
-        EstoqueDados.arvore = servico.carregar();
-
-        // Carrega a interface gráfica a partir do arquivo FXML.
-        FXMLLoader fxmlLoader = new FXMLLoader(mainApp.class.getResource("home-view.fxml"));
-        Scene scene = new Scene(fxmlLoader.load(), 800, 600);
-
-        // Configura e exibe a janela principal.
+    public void start(Stage stage) {
         stage.setTitle("Sistema de Estoque AVL");
         stage.setResizable(false);
-        stage.setScene(scene);
+
+        registrarMetricas();
+
+        carregamento = criarCarregamento();
+        carregamento.setOnSucceeded(e -> exibirEstoque(stage, carregamento.getValue()));
+        carregamento.setOnFailed(e -> falharCarregamento(carregamento.getException()));
+
+        stage.setScene(criarTelaCarregamento(carregamento));
         stage.show();
+        EstoqueDados.tarefas.iniciar(carregamento);
+    }
+
+    /**
+     * Cria a tarefa que carrega o estoque, em etapas que alimentam a barra de progresso.
+     * @return A tarefa (ainda não iniciada), que devolve a árvore já observada pelo diário e pelos índices.
+     */
+    private Task<ArvoreAVL> criarCarregamento() {
+        return new Task<>() {
+            @Override
+            protected ArvoreAVL call() throws IOException {
+                return carregarEstoque(servico, diario, (mensagem, etapa) -> {
+                    updateMessage(mensagem);
+                    updateProgress(etapa, ETAPAS_CARREGAMENTO);
+                });
+            }
+        };
+    }
+
+    /**
+     * Carrega o estoque: o último instantâneo, o diário reaplicado por cima, os índices
+     * secundários e o cache. Usado pela janela e pelo {@link ServidorApp}.
+     * @param etapa Recebe a mensagem e o número de cada etapa (de 0 a {@link #ETAPAS_CARREGAMENTO}).
+     * @return A árvore já observada pelo diário e pelos índices.
+     */
+    static ArvoreAVL carregarEstoque(PersistenciaServico servico, DiarioOperacoes diario,
+                                     ObjIntConsumer<String> etapa) throws IOException {
+        etapa.accept("Lendo o último instantâneo...", 0);
+        ArvoreAVL arvore = servico.carregar();
+
+        // Reaplica o diário de operações sobre o instantâneo, recuperando também
+        // as alterações de uma execução que não fechou normalmente.
+        etapa.accept("Reaplicando o diário de operações...", 1);
+        diario.abrir(arvore);
+
+        // Índices secundários (nome, preço, quantidade), mantidos junto com a árvore.
+        etapa.accept("Indexando os nomes...", 2);
+        EstoqueDados.indiceNome = IndiceNome.indexar(arvore);
+
+        etapa.accept("Indexando preços e quantidades...", 3);
+        EstoqueDados.indicePreco = IndiceOrdenado.porPreco(arvore);
+        EstoqueDados.indiceQuantidade = IndiceOrdenado.porQuantidade(arvore);
+
+        // Cache dos SKUs mais buscados; -Destoque.cache=<capacidade> liga (desligado por padrão).
+        arvore.usarCache(Integer.getInteger("estoque.cache", 0));
+
+        etapa.accept(arvore.tamanho() + " produtos carregados.", ETAPAS_CARREGAMENTO);
+        return arvore;
+    }
+
+    /**
+     * Métricas de operação via JMX (JConsole etc.). A coleta de latências custa duas leituras
+     * do relógio por operação, então vem desligada; -Destoque.metricas=true liga.
+     */
+    static void registrarMetricas() {
+        Metricas.ativar(Boolean.getBoolean("estoque.metricas"));
+        MetricasEstoque.registrar(() -> EstoqueDados.arvore, () -> {
+            AgendadorPersistencia agendador = EstoqueDados.agendador;
+            return (agendador == null) ? Map.of() : agendador.estatisticas();
+        });
+    }
+
+    /**
+     * Monta a tela exibida durante o carregamento: a barra e a mensagem da etapa atual.
+     */
+    private Scene criarTelaCarregamento(Task<?> tarefa) {
+        Label titulo = new Label("Carregando o estoque...");
+        titulo.setStyle("-fx-font-size: 18px;");
+
+        ProgressBar barra = new ProgressBar();
+        barra.setPrefWidth(400);
+        barra.progressProperty().bind(tarefa.progressProperty());
+
+        Label etapa = new Label();
+        etapa.textProperty().bind(tarefa.messageProperty());
+
+        VBox tela = new VBox(16, titulo, barra, etapa);
+        tela.setAlignment(Pos.CENTER);
+        return new Scene(tela, 800, 600);
+    }
+
+    /**
+     * Publica o estoque carregado para as telas, liga o salvamento automático e
+     * troca a tela de carregamento pela tela inicial. Roda na thread do JavaFX.
+     */
+    private void exibirEstoque(Stage stage, ArvoreAVL arvore) {
+        EstoqueDados.arvore = new ArvoreAVLConcorrente(arvore);
+
+        // Salvamento automático em segundo plano: mantém o diário (e o tempo de recuperação) pequeno
+        // sem travar a interface.
+        EstoqueDados.agendador = new AgendadorPersistencia(servico, EstoqueDados.arvore, diario,
+                INTERVALO_SALVAMENTO, LIMITE_ALTERACOES, LIMITE_DIARIO_BYTES);
+
+        try {
+            // Carrega a interface gráfica a partir do arquivo FXML.
+            FXMLLoader fxmlLoader = new FXMLLoader(mainApp.class.getResource("home-view.fxml"));
+            stage.setScene(new Scene(fxmlLoader.load(), 800, 600));
+        } catch (IOException e) {
+            falharCarregamento(e);
+        }
+    }
+
+    /**
+     * Informa que o estoque não pôde ser carregado e encerra a aplicação, sem abrir
+     * as telas sobre um estoque incompleto.
+     */
+    private void falharCarregamento(Throwable erro) {
+        erro.printStackTrace();
+        Alert alerta = new Alert(Alert.AlertType.ERROR);
+        alerta.setTitle("Erro");
+        alerta.setHeaderText(null);
+        alerta.setContentText("Não foi possível carregar o estoque: " + erro.getMessage());
+        alerta.showAndWait();
+        Platform.exit();
     }
 
     /**
      * Método chamado quando a aplicação está prestes a ser fechada.
-     * Garante que os dados do estoque sejam salvos.
+     * Garante que os dados do estoque estejam em disco.
      */
     @Override
-    public void stop() {
-        // Salva o estado atual da árvore de estoque no arquivo JSON.
-        servico.salvar(EstoqueDados.arvore);
+    public void stop() throws IOException {
+        if (carregamento != null) carregamento.cancel();
+        // Não regrava o catálogo inteiro ao fechar: basta sincronizar o diário,
+        // que é reaplicado sobre o último instantâneo na próxima inicialização.
+        if (EstoqueDados.agendador != null) EstoqueDados.agendador.close();
+        diario.close();
     }
 
     /**
      * Ponto de entrada da aplicação Java.
      * O método `launch()` inicia o toolkit JavaFX e o ciclo de vida da aplicação.
+     * Para servir o estoque por HTTP sem janela, use {@link ServidorApp}.
      */
     public static void main(String[] args) {
         launch();
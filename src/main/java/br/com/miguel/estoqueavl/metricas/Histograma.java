@@ -0,0 +1,108 @@
+package br.com.miguel.estoqueavl.metricas;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Classe que representa um histograma de latências com faixas fixas
+
+/**
+ * Histograma de latências em nanossegundos, com faixas fixas em potências de 2:
+ * a faixa i conta as medidas em [2^i, 2^(i+1)) ns. Registrar custa um
+ * {@code numberOfLeadingZeros} e três incrementos em {@link LongAdder}, que
+ * espalham a contenção entre células quando várias threads registram ao mesmo tempo.
+ *
+ * Os percentis saem do limite superior da faixa, então têm erro de até 2x; bastam
+ * para ver a forma da distribuição e as caudas.
+ */
+public class Histograma {
+
+    /** 2^40 ns ~ 18 minutos; medidas maiores caem na última faixa. */
+    private static final int FAIXAS = 40;
+
+    private final LongAdder[] faixas = new LongAdder[FAIXAS];
+    private final LongAdder soma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    public Histograma() {
+        for (int i = 0; i < FAIXAS; i++) faixas[i] = new LongAdder();
+    }
+
+    /**
+     * Registra uma medida.
+     * @param nanos A duração em nanossegundos.
+     */
+    public void registrar(long nanos) {
+        int faixa = Math.min(FAIXAS - 1, 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+        faixas[faixa].increment();
+        soma.add(nanos);
+        maximo.accumulate(nanos);
+    }
+
+    /**
+     * Registra o tempo decorrido desde um início obtido com {@link Metricas#inicio()}.
+     * Não faz nada se as métricas estavam desligadas naquele momento.
+     * @param inicio O instante inicial.
+     */
+    public void registrarDesde(long inicio) {
+        if (inicio != Metricas.DESLIGADAS) registrar(System.nanoTime() - inicio);
+    }
+
+    /**
+     * @return A quantidade de medidas registradas.
+     */
+    public long contagem() {
+        long total = 0;
+        for (LongAdder faixa : faixas) total += faixa.sum();
+        return total;
+    }
+
+    /**
+     * Estima um percentil pelo limite superior da faixa em que ele cai.
+     * @param fracao O percentil, entre 0 e 1 (ex.: 0.99).
+     * @return A estimativa em nanossegundos, ou 0 se não houver medidas.
+     */
+    public long percentil(double fracao) {
+        long[] contagens = new long[FAIXAS];
+        long total = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            contagens[i] = faixas[i].sum();
+            total += contagens[i];
+        }
+        if (total == 0) return 0;
+
+        long alvo = (long) Math.ceil(fracao * total);
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= alvo) return (1L << (i + 1)) - 1;
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Resume o histograma para exibição (ex.: no JConsole).
+     * @return contagem, media, p50, p99, p999 e maximo; tempos em nanossegundos.
+     */
+    public Map<String, Long> resumo() {
+        long contagem = contagem();
+        Map<String, Long> resumo = new LinkedHashMap<>();
+        resumo.put("contagem", contagem);
+        resumo.put("media", (contagem == 0) ? 0 : soma.sum() / contagem);
+        resumo.put("p50", percentil(0.50));
+        resumo.put("p99", percentil(0.99));
+        resumo.put("p999", percentil(0.999));
+        resumo.put("maximo", maximo.get());
+        return resumo;
+    }
+
+    /**
+     * Descarta todas as medidas.
+     */
+    public void zerar() {
+        for (LongAdder faixa : faixas) faixa.reset();
+        soma.reset();
+        maximo.reset();
+    }
+}
@@ -0,0 +1,89 @@
+package br.com.miguel.estoqueavl.metricas;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Classe que guarda as métricas de operação do estoque
+
+/**
+ * Contadores e histogramas de latência das operações da árvore de estoque e da
+ * persistência, exportados por {@link MetricasEstoque} via JMX.
+ *
+ * Com as métricas desligadas (o padrão), o custo em cada operação é a leitura de um
+ * campo volatile e um desvio previsível: nada é medido nem contado. Ligadas, cada
+ * operação medida faz duas leituras do relógio e registra a duração no histograma.
+ */
+public final class Metricas {
+
+    /** Valor de {@link #inicio()} quando as métricas estão desligadas. */
+    static final long DESLIGADAS = Long.MIN_VALUE;
+
+    private static volatile boolean ativas;
+
+    public static final Histograma BUSCA = new Histograma();
+    public static final Histograma INSERCAO = new Histograma();
+    public static final Histograma REMOCAO = new Histograma();
+    public static final Histograma SALVAMENTO = new Histograma();
+    public static final Histograma CARREGAMENTO = new Histograma();
+
+    public static final LongAdder ROTACAO_DIREITA = new LongAdder();
+    public static final LongAdder ROTACAO_ESQUERDA = new LongAdder();
+    public static final LongAdder ROTACAO_ESQUERDA_DIREITA = new LongAdder();
+    public static final LongAdder ROTACAO_DIREITA_ESQUERDA = new LongAdder();
+
+    private Metricas() {
+    }
+
+    /**
+     * @return true se as métricas estão sendo coletadas.
+     */
+    public static boolean ativas() {
+        return ativas;
+    }
+
+    /**
+     * Liga ou desliga a coleta. Operações já em andamento podem ou não ser medidas.
+     * @param ligar true para coletar.
+     */
+    public static void ativar(boolean ligar) {
+        ativas = ligar;
+    }
+
+    /**
+     * Marca o início de uma operação medida; passe o valor para
+     * {@link Histograma#registrarDesde(long)} quando ela terminar.
+     * @return O instante atual, ou um valor que não registra nada se as métricas estiverem desligadas.
+     */
+    public static long inicio() {
+        return ativas ? System.nanoTime() : DESLIGADAS;
+    }
+
+    /**
+     * Conta uma rotação, se as métricas estiverem ligadas.
+     * @param rotacao O contador do tipo de rotação.
+     */
+    public static void contar(LongAdder rotacao) {
+        if (ativas) rotacao.increment();
+    }
+
+    /**
+     * @return As rotações feitas, por tipo.
+     */
+    public static Map<String, Long> rotacoes() {
+        Map<String, Long> rotacoes = new LinkedHashMap<>();
+        rotacoes.put("simplesDireita", ROTACAO_DIREITA.sum());
+        rotacoes.put("simplesEsquerda", ROTACAO_ESQUERDA.sum());
+        rotacoes.put("duplaEsquerdaDireita", ROTACAO_ESQUERDA_DIREITA.sum());
+        rotacoes.put("duplaDireitaEsquerda", ROTACAO_DIREITA_ESQUERDA.sum());
+        return rotacoes;
+    }
+
+    /**
+     * Zera todos os contadores e histogramas.
+     */
+    public static void zerar() {
+        for (Histograma h : new Histograma[]{BUSCA, INSERCAO, REMOCAO, SALVAMENTO, CARREGAMENTO}) h.zerar();
+        for (LongAdder r : new LongAdder[]{ROTACAO_DIREITA, ROTACAO_ESQUERDA, ROTACAO_ESQUERDA_DIREITA, ROTACAO_DIREITA_ESQUERDA}) r.reset();
+    }
+}
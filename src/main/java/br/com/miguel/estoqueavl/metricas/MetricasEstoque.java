@@ -0,0 +1,131 @@
+package br.com.miguel.estoqueavl.metricas;
+
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import br.com.miguel.estoqueavl.model.estrutura.CacheProdutos;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Classe que exporta as métricas do estoque como MBean
+
+/**
+ * Publica as {@link Metricas}, a forma da árvore de estoque e as estatísticas dos
+ * checkpoints no servidor de MBeans da plataforma, com o nome {@value #NOME}.
+ */
+public class MetricasEstoque implements MetricasEstoqueMXBean {
+
+    public static final String NOME = "br.com.miguel.estoqueavl:type=MetricasEstoque";
+
+    private final Supplier<ArvoreAVLConcorrente> estoque;
+    private final Supplier<Map<String, Long>> checkpoints;
+
+    /**
+     * @param estoque Fornece o estoque atual (a instância pode ser trocada depois do registro).
+     * @param checkpoints Fornece as estatísticas dos checkpoints (vazio enquanto não houver salvamento automático).
+     */
+    private MetricasEstoque(Supplier<ArvoreAVLConcorrente> estoque, Supplier<Map<String, Long>> checkpoints) {
+        this.estoque = estoque;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Registra o MBean no servidor da plataforma, substituindo um registro anterior.
+     * Uma falha no registro não impede a aplicação de seguir: só as métricas via JMX
+     * ficam indisponíveis, e o erro é impresso.
+     * @param estoque Fornece o estoque atual.
+     * @param checkpoints Fornece as estatísticas dos checkpoints.
+     * @return O MBean registrado, ou null se o registro falhou.
+     */
+    public static MetricasEstoque registrar(Supplier<ArvoreAVLConcorrente> estoque,
+                                            Supplier<Map<String, Long>> checkpoints) {
+        MetricasEstoque metricas = new MetricasEstoque(estoque, checkpoints);
+        try {
+            var servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName(NOME);
+            if (servidor.isRegistered(nome)) servidor.unregisterMBean(nome);
+            servidor.registerMBean(metricas, nome);
+            return metricas;
+        } catch (JMException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isAtivas() {
+        return Metricas.ativas();
+    }
+
+    @Override
+    public void setAtivas(boolean ativas) {
+        Metricas.ativar(ativas);
+    }
+
+    @Override
+    public Map<String, Long> getBusca() {
+        return Metricas.BUSCA.resumo();
+    }
+
+    @Override
+    public Map<String, Long> getInsercao() {
+        return Metricas.INSERCAO.resumo();
+    }
+
+    @Override
+    public Map<String, Long> getRemocao() {
+        return Metricas.REMOCAO.resumo();
+    }
+
+    @Override
+    public Map<String, Long> getRotacoes() {
+        return Metricas.rotacoes();
+    }
+
+    @Override
+    public Map<String, Long> getSalvamento() {
+        return Metricas.SALVAMENTO.resumo();
+    }
+
+    @Override
+    public Map<String, Long> getCarregamento() {
+        return Metricas.CARREGAMENTO.resumo();
+    }
+
+    @Override
+    public Map<String, Long> getCheckpoint() {
+        return checkpoints.get();
+    }
+
+    @Override
+    public int getAltura() {
+        return estoque.get().ler(ArvoreAVL::altura);
+    }
+
+    @Override
+    public int getTamanho() {
+        return estoque.get().ler(ArvoreAVL::tamanho);
+    }
+
+    @Override
+    public Map<String, Long> getCache() {
+        CacheProdutos cache = estoque.get().ler(ArvoreAVL::getCache);
+        return (cache == null) ? Map.of() : cache.estatisticas();
+    }
+
+    @Override
+    public double getTaxaAcertoCache() {
+        CacheProdutos cache = estoque.get().ler(ArvoreAVL::getCache);
+        return (cache == null) ? 0 : cache.taxaAcerto();
+    }
+
+    @Override
+    public void zerar() {
+        Metricas.zerar();
+        CacheProdutos cache = estoque.get().ler(ArvoreAVL::getCache);
+        if (cache != null) cache.zerarEstatisticas();
+    }
+}
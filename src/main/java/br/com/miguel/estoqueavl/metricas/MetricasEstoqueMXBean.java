@@ -0,0 +1,57 @@
+package br.com.miguel.estoqueavl.metricas;
+
+import java.util.Map;
+
+// Interface que define o que as métricas do estoque expõem via JMX
+
+/**
+ * Métricas do estoque vistas pelo JMX (JConsole, VisualVM, agentes de monitoramento).
+ * Os resumos de latência trazem contagem, media, p50, p99, p999 e maximo, em nanossegundos.
+ */
+public interface MetricasEstoqueMXBean {
+
+    /** @return true se as métricas estão sendo coletadas. */
+    boolean isAtivas();
+
+    /** @param ativas Liga ou desliga a coleta. */
+    void setAtivas(boolean ativas);
+
+    /** @return Resumo das latências de buscar. */
+    Map<String, Long> getBusca();
+
+    /** @return Resumo das latências de inserir. */
+    Map<String, Long> getInsercao();
+
+    /** @return Resumo das latências de remover. */
+    Map<String, Long> getRemocao();
+
+    /** @return Rotações feitas no rebalanceamento, por tipo. */
+    Map<String, Long> getRotacoes();
+
+    /** @return Resumo das durações de gravação do arquivo de dados (salvamentos e checkpoints). */
+    Map<String, Long> getSalvamento();
+
+    /** @return Resumo das durações de leitura do arquivo de dados. */
+    Map<String, Long> getCarregamento();
+
+    /**
+     * @return Estatísticas dos checkpoints do salvamento automático (duração e bytes do último,
+     *         quando ele terminou, totais de salvamentos e falhas); vazio se ele não estiver ligado.
+     */
+    Map<String, Long> getCheckpoint();
+
+    /** @return A altura atual da árvore de estoque. */
+    int getAltura();
+
+    /** @return A quantidade atual de produtos (nós) na árvore de estoque. */
+    int getTamanho();
+
+    /** @return Estatísticas do cache de produtos (capacidade, tamanho, acertos...); vazio se desligado. */
+    Map<String, Long> getCache();
+
+    /** @return A fração das buscas atendidas pelo cache de produtos (0 se desligado). */
+    double getTaxaAcertoCache();
+
+    /** Zera contadores, histogramas e as estatísticas do cache. */
+    void zerar();
+}
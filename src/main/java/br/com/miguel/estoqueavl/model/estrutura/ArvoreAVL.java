@@ -1,9 +1,17 @@
 package br.com.miguel.estoqueavl.model.estrutura;
 
+import br.com.miguel.estoqueavl.metricas.Metricas;
 import br.com.miguel.estoqueavl.model.Produto;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 // Classe que representa uma AVL
 
@@ -12,245 +20,768 @@ import java.util.List;
  * A Árvore AVL é uma árvore de busca binária auto-balanceada, que garante
  * que as operações de inserção, busca e remoção tenham complexidade de tempo
  * logarítmica (O(log n)).
+ *
+ * A estrutura em si é um {@link MapaAVLInt} de ID para Produto: o ID fica no nó
+ * como int, então a descida não passa pelo objeto Produto. Esta classe acrescenta
+ * o que é próprio do estoque: observadores, contador de alterações e a montagem
+ * a partir de uma lista de produtos.
  */
-public class ArvoreAVL {
+public class ArvoreAVL implements Iterable<Produto> {
 
-    private No raiz;
+    /**
+     * Lotes com pelo menos esta fração do tamanho da árvore são aplicados remontando a
+     * árvore (ver {@link #aplicarLote}); abaixo dela, uma operação por vez em ordem de ID.
+     */
+    private static final int FRACAO_RECONSTRUCAO = 4;
+
+    private MapaAVLInt<Produto> produtos;
+
+    // Quem é avisado a cada inserção, atualização e remoção: antes da alteração (o diário
+    // de operações) e depois dela (índices, cache...). Ver ObservadorArvore.avisarAntes.
+    private ObservadorArvore[] registradores = new ObservadorArvore[0];
+    private ObservadorArvore[] observadores = new ObservadorArvore[0];
+
+    // Contador de alterações bem-sucedidas; quem salva compara com o valor do último salvamento.
+    private long alteracoes;
 
-    // Construtor da árvore AVL. Inicializa a raiz como nula
+    // Cache opcional dos produtos mais buscados (ver usarCache); null quando desligado.
+    private CacheProdutos cache;
+
+    // Construtor da árvore AVL. Começa vazia
     public ArvoreAVL() {
-        this.raiz = null;
+        this(new MapaAVLInt<>());
+    }
+
+    private ArvoreAVL(MapaAVLInt<Produto> produtos) {
+        this.produtos = produtos;
+    }
+
+    /**
+     * Constrói uma árvore perfeitamente balanceada a partir de uma lista de produtos, em O(n)
+     * quando a lista já está em ordem crescente de ID (como a gravada por {@link #listar()}).
+     * Se a lista estiver fora de ordem, ela é copiada e ordenada antes (O(n log n)).
+     * IDs repetidos mantêm só a primeira ocorrência, como faria uma sequência de {@link #inserir}.
+     * @param produtos Os produtos a carregar.
+     * @return Uma nova árvore com os produtos.
+     */
+    public static ArvoreAVL construirDeLista(List<Produto> produtos) {
+        Produto[] ordenados = produtos.toArray(new Produto[0]);
+        int quantidade = ordenados.length;
+
+        if (!estritamenteCrescente(ordenados)) {
+            // Ordenação estável: entre IDs repetidos, o primeiro da lista fica na frente.
+            Arrays.sort(ordenados, Comparator.comparingInt(Produto::getId));
+            quantidade = removerRepetidos(ordenados);
+        }
+
+        return new ArvoreAVL(MapaAVLInt.deOrdenados(ordenados, quantidade, Produto::getId));
     }
 
     // ###### MÉTODOS PÚBLICOS ######
 
     /**
-     * Busca um produto na árvore pelo seu ID.
+     * Registra um observador, que passa a ser avisado de cada inserção, atualização
+     * e remoção bem-sucedida (antes ou depois dela, ver {@link ObservadorArvore#avisarAntes()}).
+     * A montagem inicial por {@link #construirDeLista} não é notificada.
+     * @param observador O observador a ser registrado.
+     */
+    public void adicionarObservador(ObservadorArvore observador) {
+        if (observador.avisarAntes()) {
+            registradores = Arrays.copyOf(registradores, registradores.length + 1);
+            registradores[registradores.length - 1] = observador;
+        } else {
+            observadores = Arrays.copyOf(observadores, observadores.length + 1);
+            observadores[observadores.length - 1] = observador;
+        }
+    }
+
+    /**
+     * Remove um observador registrado antes.
+     * @param observador O observador a ser removido.
+     */
+    public void removerObservador(ObservadorArvore observador) {
+        registradores = semObservador(registradores, observador);
+        observadores = semObservador(observadores, observador);
+    }
+
+    /**
+     * @return true se algum observador, além do cache de produtos, estiver registrado.
+     */
+    public boolean temObservadores() {
+        return registradores.length > 0 || observadores.length > ((cache != null) ? 1 : 0);
+    }
+
+    /**
+     * Liga, troca ou desliga o cache dos produtos mais buscados ({@link CacheProdutos}),
+     * consultado por {@link #buscar} antes da árvore. Vale a pena quando poucos SKUs
+     * concentram as buscas. Com a {@link ArvoreAVLConcorrente}, chame dentro de {@code escrever}.
+     * @param capacidade Quantos produtos o cache guarda; 0 desliga o cache.
+     */
+    public void usarCache(int capacidade) {
+        if (cache != null) removerObservador(cache);
+        cache = (capacidade > 0) ? new CacheProdutos(capacidade) : null;
+        if (cache != null) adicionarObservador(cache);
+    }
+
+    /**
+     * @return O cache de produtos, ou null se ele estiver desligado.
+     */
+    public CacheProdutos getCache() {
+        return cache;
+    }
+
+    /**
+     * Busca um produto na árvore pelo seu ID, descendo iterativamente a partir da raiz.
+     * Se o cache estiver ligado, ele é consultado antes, e o produto achado na árvore
+     * é oferecido a ele.
      * @param id O ID do produto a ser buscado.
      * @return O objeto Produto se encontrado, caso contrário, null.
      */
     public Produto buscar(int id) {
-        return buscarRecursivo(this.raiz, id);
+        long inicio = Metricas.inicio();
+        CacheProdutos c = cache;
+        Produto produto = (c == null) ? produtos.obter(id) : buscarComCache(c, id);
+        Metricas.BUSCA.registrarDesde(inicio);
+        return produto;
     }
 
     /**
-     * Insere um novo produto na árvore.
+     * Insere um novo produto na árvore em uma única descida.
+     * A detecção de ID duplicado acontece na mesma passada da inserção.
      * @param produto O produto a ser inserido.
-     * @throws RuntimeException Se já existir um produto com o mesmo ID na árvore.
+     * @return true se o produto foi inserido, false se já existir um produto com o mesmo ID.
      */
-    public void inserir(Produto produto) {
-        if (buscar(produto.getId()) != null) {
-            throw new RuntimeException("Já existe um produto cadastrado com o ID " + produto.getId());
+    public boolean inserir(Produto produto) {
+        long inicio = Metricas.inicio();
+        try {
+            int id = produto.getId();
+            if (registradores.length > 0) {
+                // O diário só registra o que vai acontecer: o ID não pode existir ainda.
+                if (produtos.contem(id)) return false;
+                registrar(Operacao.Tipo.INSERIR, null, produto);
+            }
+            if (!produtos.inserir(id, produto)) return false; // Produto com mesmo ID já existe
+
+            alteracoes++;
+            lancar(notificar(Operacao.Tipo.INSERIR, null, produto, null));
+            return true;
+        } finally {
+            Metricas.INSERCAO.registrarDesde(inicio);
         }
-        this.raiz = inserirRecursivo(this.raiz, produto);
     }
 
     /**
-     * Remove um produto da árvore pelo seu ID.
+     * Altera um produto existente sem remover e reinserir (sem rotações). A alteração é
+     * feita em uma cópia, que então toma o lugar do produto no mesmo nó: o objeto que
+     * estava na árvore nunca é alterado, então quem o recebeu antes (leituras sem trava
+     * da {@link ArvoreAVLConcorrente}, o cache, a tabela) não vê um produto pela metade.
+     * Os observadores recebem o produto anterior e o novo.
+     * @param id O ID do produto.
+     * @param alteracao O que mudar no produto (ex.: {@code p -> p.setPreco(novoPreco)}).
+     * @return O novo produto guardado na árvore, ou null se não existir produto com o ID.
+     * @throws IllegalArgumentException Se a alteração mudar o ID. Se a alteração
+     *         lançar qualquer exceção, nada é alterado.
+     */
+    public Produto atualizar(int id, Consumer<Produto> alteracao) {
+        Produto anterior = produtos.obter(id);
+        if (anterior == null) return null;
+
+        Produto atual = copiar(anterior);
+        alteracao.accept(atual);
+        if (atual.getId() != id) throw new IllegalArgumentException("O ID de um produto não pode ser alterado.");
+
+        registrar(Operacao.Tipo.ATUALIZAR, anterior, atual);
+        produtos.colocar(id, atual);
+        alteracoes++;
+        lancar(notificar(Operacao.Tipo.ATUALIZAR, anterior, atual, null));
+        return atual;
+    }
+
+    /**
+     * Soma uma quantidade (positiva para entrada, negativa para saída) ao estoque de um
+     * produto, em uma única descida. A verificação de saldo e a alteração acontecem
+     * juntas, então com a {@link ArvoreAVLConcorrente} duas saídas simultâneas não
+     * deixam o estoque negativo.
+     * @param id O ID do produto.
+     * @param delta A quantidade a somar.
+     * @return O novo produto guardado na árvore, ou null se não existir produto com o ID.
+     * @throws IllegalArgumentException Se o estoque ficaria negativo; nesse caso nada é alterado.
+     */
+    public Produto ajustarQuantidade(int id, int delta) {
+        return atualizar(id, p -> {
+            long quantidade = (long) p.getQuantidade() + delta;
+            if (quantidade < 0) {
+                throw new IllegalArgumentException("Estoque insuficiente para o produto " + id + ": há "
+                        + p.getQuantidade() + " e a saída é de " + (-delta) + ".");
+            }
+            p.setQuantidade(Math.toIntExact(quantidade));
+        });
+    }
+
+    /**
+     * Aplica um lote de operações (recebimentos, contagens de inventário, importações),
+     * com o mesmo efeito de aplicá-las uma a uma: operações sem efeito (inserir um ID
+     * existente, alterar ou remover um ID ausente, saída maior que o saldo) são ignoradas.
+     * Operações do mesmo ID são aplicadas na ordem do lote.
+     *
+     * O lote é ordenado por ID antes de ser aplicado. Lotes pequenos em relação à árvore
+     * são aplicados um a um nessa ordem (descidas consecutivas passam pelos mesmos nós,
+     * que já estão no cache). Lotes grandes são mesclados com o percurso em ordem da
+     * árvore e a árvore é remontada balanceada em O(n + k), trocada de uma vez no fim.
+     * Os observadores são avisados de cada operação com efeito, como nas chamadas individuais.
+     * Com a {@link ArvoreAVLConcorrente}, o lote inteiro acontece sob uma só trava de escrita.
+     * @param lote As operações.
+     * @return Quantas operações tiveram efeito.
+     */
+    public int aplicarLote(List<Operacao> lote) {
+        Operacao[] ordenadas = lote.toArray(new Operacao[0]);
+        // Ordenação estável: operações do mesmo ID mantêm a ordem do lote.
+        Arrays.sort(ordenadas, Comparator.comparingInt(Operacao::id));
+
+        if ((long) ordenadas.length * FRACAO_RECONSTRUCAO >= tamanho()) return mesclar(ordenadas);
+
+        int aplicadas = 0;
+        RuntimeException falha = null;
+        for (Operacao operacao : ordenadas) {
+            long antes = alteracoes;
+            try {
+                if (aplicar(operacao)) aplicadas++;
+            } catch (RuntimeException e) {
+                if (falha != null) e.addSuppressed(falha);
+                if (alteracoes == antes) throw e; // Recusada antes de alterar a árvore: o lote para aqui
+                aplicadas++; // Aplicada, só um observador falhou: o lote continua
+                falha = e;
+            }
+        }
+        lancar(falha);
+        return aplicadas;
+    }
+
+    /**
+     * Une outro cadastro a este (ex.: o catálogo de um fornecedor): acrescenta os produtos
+     * da outra árvore cujo ID ainda não existe aqui. Os produtos que existem nas duas
+     * continuam como estão nesta. A outra árvore não muda, e os produtos acrescentados
+     * passam a ser compartilhados pelas duas.
+     *
+     * Usa join/split da AVL em paralelo: O(m log(n/m + 1)) para árvores de tamanhos m <= n,
+     * em vez de uma inserção por produto. Os observadores são avisados de cada inserção.
+     * O diário registra cada inserção antes de a árvore mudar; se um registro falhar, só
+     * os produtos já registrados são acrescentados, e a falha é lançada no fim.
+     * Com a {@link ArvoreAVLConcorrente}, chame dentro de {@code escrever}.
+     * @param outra A árvore a unir.
+     * @return Quantos produtos foram acrescentados.
+     */
+    public int uniao(ArvoreAVL outra) {
+        List<Produto> inseridos = new ArrayList<>();
+        if (registradores.length > 0 || observadores.length > 0) {
+            for (Produto p : outra.produtos) {
+                if (!produtos.contem(p.getId())) inseridos.add(p);
+            }
+        }
+        RuntimeException falha = registrarConjunto(Operacao.Tipo.INSERIR, inseridos);
+
+        int acrescentados = produtos.uniao((falha == null) ? outra.produtos : mapaDe(inseridos));
+        alteracoes += acrescentados;
+        for (Produto p : inseridos) falha = notificar(Operacao.Tipo.INSERIR, null, p, falha);
+        lancar(falha);
+        return acrescentados;
+    }
+
+    /**
+     * Mantém só os produtos cujo ID também existe na outra árvore (ex.: os encontrados na
+     * contagem física). A outra árvore não muda. Mesma técnica e custo de {@link #uniao};
+     * os observadores são avisados de cada remoção. Se o diário falhar, só os produtos
+     * já registrados são removidos, como na união.
+     * @param outra A árvore com os IDs a manter.
+     * @return Quantos produtos foram removidos.
+     */
+    public int intersecao(ArvoreAVL outra) {
+        List<Produto> removidos = new ArrayList<>();
+        if (registradores.length > 0 || observadores.length > 0) {
+            for (Produto p : produtos) {
+                if (!outra.produtos.contem(p.getId())) removidos.add(p);
+            }
+        }
+        RuntimeException falha = registrarConjunto(Operacao.Tipo.REMOVER, removidos);
+
+        int retirados = (falha == null) ? produtos.intersecao(outra.produtos) : produtos.diferenca(mapaDe(removidos));
+        notificarRemocoes(retirados, removidos, falha);
+        return retirados;
+    }
+
+    /**
+     * Remove os produtos cujo ID existe na outra árvore (ex.: os descontinuados pelo
+     * fornecedor). A outra árvore não muda. Mesma técnica e custo de {@link #uniao};
+     * os observadores são avisados de cada remoção. Se o diário falhar, só os produtos
+     * já registrados são removidos, como na união.
+     * @param outra A árvore com os IDs a remover.
+     * @return Quantos produtos foram removidos.
+     */
+    public int diferenca(ArvoreAVL outra) {
+        List<Produto> removidos = new ArrayList<>();
+        if (registradores.length > 0 || observadores.length > 0) {
+            for (Produto p : outra.produtos) {
+                Produto existente = produtos.obter(p.getId());
+                if (existente != null) removidos.add(existente);
+            }
+        }
+        RuntimeException falha = registrarConjunto(Operacao.Tipo.REMOVER, removidos);
+
+        int retirados = produtos.diferenca((falha == null) ? outra.produtos : mapaDe(removidos));
+        notificarRemocoes(retirados, removidos, falha);
+        return retirados;
+    }
+
+    /**
+     * Tira desta árvore os produtos com ID maior ou igual ao informado e os devolve em
+     * uma nova árvore, em O(log n) (split da AVL). Os observadores não são avisados: os
+     * produtos mudam de árvore, não saem do estoque. A nova árvore recebe os mesmos
+     * observadores (menos o cache) e começa sem cache; o cache desta é esvaziado.
+     * Com a {@link ArvoreAVLConcorrente}, chame dentro de {@code escrever}.
+     * @param id O primeiro ID da nova árvore.
+     * @return Uma árvore com os produtos de ID >= id.
+     */
+    public ArvoreAVL separar(int id) {
+        ArvoreAVL maiores = new ArvoreAVL(produtos.separar(id));
+        for (ObservadorArvore o : registradores) maiores.adicionarObservador(o);
+        for (ObservadorArvore o : observadores) {
+            if (o != cache) maiores.adicionarObservador(o);
+        }
+        if (cache != null) cache.limpar();
+        return maiores;
+    }
+
+    /**
+     * Acrescenta ao fim desta árvore todos os produtos de outra, em O(log n) (join da AVL),
+     * sem avisar os observadores. A outra árvore fica vazia, e os caches das duas são esvaziados.
+     * Com a {@link ArvoreAVLConcorrente}, chame dentro de {@code escrever} das duas.
+     * @param maiores Uma árvore cujos IDs são todos maiores que os desta.
+     * @throws IllegalArgumentException Se os IDs das duas árvores se intercalarem.
+     */
+    public void concatenar(ArvoreAVL maiores) {
+        produtos.concatenar(maiores.produtos);
+        if (cache != null) cache.limpar();
+        if (maiores.cache != null) maiores.cache.limpar();
+    }
+
+    /**
+     * Remove um produto da árvore pelo seu ID em uma única descida.
      * @param id O ID do produto a ser removido.
      * @return true se o produto foi removido com sucesso, false se o produto não foi encontrado.
      */
     public boolean remover(int id) {
-        if (buscar(id) == null) return false;
-        this.raiz = removerRecursivo(this.raiz, id);
-        return true;
+        long inicio = Metricas.inicio();
+        try {
+            if (registradores.length > 0) {
+                Produto existente = produtos.obter(id);
+                if (existente == null) return false;
+                registrar(Operacao.Tipo.REMOVER, existente, null);
+            }
+            Produto removido = produtos.remover(id);
+            if (removido == null) return false;
+
+            alteracoes++;
+            lancar(notificar(Operacao.Tipo.REMOVER, removido, null, null));
+            return true;
+        } finally {
+            Metricas.REMOCAO.registrarDesde(inicio);
+        }
+    }
+
+    /**
+     * Tira um instantâneo da árvore em O(1), sem copiar nós nem produtos (ver
+     * {@link MapaAVLInt#instantaneo()}): uma nova árvore, sem observadores nem cache,
+     * com os produtos de agora. As escritas seguintes nesta árvore não aparecem nele,
+     * então ele pode ser salvo ou exibido sem trava enquanto o estoque muda. Os produtos
+     * são compartilhados, o que é seguro porque um produto guardado nunca é alterado
+     * (ver {@link #atualizar}). Com a {@link ArvoreAVLConcorrente}, use {@link ArvoreAVLConcorrente#instantaneo()}.
+     * @return Uma árvore independente com o conteúdo atual.
+     */
+    public ArvoreAVL instantaneo() {
+        return new ArvoreAVL(produtos.instantaneo());
     }
 
     /**
      * Retorna uma lista com todos os produtos da árvore ordenados pelo ID.
      * Útil para exibir na tabela da interface gráfica e para salvar em arquivo.
+     * Quem só precisa de parte dos produtos deve preferir {@link #iterator()},
+     * {@link #intervalo(int, int)} ou {@link #pagina(int, int)}, que não copiam a árvore.
      * @return Uma lista ordenada de produtos.
      */
     public List<Produto> listar() {
-        List<Produto> lista = new ArrayList<>();
-        percorrerEmOrdem(this.raiz, lista);
+        List<Produto> lista = new ArrayList<>(tamanho());
+        spliterator().forEachRemaining(lista::add);
         return lista;
     }
 
-    // ###### MÉTODOS AUXILIARES ######
-
     /**
-     * Retorna a altura de um nó.
-     * @param n O nó para calcular a altura.
-     * @return A altura do nó, ou 0 se o nó for nulo.
+     * Percorre os produtos em ordem crescente de ID sob demanda, usando uma pilha
+     * explícita em vez de recursão. A árvore não deve ser alterada durante o percurso.
+     * @return Um iterador sobre os produtos.
      */
-    private int altura(No n) {
-        return (n == null) ? 0 : n.getAltura();
+    @Override
+    public Iterator<Produto> iterator() {
+        return produtos.iterator();
     }
 
     /**
-     * Calcula o fator de balanceamento de um nó.
-     * @param n O nó para calcular o fator de balanceamento.
-     * @return O fator de balanceamento do nó.
+     * Retorna um Spliterator ordenado sobre todos os produtos. Ele se divide nas
+     * fronteiras das subárvores, então um stream paralelo distribui o trabalho
+     * entre os núcleos sem copiar a árvore.
+     * @return Um Spliterator sobre os produtos.
      */
-    private int getFatorBalanceamento(No n) {
-        return (n == null) ? 0 : altura(n.getEsquerda()) - altura(n.getDireita());
+    @Override
+    public Spliterator<Produto> spliterator() {
+        return produtos.spliterator();
     }
 
     /**
-     * Encontra o nó com o menor valor (mais à esquerda) a partir de um nó.
-     * @param atual O nó inicial da busca.
-     * @return O nó com o menor valor.
+     * Retorna um stream sequencial e preguiçoso sobre os produtos, em ordem de ID.
+     * @return Um stream dos produtos.
      */
-    private No encontrarMenorNo(No atual) {
-        while (atual.getEsquerda() != null) {
-            atual = atual.getEsquerda();
-        }
-        return atual;
+    public Stream<Produto> stream() {
+        return StreamSupport.stream(spliterator(), false);
     }
 
     /**
-     * Atualiza a altura de um nó com base na altura de seus filhos.
-     * @param no O nó a ter sua altura atualizada.
+     * Retorna um stream paralelo sobre os produtos, útil para agregações
+     * (valor total do estoque, contagens) em catálogos grandes.
+     * @return Um stream paralelo dos produtos.
      */
-    private void atualizarAltura(No no) {
-        if (no != null)
-            no.setAltura(1 + Math.max(altura(no.getEsquerda()), altura(no.getDireita())));
+    public Stream<Produto> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
     }
 
     /**
-     * Realiza o balanceamento de um nó, aplicando as rotações necessárias.
-     * @param no O nó a ser balanceado.
-     * @return O nó balanceado (a nova raiz da subárvore).
+     * Retorna um stream preguiçoso com os produtos de ID no intervalo fechado
+     * [idInicial, idFinal], em ordem. Só os nós do intervalo são visitados,
+     * além de um caminho de O(log n) até o primeiro deles.
+     * @param idInicial O menor ID do intervalo.
+     * @param idFinal O maior ID do intervalo.
+     * @return Um stream dos produtos do intervalo (pode ser usado em paralelo).
      */
-    private No balancear(No no) {
-        if (no == null) return null;
+    public Stream<Produto> intervalo(int idInicial, int idFinal) {
+        return StreamSupport.stream(produtos.spliterator(idInicial, idFinal), false);
+    }
 
-        atualizarAltura(no);
-        int saldo = getFatorBalanceamento(no);
+    /**
+     * Retorna a quantidade de produtos na árvore, em O(1).
+     * @return O número de produtos armazenados.
+     */
+    public int tamanho() {
+        return produtos.tamanho();
+    }
 
-        // Rotação Simples à Direita
-        if (saldo > 1 && getFatorBalanceamento(no.getEsquerda()) >= 0)
-            return rotacaoDireita(no);
+    /**
+     * Retorna a altura da árvore (0 se vazia), em O(1).
+     * @return A quantidade de nós no caminho mais longo da raiz até uma folha.
+     */
+    public int altura() {
+        return produtos.altura();
+    }
 
-        // Rotação Dupla à Direita (Esquerda-Direita)
-        if (saldo > 1 && getFatorBalanceamento(no.getEsquerda()) < 0) {
-            no.setEsquerda(rotacaoEsquerda(no.getEsquerda()));
-            return rotacaoDireita(no);
-        }
+    /**
+     * Retorna quantas alterações (inserções, atualizações e remoções bem-sucedidas) a árvore já sofreu.
+     * Se o valor não mudou desde o último salvamento, não há nada novo para salvar.
+     * @return O contador de alterações.
+     */
+    public long getAlteracoes() {
+        return alteracoes;
+    }
 
-        // Rotação Simples à Esquerda
-        if (saldo < -1 && getFatorBalanceamento(no.getDireita()) <= 0)
-            return rotacaoEsquerda(no);
+    // ###### ESTATÍSTICAS DE ORDEM ######
 
-        // Rotação Dupla à Esquerda (Direita-Esquerda)
-        if (saldo < -1 && getFatorBalanceamento(no.getDireita()) > 0) {
-            no.setDireita(rotacaoDireita(no.getDireita()));
-            return rotacaoEsquerda(no);
-        }
+    /**
+     * Calcula a posição (rank) de um ID na ordem crescente dos produtos.
+     * @param id O ID de referência (não precisa existir na árvore).
+     * @return A quantidade de produtos com ID menor que o informado.
+     */
+    public int rank(int id) {
+        return produtos.rank(id);
+    }
 
-        return no;
+    /**
+     * Retorna o k-ésimo produto na ordem crescente de ID.
+     * @param k A posição desejada, começando em 0.
+     * @return O produto na posição k, ou null se k estiver fora de [0, tamanho()).
+     */
+    public Produto select(int k) {
+        return produtos.select(k);
     }
 
-    // ###### ROTAÇÕES ######
+    /**
+     * Conta quantos produtos têm ID no intervalo fechado [idInicial, idFinal].
+     * @param idInicial O menor ID do intervalo.
+     * @param idFinal O maior ID do intervalo.
+     * @return A quantidade de produtos no intervalo (0 se idInicial > idFinal).
+     */
+    public int contarIntervalo(int idInicial, int idFinal) {
+        return produtos.contarIntervalo(idInicial, idFinal);
+    }
 
     /**
-     * Realiza uma rotação simples à direita.
-     * @param y O nó pivô da rotação.
-     * @return A nova raiz da subárvore após a rotação.
+     * Retorna uma página de produtos na ordem crescente de ID, em O(log n + limite),
+     * sem materializar a árvore inteira.
+     * @param deslocamento A posição do primeiro produto da página (começando em 0).
+     * @param limite A quantidade máxima de produtos na página.
+     * @return Os produtos da página (vazia se o deslocamento passar do fim).
      */
-    private No rotacaoDireita(No y) {
-        No x = y.getEsquerda();
-        No T2 = x.getDireita();
+    public List<Produto> pagina(int deslocamento, int limite) {
+        return produtos.pagina(deslocamento, limite);
+    }
 
-        x.setDireita(y);
-        y.setEsquerda(T2);
+    /**
+     * Variante de buscar usada pela leitura otimista (sem trava) da {@link ArvoreAVLConcorrente}.
+     * Ver {@link MapaAVLInt#obterOtimista(int)}: o resultado só vale se o chamador
+     * validar depois que nenhuma escrita aconteceu durante a leitura.
+     * @param id O ID do produto a ser buscado.
+     * @return O Produto encontrado, ou null (que também pode indicar uma leitura inconsistente).
+     */
+    Produto buscarOtimista(int id) {
+        return produtos.obterOtimista(id);
+    }
 
-        atualizarAltura(y);
-        atualizarAltura(x);
+    // ###### MÉTODOS AUXILIARES ######
 
-        return x;
+    /**
+     * Consulta o cache e, se faltar, a árvore, oferecendo ao cache o produto achado.
+     */
+    private Produto buscarComCache(CacheProdutos c, int id) {
+        Produto produto = c.obter(id);
+        if (produto != null) return produto;
+
+        long versao = c.versao();
+        produto = produtos.obter(id);
+        if (produto != null) c.admitir(id, produto, versao);
+        return produto;
     }
 
     /**
-     * Realiza uma rotação simples à esquerda.
-     * @param x O nó pivô da rotação.
-     * @return A nova raiz da subárvore após a rotação.
+     * Aplica uma operação do lote pelos métodos individuais.
+     * @return true se a operação teve efeito.
      */
-    private No rotacaoEsquerda(No x) {
-        No y = x.getDireita();
-        No T2 = y.getEsquerda();
-
-        y.setEsquerda(x);
-        x.setDireita(T2);
+    private boolean aplicar(Operacao operacao) {
+        return switch (operacao.tipo()) {
+            case INSERIR -> inserir(operacao.produto());
+            case REMOVER -> remover(operacao.id());
+            case ATUALIZAR -> atualizar(operacao.id(), p -> copiarDados(operacao.produto(), p)) != null;
+            case AJUSTAR -> {
+                long antes = alteracoes;
+                try {
+                    yield ajustarQuantidade(operacao.id(), operacao.delta()) != null;
+                } catch (IllegalArgumentException | ArithmeticException e) {
+                    if (alteracoes != antes) throw e; // Veio de um observador, não do saldo
+                    yield false; // Saldo insuficiente: a operação é ignorada
+                }
+            }
+        };
+    }
 
-        atualizarAltura(x);
-        atualizarAltura(y);
+    /**
+     * Aplica um lote já ordenado mesclando-o com os produtos em ordem de ID, e remonta
+     * a árvore com o resultado. Se o diário recusar uma operação, ela e as seguintes não
+     * são aplicadas, mas a árvore ainda é remontada com tudo o que já foi aplicado (e avisado).
+     * A falha de um observador comum não interrompe o lote; é lançada no fim.
+     * @return Quantas operações tiveram efeito.
+     */
+    private int mesclar(Operacao[] ordenadas) {
+        Produto[] resultado = new Produto[tamanho() + ordenadas.length];
+        int quantidade = 0;
+        int aplicadas = 0;
+        RuntimeException falha = null;
+        RuntimeException falhaObservador = null;
+
+        Iterator<Produto> existentes = produtos.iterator();
+        Produto existente = existentes.hasNext() ? existentes.next() : null;
+        int i = 0;
+        while (i < ordenadas.length) {
+            int id = ordenadas[i].id();
+            while (existente != null && existente.getId() < id) {
+                resultado[quantidade++] = existente;
+                existente = existentes.hasNext() ? existentes.next() : null;
+            }
+            Produto atual = null;
+            if (existente != null && existente.getId() == id) {
+                atual = existente;
+                existente = existentes.hasNext() ? existentes.next() : null;
+            }
+
+            // Aplica em sequência as operações deste ID sobre o estado atual dele.
+            for (; i < ordenadas.length && ordenadas[i].id() == id; i++) {
+                if (falha != null) continue;
+                Operacao operacao = ordenadas[i];
+                Operacao.Tipo tipo = operacao.tipo();
+                Produto novo;
+                switch (tipo) {
+                    case INSERIR -> {
+                        if (atual != null) continue;
+                        novo = operacao.produto();
+                    }
+                    case REMOVER -> {
+                        if (atual == null) continue;
+                        novo = null;
+                    }
+                    default -> {
+                        if (atual == null) continue;
+                        long novaQuantidade = (long) atual.getQuantidade() + operacao.delta();
+                        if (tipo == Operacao.Tipo.AJUSTAR
+                                && (novaQuantidade < 0 || novaQuantidade > Integer.MAX_VALUE)) continue;
+
+                        novo = copiar(atual); // Como em atualizar, o produto anterior não é alterado
+                        if (tipo == Operacao.Tipo.ATUALIZAR) copiarDados(operacao.produto(), novo);
+                        else novo.setQuantidade((int) novaQuantidade);
+                    }
+                }
+
+                try {
+                    registrar(tipo, atual, novo);
+                } catch (RuntimeException e) {
+                    falha = e;
+                    continue;
+                }
+                Produto anterior = atual;
+                atual = novo;
+                aplicadas++;
+                alteracoes++;
+                falhaObservador = notificar(tipo, anterior, novo, falhaObservador);
+            }
+            if (atual != null) resultado[quantidade++] = atual;
+        }
+        while (existente != null) {
+            resultado[quantidade++] = existente;
+            existente = existentes.hasNext() ? existentes.next() : null;
+        }
 
-        return y;
+        produtos = MapaAVLInt.deOrdenados(resultado, quantidade, Produto::getId);
+        if (falha != null && falhaObservador != null) falha.addSuppressed(falhaObservador);
+        lancar((falha != null) ? falha : falhaObservador);
+        return aplicadas;
     }
 
-    // ###### MÉTODOS DE RECURSÃO ######
+    /**
+     * Registra no diário, um a um e em ordem de ID, os produtos que uma operação de conjunto
+     * vai inserir ou remover. Se um registro falhar, a lista é cortada nos já registrados:
+     * só eles podem ser aplicados, para o diário descrever exatamente o que a árvore fez.
+     * @param produtos Os produtos da operação, em ordem de ID (cortada em caso de falha).
+     * @return A falha do registro, ou null se todos foram registrados.
+     */
+    private RuntimeException registrarConjunto(Operacao.Tipo tipo, List<Produto> produtos) {
+        if (registradores.length == 0) return null;
+        for (int i = 0; i < produtos.size(); i++) {
+            Produto p = produtos.get(i);
+            try {
+                if (tipo == Operacao.Tipo.INSERIR) registrar(tipo, null, p);
+                else registrar(tipo, p, null);
+            } catch (RuntimeException e) {
+                produtos.subList(i, produtos.size()).clear();
+                return e;
+            }
+        }
+        return null;
+    }
 
     /**
-     * Método recursivo para inserir um produto na árvore de forma balanceada.
-     * @param atual   O nó atual na recursão.
-     * @param produto O produto a ser inserido.
-     * @return O nó raiz da subárvore modificada.
+     * Monta um mapa com os produtos de uma lista em ordem de ID, em O(n).
      */
-    private No inserirRecursivo(No atual, Produto produto) {
-        if (atual == null) return new No(produto);
+    private static MapaAVLInt<Produto> mapaDe(List<Produto> produtos) {
+        return MapaAVLInt.deOrdenados(produtos.toArray(new Produto[0]), produtos.size(), Produto::getId);
+    }
 
-        if (produto.getId() < atual.getProduto().getId())
-            atual.setEsquerda(inserirRecursivo(atual.getEsquerda(), produto));
-        else if (produto.getId() > atual.getProduto().getId())
-            atual.setDireita(inserirRecursivo(atual.getDireita(), produto));
-        else return atual; // Produto com mesmo ID já existe
+    /**
+     * Conta as remoções de uma operação de conjunto e avisa os observadores.
+     * @param falha A falha do registro no diário, ou null; é lançada no fim, com as dos observadores.
+     */
+    private void notificarRemocoes(int retirados, List<Produto> removidos, RuntimeException falha) {
+        alteracoes += retirados;
+        for (Produto p : removidos) falha = notificar(Operacao.Tipo.REMOVER, p, null, falha);
+        lancar(falha);
+    }
 
-        return balancear(atual);
+    /**
+     * Avisa os observadores que registram a operação antes dela (o diário). Uma exceção
+     * aqui cancela a operação: quem chama ainda não alterou a árvore.
+     */
+    private void registrar(Operacao.Tipo tipo, Produto anterior, Produto atual) {
+        for (ObservadorArvore o : registradores) avisar(o, tipo, anterior, atual);
     }
 
     /**
-     * Método recursivo para remover um produto da árvore de forma balanceada.
-     * @param atual O nó atual na recursão.
-     * @param id    O ID do produto a ser removido.
-     * @return O nó raiz da subárvore modificada.
+     * Avisa os demais observadores de uma operação já feita. Todos são avisados mesmo que
+     * algum falhe; as falhas são acumuladas (a primeira, com as outras como suprimidas).
+     * @param falha A falha acumulada até aqui, ou null.
+     * @return A falha acumulada, ou null se nenhum observador falhou.
      */
-    private No removerRecursivo(No atual, int id) {
-        if (atual == null) return null;
+    private RuntimeException notificar(Operacao.Tipo tipo, Produto anterior, Produto atual, RuntimeException falha) {
+        for (ObservadorArvore o : observadores) {
+            try {
+                avisar(o, tipo, anterior, atual);
+            } catch (RuntimeException e) {
+                if (falha == null) falha = e;
+                else falha.addSuppressed(e);
+            }
+        }
+        return falha;
+    }
+
+    private static void avisar(ObservadorArvore o, Operacao.Tipo tipo, Produto anterior, Produto atual) {
+        switch (tipo) {
+            case INSERIR -> o.aoInserir(atual);
+            case REMOVER -> o.aoRemover(anterior);
+            default -> o.aoAtualizar(anterior, atual);
+        }
+    }
 
-        if (id < atual.getProduto().getId())
-            atual.setEsquerda(removerRecursivo(atual.getEsquerda(), id));
-        else if (id > atual.getProduto().getId())
-            atual.setDireita(removerRecursivo(atual.getDireita(), id));
-        else {
-            // Nó com um ou nenhum filho
-            if (atual.getEsquerda() == null) return atual.getDireita();
-            if (atual.getDireita() == null) return atual.getEsquerda();
+    private static void lancar(RuntimeException falha) {
+        if (falha != null) throw falha;
+    }
 
-            // Nó com dois filhos: pega o sucessor in-order (menor na subárvore direita)
-            No sucessor = encontrarMenorNo(atual.getDireita());
-            atual.setProduto(sucessor.getProduto());
-            atual.setDireita(removerRecursivo(atual.getDireita(), sucessor.getProduto().getId()));
+    private static ObservadorArvore[] semObservador(ObservadorArvore[] lista, ObservadorArvore observador) {
+        for (int i = 0; i < lista.length; i++) {
+            if (lista[i] == observador) {
+                ObservadorArvore[] restantes = new ObservadorArvore[lista.length - 1];
+                System.arraycopy(lista, 0, restantes, 0, i);
+                System.arraycopy(lista, i + 1, restantes, i, restantes.length - i);
+                return restantes;
+            }
         }
-        return balancear(atual);
+        return lista;
     }
 
     /**
-     * Método recursivo para buscar um produto na árvore.
-     * @param atual O nó atual na recursão.
-     * @param id    O ID do produto a ser buscado.
-     * @return O Produto se encontrado, caso contrário, null.
+     * Copia nome, preço e quantidade (não o ID) de um produto para outro.
      */
-    private Produto buscarRecursivo(No atual, int id) {
-        if (atual == null) return null;
-        if (id == atual.getProduto().getId()) return atual.getProduto();
+    private static void copiarDados(Produto origem, Produto destino) {
+        destino.setNome(origem.getNome());
+        destino.setPreco(origem.getPreco());
+        destino.setQuantidade(origem.getQuantidade());
+    }
+
+    private static Produto copiar(Produto p) {
+        return new Produto(p.getId(), p.getNome(), p.getPreco(), p.getQuantidade());
+    }
 
-        return (id < atual.getProduto().getId())
-                ? buscarRecursivo(atual.getEsquerda(), id)
-                : buscarRecursivo(atual.getDireita(), id);
+    /**
+     * Verifica se os IDs estão em ordem estritamente crescente (sem repetições).
+     */
+    private static boolean estritamenteCrescente(Produto[] produtos) {
+        for (int i = 1; i < produtos.length; i++) {
+            if (produtos[i - 1].getId() >= produtos[i].getId()) return false;
+        }
+        return true;
     }
 
     /**
-     * Método auxiliar recursivo para percorrer a árvore em ordem (In-Order).
-     * @param no O nó atual.
-     * @param lista A lista onde os produtos serão adicionados.
+     * Compacta um array ordenado por ID mantendo a primeira ocorrência de cada ID.
+     * @return A quantidade de produtos distintos no início do array.
      */
-    private void percorrerEmOrdem(No no, List<Produto> lista) {
-        if (no != null) {
-            percorrerEmOrdem(no.getEsquerda(), lista); // Visita filhos menores
-            lista.add(no.getProduto());                // Adiciona o atual
-            percorrerEmOrdem(no.getDireita(), lista);  // Visita filhos maiores
+    private static int removerRepetidos(Produto[] ordenados) {
+        if (ordenados.length == 0) return 0;
+        int distintos = 1;
+        for (int i = 1; i < ordenados.length; i++) {
+            if (ordenados[i].getId() != ordenados[distintos - 1].getId()) {
+                ordenados[distintos++] = ordenados[i];
+            }
         }
+        return distintos;
     }
-}
\ No newline at end of file
+}
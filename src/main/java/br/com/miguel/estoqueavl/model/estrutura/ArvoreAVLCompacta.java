@@ -0,0 +1,343 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Classe que representa uma AVL armazenada em arrays paralelos
+
+/**
+ * Implementação alternativa da Árvore AVL de Produtos, com a mesma API pública
+ * de {@link ArvoreAVL} (buscar, inserir, remover e listar).
+ *
+ * Em vez de um objeto de nó por produto, cada nó é uma posição (slot) em
+ * arrays paralelos: o ID, os índices dos filhos e a altura ficam em {@code int[]},
+ * e só a referência ao Produto fica em um {@code Produto[]}. A busca compara IDs
+ * direto no array, sem seguir a referência do Produto, e os slots liberados por
+ * remoções são reaproveitados através de uma lista livre.
+ *
+ * Memória por produto (JVM 64 bits com compressed oops, sem contar o Produto):
+ * ArvoreAVL usa um nó de 40 bytes (com o ID copiado nele); esta versão usa 20 bytes por slot
+ * (4 de ID + 8 de filhos + 4 de altura + 4 da referência), mais a folga do
+ * crescimento dos arrays.
+ */
+public class ArvoreAVLCompacta {
+
+    /** Índice que representa a ausência de nó (equivale ao null da ArvoreAVL). */
+    private static final int NULO = 0;
+
+    private static final int CAPACIDADE_INICIAL = 16;
+    private static final int ALTURA_MAXIMA = 64;
+
+    // Arrays paralelos: a posição i de cada array descreve o nó i.
+    // O slot 0 é a sentinela NULO, com altura 0.
+    private int[] ids;
+    private int[] esquerda;
+    private int[] direita;
+    private int[] altura;
+    private Produto[] produtos;
+
+    private int raiz = NULO;
+    private int proximoSlot = 1;   // Primeiro slot nunca usado
+    private int livre = NULO;      // Cabeça da lista livre (encadeada por esquerda[])
+    private int tamanho = 0;
+
+    // Pilha reaproveitada com os slots visitados na descida de inserir/remover.
+    private final int[] caminho = new int[ALTURA_MAXIMA];
+
+    // Construtor da árvore compacta. Inicializa os arrays com a capacidade padrão.
+    public ArvoreAVLCompacta() {
+        this(CAPACIDADE_INICIAL);
+    }
+
+    /**
+     * Cria a árvore já com espaço para uma quantidade esperada de produtos,
+     * evitando cópias dos arrays durante uma carga grande.
+     * @param capacidade A quantidade de produtos esperada.
+     */
+    public ArvoreAVLCompacta(int capacidade) {
+        int slots = Math.max(capacidade, 1) + 1; // +1 pela sentinela
+        this.ids = new int[slots];
+        this.esquerda = new int[slots];
+        this.direita = new int[slots];
+        this.altura = new int[slots];
+        this.produtos = new Produto[slots];
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    /**
+     * Busca um produto na árvore pelo seu ID.
+     * @param id O ID do produto a ser buscado.
+     * @return O objeto Produto se encontrado, caso contrário, null.
+     */
+    public Produto buscar(int id) {
+        int atual = raiz;
+        while (atual != NULO) {
+            int idAtual = ids[atual];
+            if (id == idAtual) return produtos[atual];
+            atual = (id < idAtual) ? esquerda[atual] : direita[atual];
+        }
+        return null;
+    }
+
+    /**
+     * Insere um novo produto na árvore.
+     * @param produto O produto a ser inserido.
+     * @return true se o produto foi inserido, false se já existir um produto com o mesmo ID.
+     */
+    public boolean inserir(Produto produto) {
+        int id = produto.getId();
+        if (raiz == NULO) {
+            raiz = novoSlot(produto);
+            return true;
+        }
+
+        int profundidade = 0;
+        int atual = raiz;
+        while (true) {
+            caminho[profundidade++] = atual;
+            int idAtual = ids[atual];
+            if (id == idAtual) return false; // Produto com mesmo ID já existe
+
+            int proximo = (id < idAtual) ? esquerda[atual] : direita[atual];
+            if (proximo == NULO) {
+                // novoSlot pode realocar os arrays, então o filho é gravado depois.
+                int novo = novoSlot(produto);
+                if (id < idAtual) esquerda[atual] = novo;
+                else direita[atual] = novo;
+                break;
+            }
+            atual = proximo;
+        }
+
+        rebalancearCaminho(profundidade);
+        return true;
+    }
+
+    /**
+     * Remove um produto da árvore pelo seu ID.
+     * @param id O ID do produto a ser removido.
+     * @return true se o produto foi removido com sucesso, false se o produto não foi encontrado.
+     */
+    public boolean remover(int id) {
+        int profundidade = 0;
+        int atual = raiz;
+        while (atual != NULO) {
+            int idAtual = ids[atual];
+            if (id == idAtual) break;
+            caminho[profundidade++] = atual;
+            atual = (id < idAtual) ? esquerda[atual] : direita[atual];
+        }
+        if (atual == NULO) return false;
+
+        // Nó com dois filhos: copia o sucessor in-order e remove o slot do sucessor.
+        if (esquerda[atual] != NULO && direita[atual] != NULO) {
+            caminho[profundidade++] = atual;
+            int sucessor = direita[atual];
+            while (esquerda[sucessor] != NULO) {
+                caminho[profundidade++] = sucessor;
+                sucessor = esquerda[sucessor];
+            }
+            ids[atual] = ids[sucessor];
+            produtos[atual] = produtos[sucessor];
+            atual = sucessor;
+        }
+
+        // Nó com um ou nenhum filho: o filho (ou NULO) ocupa o lugar dele.
+        int filho = (esquerda[atual] != NULO) ? esquerda[atual] : direita[atual];
+        substituirFilho(profundidade, atual, filho);
+        liberarSlot(atual);
+
+        rebalancearCaminho(profundidade);
+        return true;
+    }
+
+    /**
+     * Retorna uma lista com todos os produtos da árvore ordenados pelo ID.
+     * @return Uma lista ordenada de produtos.
+     */
+    public List<Produto> listar() {
+        List<Produto> lista = new ArrayList<>(tamanho);
+        int[] pilha = new int[ALTURA_MAXIMA];
+        int topo = 0;
+        int atual = raiz;
+
+        while (atual != NULO || topo > 0) {
+            while (atual != NULO) {
+                pilha[topo++] = atual;
+                atual = esquerda[atual];
+            }
+            atual = pilha[--topo];
+            lista.add(produtos[atual]);
+            atual = direita[atual];
+        }
+        return lista;
+    }
+
+    /**
+     * Retorna a quantidade de produtos armazenados.
+     * @return O número de produtos na árvore.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    // ###### GERÊNCIA DE SLOTS ######
+
+    /**
+     * Obtém um slot para um novo nó folha, reaproveitando a lista livre
+     * ou crescendo os arrays quando necessário.
+     * @param produto O produto do novo nó.
+     * @return O índice do slot ocupado.
+     */
+    private int novoSlot(Produto produto) {
+        int slot;
+        if (livre != NULO) {
+            slot = livre;
+            livre = esquerda[slot];
+        } else {
+            if (proximoSlot == ids.length) crescer();
+            slot = proximoSlot++;
+        }
+
+        ids[slot] = produto.getId();
+        produtos[slot] = produto;
+        esquerda[slot] = NULO;
+        direita[slot] = NULO;
+        altura[slot] = 1; // Novo nó é uma folha com altura 1
+        tamanho++;
+        return slot;
+    }
+
+    /**
+     * Devolve um slot para a lista livre.
+     * @param slot O índice do slot liberado.
+     */
+    private void liberarSlot(int slot) {
+        produtos[slot] = null; // Não retém o Produto removido
+        altura[slot] = 0;
+        direita[slot] = NULO;
+        esquerda[slot] = livre;
+        livre = slot;
+        tamanho--;
+    }
+
+    /**
+     * Dobra a capacidade de todos os arrays paralelos.
+     */
+    private void crescer() {
+        int novaCapacidade = ids.length * 2;
+        ids = Arrays.copyOf(ids, novaCapacidade);
+        esquerda = Arrays.copyOf(esquerda, novaCapacidade);
+        direita = Arrays.copyOf(direita, novaCapacidade);
+        altura = Arrays.copyOf(altura, novaCapacidade);
+        produtos = Arrays.copyOf(produtos, novaCapacidade);
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Calcula o fator de balanceamento de um nó.
+     * @param n O slot do nó.
+     * @return O fator de balanceamento do nó.
+     */
+    private int getFatorBalanceamento(int n) {
+        return (n == NULO) ? 0 : altura[esquerda[n]] - altura[direita[n]];
+    }
+
+    /**
+     * Atualiza a altura de um nó com base na altura de seus filhos.
+     * @param n O slot do nó.
+     */
+    private void atualizarAltura(int n) {
+        altura[n] = 1 + Math.max(altura[esquerda[n]], altura[direita[n]]);
+    }
+
+    /**
+     * Realiza o balanceamento de um nó, aplicando as rotações necessárias.
+     * @param n O slot do nó a ser balanceado.
+     * @return O slot da nova raiz da subárvore.
+     */
+    private int balancear(int n) {
+        atualizarAltura(n);
+        int saldo = getFatorBalanceamento(n);
+
+        if (saldo > 1) {
+            // Rotação Dupla à Direita (Esquerda-Direita)
+            if (getFatorBalanceamento(esquerda[n]) < 0) esquerda[n] = rotacaoEsquerda(esquerda[n]);
+            return rotacaoDireita(n);
+        }
+        if (saldo < -1) {
+            // Rotação Dupla à Esquerda (Direita-Esquerda)
+            if (getFatorBalanceamento(direita[n]) > 0) direita[n] = rotacaoDireita(direita[n]);
+            return rotacaoEsquerda(n);
+        }
+        return n;
+    }
+
+    /**
+     * Rebalanceia, de baixo para cima, os slots guardados em {@code caminho[0..profundidade)}.
+     * @param profundidade A quantidade de slots válidos no caminho.
+     */
+    private void rebalancearCaminho(int profundidade) {
+        for (int i = profundidade - 1; i >= 0; i--) {
+            int n = caminho[i];
+            int alturaAnterior = altura[n];
+            int novaRaiz = balancear(n);
+            substituirFilho(i, n, novaRaiz);
+
+            if (altura[novaRaiz] == alturaAnterior) return;
+        }
+    }
+
+    /**
+     * Faz o pai de um slot do caminho (ou a raiz) apontar para um novo slot.
+     * @param profundidade A posição do slot antigo no caminho; o pai está em profundidade - 1.
+     * @param antigo O slot que está sendo substituído.
+     * @param novo O slot que passa a ocupar o lugar dele (pode ser NULO).
+     */
+    private void substituirFilho(int profundidade, int antigo, int novo) {
+        if (profundidade == 0) {
+            raiz = novo;
+            return;
+        }
+        int pai = caminho[profundidade - 1];
+        if (esquerda[pai] == antigo) esquerda[pai] = novo;
+        else direita[pai] = novo;
+    }
+
+    // ###### ROTAÇÕES ######
+
+    /**
+     * Realiza uma rotação simples à direita.
+     * @param y O slot pivô da rotação.
+     * @return O slot da nova raiz da subárvore após a rotação.
+     */
+    private int rotacaoDireita(int y) {
+        int x = esquerda[y];
+        esquerda[y] = direita[x];
+        direita[x] = y;
+
+        atualizarAltura(y);
+        atualizarAltura(x);
+        return x;
+    }
+
+    /**
+     * Realiza uma rotação simples à esquerda.
+     * @param x O slot pivô da rotação.
+     * @return O slot da nova raiz da subárvore após a rotação.
+     */
+    private int rotacaoEsquerda(int x) {
+        int y = direita[x];
+        direita[x] = esquerda[y];
+        esquerda[y] = x;
+
+        atualizarAltura(x);
+        atualizarAltura(y);
+        return y;
+    }
+}
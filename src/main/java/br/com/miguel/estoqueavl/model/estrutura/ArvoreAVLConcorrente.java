@@ -0,0 +1,198 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.metricas.Metricas;
+import br.com.miguel.estoqueavl.model.Produto;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Classe que torna a ArvoreAVL segura para uso por várias threads
+
+/**
+ * Estoque seguro para acesso concorrente, envolvendo uma {@link ArvoreAVL}.
+ *
+ * As escritas (inserir, atualizar, remover) são serializadas por uma {@link StampedLock}.
+ * A busca por ID usa leitura otimista: percorre a árvore sem travar e só valida
+ * no final se alguma escrita aconteceu no meio; nesse caso repete com a trava de
+ * leitura. Como a leitura otimista não escreve em memória compartilhada, buscas
+ * em várias threads não disputam entre si e escalam com o número de núcleos.
+ */
+public class ArvoreAVLConcorrente {
+
+    private final ArvoreAVL arvore;
+    private final StampedLock trava = new StampedLock();
+
+    // Construtor do estoque concorrente. Começa com uma árvore vazia
+    public ArvoreAVLConcorrente() {
+        this(new ArvoreAVL());
+    }
+
+    /**
+     * Envolve uma árvore existente. A partir daqui ela só deve ser acessada
+     * através deste objeto.
+     * @param arvore A árvore a ser protegida.
+     */
+    public ArvoreAVLConcorrente(ArvoreAVL arvore) {
+        this.arvore = arvore;
+    }
+
+    /**
+     * Busca um produto pelo ID, primeiro sem trava (leitura otimista). Se a árvore
+     * tiver o cache ligado ({@link ArvoreAVL#usarCache}), ele é consultado antes da
+     * árvore, também sem trava; o produto lido da árvore só é oferecido ao cache
+     * depois de a leitura ser validada.
+     * @param id O ID do produto a ser buscado.
+     * @return O objeto Produto se encontrado, caso contrário, null.
+     */
+    public Produto buscar(int id) {
+        long carimbo = trava.tryOptimisticRead();
+        if (carimbo != 0) {
+            long inicio = Metricas.inicio();
+            CacheProdutos cache = arvore.getCache();
+            Produto produto = (cache != null) ? cache.obter(id) : null;
+            boolean doCache = produto != null;
+            long versao = (cache != null) ? cache.versao() : 0;
+            if (!doCache) produto = arvore.buscarOtimista(id);
+            if (trava.validate(carimbo)) {
+                if (!doCache && produto != null && cache != null) cache.admitir(id, produto, versao);
+                Metricas.BUSCA.registrarDesde(inicio);
+                return produto;
+            }
+        }
+
+        // Houve escrita durante a leitura: repete com a trava de leitura.
+        carimbo = trava.readLock();
+        try {
+            return arvore.buscar(id);
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    /**
+     * Insere um novo produto.
+     * @param produto O produto a ser inserido.
+     * @return true se o produto foi inserido, false se já existir um produto com o mesmo ID.
+     */
+    public boolean inserir(Produto produto) {
+        long carimbo = trava.writeLock();
+        try {
+            return arvore.inserir(produto);
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    /**
+     * Altera um produto existente, com a trava de escrita.
+     * Ver {@link ArvoreAVL#atualizar(int, Consumer)}: a árvore passa a guardar um novo
+     * objeto, então quem já tinha o anterior (de {@link #buscar}) continua vendo o
+     * estado antigo inteiro, nunca metade da alteração.
+     * @param id O ID do produto.
+     * @param alteracao O que mudar no produto.
+     * @return O novo produto, ou null se não existir produto com o ID.
+     */
+    public Produto atualizar(int id, Consumer<Produto> alteracao) {
+        long carimbo = trava.writeLock();
+        try {
+            return arvore.atualizar(id, alteracao);
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    /**
+     * Soma uma quantidade ao estoque de um produto, com a trava de escrita: a
+     * verificação de saldo e o ajuste são atômicos entre as threads.
+     * Ver {@link ArvoreAVL#ajustarQuantidade(int, int)}.
+     * @param id O ID do produto.
+     * @param delta A quantidade a somar (negativa para saída).
+     * @return O novo produto, ou null se não existir produto com o ID.
+     */
+    public Produto ajustarQuantidade(int id, int delta) {
+        long carimbo = trava.writeLock();
+        try {
+            return arvore.ajustarQuantidade(id, delta);
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    /**
+     * Aplica um lote de operações sob uma única trava de escrita: leitores veem o
+     * estoque antes ou depois do lote inteiro, nunca no meio dele.
+     * Ver {@link ArvoreAVL#aplicarLote(List)}.
+     * @param lote As operações.
+     * @return Quantas operações tiveram efeito.
+     */
+    public int aplicarLote(List<Operacao> lote) {
+        long carimbo = trava.writeLock();
+        try {
+            return arvore.aplicarLote(lote);
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    /**
+     * Remove um produto pelo ID.
+     * @param id O ID do produto a ser removido.
+     * @return true se o produto foi removido com sucesso, false se o produto não foi encontrado.
+     */
+    public boolean remover(int id) {
+        long carimbo = trava.writeLock();
+        try {
+            return arvore.remover(id);
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    /**
+     * Retorna uma lista com todos os produtos ordenados pelo ID, lida de forma consistente.
+     * @return Uma lista ordenada de produtos.
+     */
+    public List<Produto> listar() {
+        return ler(ArvoreAVL::listar);
+    }
+
+    /**
+     * Tira um instantâneo consistente da árvore em O(1), sob a trava de leitura (ver
+     * {@link ArvoreAVL#instantaneo()}). Ele pode ser percorrido depois sem nenhuma trava.
+     * @return Uma árvore independente com o conteúdo atual.
+     */
+    public ArvoreAVL instantaneo() {
+        return ler(ArvoreAVL::instantaneo);
+    }
+
+    /**
+     * Executa uma leitura arbitrária com a trava de leitura, vendo a árvore em um
+     * estado consistente. A função não deve alterar a árvore.
+     * @param leitura A operação de leitura.
+     * @return O resultado da leitura.
+     */
+    public <R> R ler(Function<ArvoreAVL, R> leitura) {
+        long carimbo = trava.readLock();
+        try {
+            return leitura.apply(arvore);
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    /**
+     * Executa uma sequência de alterações de forma atômica com a trava de escrita.
+     * @param escrita A operação de escrita.
+     * @return O resultado da escrita.
+     */
+    public <R> R escrever(Function<ArvoreAVL, R> escrita) {
+        long carimbo = trava.writeLock();
+        try {
+            return escrita.apply(arvore);
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+}
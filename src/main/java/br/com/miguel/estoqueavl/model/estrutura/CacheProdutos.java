@@ -0,0 +1,450 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Classe que representa o cache dos produtos mais buscados, na frente da árvore
+
+/**
+ * Cache de tamanho limitado de ID para Produto, consultado por {@link ArvoreAVL#buscar}
+ * antes de descer a árvore. Com acessos concentrados em poucos SKUs, as buscas
+ * desses SKUs custam uma sondagem em um array em vez de ~20 saltos entre nós.
+ *
+ * A tabela é de endereçamento aberto (sondagem linear) com chaves int em um array
+ * primitivo e ocupação de no máximo metade. Quem entra e quem sai é decidido pela
+ * frequência de acesso, no estilo TinyLFU: um sketch count-min com contadores de
+ * 4 bits estima quantas vezes cada ID foi buscado (achado ou não), e um ID só entra
+ * no cache cheio se for mais frequente que a vítima, a menos frequente de uma pequena
+ * amostra da tabela. Cada falta compara só duas estimativas (a do ID e a da vítima
+ * atual); a amostra é refeita depois de cada saída ou se a vítima ficar mais frequente.
+ * Os contadores são divididos por 2 periodicamente, para que SKUs que esfriaram
+ * percam o lugar.
+ *
+ * Uma consulta não mexe no sketch: ela só anota o ID em um buffer, que é descarregado
+ * no sketch em lotes, com a trava (como o buffer de leituras do Caffeine). Atualizar
+ * o sketch e contadores atômicos a cada consulta, intercalados com as descidas na
+ * árvore, deixava as buscas que faltam no cache até 2x mais lentas.
+ *
+ * O cache é um {@link ObservadorArvore} da árvore: inserção, atualização e remoção de
+ * um produto invalidam (ou atualizam) a entrada dele, inclusive em lotes e operações de
+ * conjunto. Consultas podem ser feitas por várias threads ao mesmo tempo e sem trava
+ * (inclusive na leitura otimista da {@link ArvoreAVLConcorrente}); entradas, saídas e
+ * invalidações passam por uma trava própria. Uma consulta concorrente com uma alteração
+ * do cache pode não achar o produto (e ir à árvore), mas nunca devolve outro produto.
+ */
+public class CacheProdutos implements ObservadorArvore {
+
+    /** Quantas entradas ocupadas são comparadas para escolher a vítima. */
+    private static final int AMOSTRA = 8;
+
+    /** Os contadores são divididos por 2 a cada (capacidade * este valor) acessos. */
+    private static final int ACESSOS_POR_ENVELHECIMENTO = 10;
+
+    /** Quantos acessos o buffer guarda antes de ser descarregado no sketch. */
+    private static final int BUFFER = 128;
+
+    private static final int[] SEMENTES = {0x97CB3127, 0x0B4D3C29, 0x6C5C2E97, 0xC2B2AE35};
+
+    private final int capacidade;
+    private final int mascara;
+    private final int[] ids;
+    private final Produto[] produtos;
+    private int tamanho;
+
+    // Sketch count-min: 16 contadores de 4 bits por long. Os 4 contadores de um ID ficam
+    // em um mesmo bloco de 8 longs (64 bytes), para custar uma só linha de cache.
+    private final long[] contadores;
+    private final int mascaraBlocos;
+    private int acessos;
+    private final int limiteAcessos;
+
+    // Acessos ainda não contados no sketch: (id << 1) | 1 se a consulta achou o produto.
+    // Escrito sem trava; com várias threads, alguns acessos podem se perder.
+    private final long[] pendentes = new long[BUFFER];
+    private int quantidadePendentes;
+
+    private final ReentrantLock trava = new ReentrantLock();
+    // Muda a cada invalidação ou atualização; quem leu da árvore só admite o produto se ela não mudou.
+    private volatile long versao;
+    private int proximaAmostra;
+
+    // A próxima a sair quando o cache estiver cheio, e a frequência dela quando foi escolhida.
+    private boolean haVitima;
+    private int vitima;
+    private int frequenciaVitima;
+
+    // Estatísticas. Acertos e faltas são contados ao descarregar o buffer; as recusas do
+    // filtro sem trava, sem trava (aproximadas com várias threads).
+    private long acertos;
+    private long faltas;
+    private long admitidos;
+    private long recusados;
+
+    /**
+     * @param capacidade Quantos produtos o cache guarda, no máximo.
+     */
+    public CacheProdutos(int capacidade) {
+        if (capacidade <= 0) throw new IllegalArgumentException("A capacidade do cache deve ser positiva: " + capacidade);
+        this.capacidade = capacidade;
+
+        int posicoes = Integer.highestOneBit(Math.max(2, capacidade * 2 - 1)) << 1;
+        this.mascara = posicoes - 1;
+        this.ids = new int[posicoes];
+        this.produtos = new Produto[posicoes];
+
+        int palavras = Integer.highestOneBit(Math.max(16, capacidade - 1)) << 1;
+        this.contadores = new long[palavras];
+        this.mascaraBlocos = (palavras >>> 3) - 1;
+        this.limiteAcessos = (int) Math.min(Integer.MAX_VALUE / 2, (long) capacidade * ACESSOS_POR_ENVELHECIMENTO);
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    /**
+     * Procura um produto no cache e conta o acesso para a frequência do ID.
+     * Pode ser chamado por várias threads sem trava.
+     * @param id O ID buscado.
+     * @return O produto, ou null se ele não estiver no cache.
+     */
+    public Produto obter(int id) {
+        int i = indice(id);
+        for (int passos = 0; passos <= mascara; passos++) {
+            Produto p = produtos[i];
+            if (p == null) break;
+            // O ID do produto confirma a entrada se uma alteração estiver movendo as posições.
+            if (ids[i] == id && p.getId() == id) {
+                anotarAcesso(((long) id << 1) | 1);
+                return p;
+            }
+            i = (i + 1) & mascara;
+        }
+        anotarAcesso((long) id << 1);
+        return null;
+    }
+
+    /**
+     * @return O valor a passar para {@link #admitir} depois de ler o produto da árvore.
+     */
+    public long versao() {
+        return versao;
+    }
+
+    /**
+     * Oferece ao cache um produto lido da árvore depois de uma falta. Ele entra se houver
+     * lugar ou se for mais frequente que a vítima escolhida. Não faz nada se o cache
+     * tiver sido invalidado desde {@code versaoLida} ou se outra thread estiver alterando o cache.
+     * @param id O ID do produto.
+     * @param produto O produto lido da árvore.
+     * @param versaoLida O valor de {@link #versao()} lido antes de consultar a árvore.
+     */
+    public void admitir(int id, Produto produto, long versaoLida) {
+        // Filtro sem trava para o caso comum, o ID frio: a frequência da vítima só sobe
+        // desde a escolha (o envelhecimento descarta a vítima), então ele seria recusado.
+        if (haVitima && tamanho >= capacidade && frequencia(id) <= frequenciaVitima) {
+            recusados++;
+            return;
+        }
+        if (!trava.tryLock()) return;
+        try {
+            if (versao != versaoLida || posicao(id) >= 0) return;
+
+            if (tamanho >= capacidade) {
+                descarregar();
+                int frequenciaAtual = haVitima ? frequencia(vitima) : Integer.MAX_VALUE;
+                if (frequenciaAtual > frequenciaVitima) {
+                    escolherVitima();
+                    frequenciaAtual = frequenciaVitima;
+                }
+                if (frequencia(id) <= frequenciaAtual) {
+                    recusados++;
+                    return;
+                }
+                apagar(posicao(vitima));
+            }
+            colocar(id, produto);
+            admitidos++;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Retira um produto do cache, se estiver nele.
+     * @param id O ID do produto.
+     */
+    public void invalidar(int id) {
+        trava.lock();
+        try {
+            versao++;
+            int i = posicao(id);
+            if (i >= 0) apagar(i);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Esvazia o cache. As frequências e as estatísticas são mantidas.
+     */
+    public void limpar() {
+        trava.lock();
+        try {
+            versao++;
+            for (int i = 0; i <= mascara; i++) produtos[i] = null;
+            tamanho = 0;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public void aoInserir(Produto produto) {
+        invalidar(produto.getId());
+    }
+
+    /**
+     * A entrada continua válida: ela só passa a apontar para o novo produto da árvore.
+     * Movimentações de estoque de um SKU quente não o tiram do cache. A versão muda como
+     * numa invalidação: uma busca que leu o produto anterior da árvore antes desta
+     * alteração não consegue mais admiti-lo depois dela.
+     */
+    @Override
+    public void aoAtualizar(Produto anterior, Produto atual) {
+        trava.lock();
+        try {
+            versao++;
+            int i = posicao(atual.getId());
+            if (i >= 0) produtos[i] = atual;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public void aoRemover(Produto produto) {
+        invalidar(produto.getId());
+    }
+
+    /**
+     * @return A capacidade máxima do cache.
+     */
+    public int capacidade() {
+        return capacidade;
+    }
+
+    /**
+     * @return Quantos produtos estão no cache agora.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return A fração das consultas atendidas pelo cache, entre 0 e 1 (sem contar as
+     *         que ainda estão no buffer).
+     */
+    public double taxaAcerto() {
+        long a = acertos;
+        long total = a + faltas;
+        return (total == 0) ? 0 : (double) a / total;
+    }
+
+    /**
+     * @return capacidade, tamanho, acertos, faltas, admitidos e recusados.
+     */
+    public Map<String, Long> estatisticas() {
+        Map<String, Long> estatisticas = new LinkedHashMap<>();
+        estatisticas.put("capacidade", (long) capacidade);
+        estatisticas.put("tamanho", (long) tamanho);
+        estatisticas.put("acertos", acertos);
+        estatisticas.put("faltas", faltas);
+        estatisticas.put("admitidos", admitidos);
+        estatisticas.put("recusados", recusados);
+        return estatisticas;
+    }
+
+    /**
+     * Zera as estatísticas de acertos e faltas.
+     */
+    public void zerarEstatisticas() {
+        trava.lock();
+        try {
+            acertos = 0;
+            faltas = 0;
+            admitidos = 0;
+            recusados = 0;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    private static int espalhar(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indice(int id) {
+        return espalhar(id) & mascara;
+    }
+
+    /**
+     * Posição do ID na tabela, ou -1. Chamado com a trava.
+     */
+    private int posicao(int id) {
+        for (int i = indice(id); produtos[i] != null; i = (i + 1) & mascara) {
+            if (ids[i] == id) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Coloca um ID que não está na tabela. Chamado com a trava, com lugar garantido.
+     */
+    private void colocar(int id, Produto produto) {
+        int i = indice(id);
+        while (produtos[i] != null) i = (i + 1) & mascara;
+        ids[i] = id;
+        produtos[i] = produto;
+        tamanho++;
+    }
+
+    /**
+     * Apaga a entrada da posição e puxa para trás as entradas seguintes do mesmo grupo
+     * de sondagem que ficariam inalcançáveis (remoção sem marcadores). Chamado com a trava.
+     */
+    private void apagar(int i) {
+        if (haVitima && ids[i] == vitima) haVitima = false;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mascara;
+            Produto p = produtos[j];
+            if (p == null) break;
+            int origem = indice(ids[j]);
+            // A entrada em j pode ir para i se a posição de origem dela não estiver em (i, j].
+            boolean alcancavel = (i <= j) ? (i < origem && origem <= j) : (i < origem || origem <= j);
+            if (!alcancavel) {
+                ids[i] = ids[j];
+                produtos[i] = p;
+                i = j;
+            }
+        }
+        produtos[i] = null;
+        tamanho--;
+    }
+
+    /**
+     * Escolhe como vítima a de menor frequência entre as próximas {@link #AMOSTRA}
+     * entradas ocupadas, continuando de onde a escolha anterior parou (a amostra
+     * percorre a tabela em círculo). Chamado com a trava e o cache cheio.
+     */
+    private void escolherVitima() {
+        int amostra = Math.min(AMOSTRA, tamanho);
+        int i = proximaAmostra;
+        int menor = Integer.MAX_VALUE;
+        for (int vistas = 0; vistas < amostra; i = (i + 1) & mascara) {
+            if (produtos[i] == null) continue;
+            int f = frequencia(ids[i]);
+            if (f < menor) {
+                menor = f;
+                vitima = ids[i];
+            }
+            vistas++;
+        }
+        proximaAmostra = i;
+        frequenciaVitima = menor;
+        haVitima = true;
+    }
+
+    /**
+     * Anota um acesso no buffer e, se ele encheu, tenta descarregá-lo. Sem trava: com
+     * várias threads, duas podem escrever na mesma posição e um acesso se perde, o que
+     * só deixa as estimativas e as estatísticas um pouco menores.
+     */
+    private void anotarAcesso(long acesso) {
+        int n = quantidadePendentes;
+        if (n < BUFFER) {
+            pendentes[n] = acesso;
+            quantidadePendentes = ++n;
+        }
+        if (n >= BUFFER && trava.tryLock()) {
+            try {
+                descarregar();
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    /**
+     * Conta no sketch e nas estatísticas os acessos do buffer. Chamado com a trava.
+     */
+    private void descarregar() {
+        int n = Math.min(quantidadePendentes, BUFFER);
+        for (int k = 0; k < n; k++) {
+            long acesso = pendentes[k];
+            if ((acesso & 1) != 0) acertos++;
+            else faltas++;
+            contar((int) (acesso >> 1));
+        }
+        quantidadePendentes = 0;
+
+        acessos += n;
+        if (acessos >= limiteAcessos) envelhecer();
+    }
+
+    /**
+     * Soma 1 à frequência do ID em cada linha do sketch. Chamado com a trava.
+     */
+    private void contar(int id) {
+        int h = espalhar(id);
+        int bloco = bloco(h);
+        for (int linha = 0; linha < SEMENTES.length; linha++) {
+            int g = (h ^ SEMENTES[linha]) * 0x85EBCA6B;
+            g ^= g >>> 13;
+            int palavra = bloco + (linha << 1) + ((g >>> 4) & 1);
+            int deslocamento = (g & 15) << 2;
+            long valor = contadores[palavra];
+            if (((valor >>> deslocamento) & 15) < 15) contadores[palavra] = valor + (1L << deslocamento);
+        }
+    }
+
+    /**
+     * Primeira posição do bloco de contadores do ID; cada linha usa 2 longs do bloco.
+     */
+    private int bloco(int h) {
+        return ((h * 0x85EBCA6B) >>> 7 & mascaraBlocos) << 3;
+    }
+
+    /**
+     * Estimativa count-min: o menor dos contadores do ID.
+     */
+    private int frequencia(int id) {
+        int h = espalhar(id);
+        int bloco = bloco(h);
+        int menor = 15;
+        for (int linha = 0; linha < SEMENTES.length; linha++) {
+            int g = (h ^ SEMENTES[linha]) * 0x85EBCA6B;
+            g ^= g >>> 13;
+            int palavra = bloco + (linha << 1) + ((g >>> 4) & 1);
+            int contador = (int) (contadores[palavra] >>> ((g & 15) << 2)) & 15;
+            menor = Math.min(menor, contador);
+        }
+        return menor;
+    }
+
+    /**
+     * Divide todos os contadores por 2. Chamado com a trava.
+     */
+    private void envelhecer() {
+        for (int i = 0; i < contadores.length; i++) {
+            contadores[i] = (contadores[i] >>> 1) & 0x7777_7777_7777_7777L;
+        }
+        acessos /= 2;
+        haVitima = false;
+    }
+}
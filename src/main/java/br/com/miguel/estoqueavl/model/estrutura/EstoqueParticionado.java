@@ -0,0 +1,382 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+// Classe que divide o estoque em partições por faixa de ID, cada uma com a sua trava
+
+/**
+ * Estoque dividido em partições por faixa de ID, cada uma uma {@link ArvoreAVLConcorrente}
+ * com a sua própria trava. Buscas e escritas vão direto para a partição do ID, então
+ * escritas em faixas diferentes não esperam umas pelas outras. Listagens por intervalo e
+ * agregações leem as partições envolvidas em paralelo (fork-join).
+ *
+ * As faixas acompanham os dados: uma partição que passa de 2x o tamanho alvo (total /
+ * partições alvo) é dividida na mediana, e uma que fica abaixo de 1/4 do alvo é juntada
+ * com a vizinha menor, as duas com split/join da AVL em O(log n). A tabela de faixas é
+ * imutável e trocada de uma vez, com a trava de escrita das partições afetadas; uma
+ * operação que usou a tabela antiga percebe a troca e é refeita na nova.
+ *
+ * Cada partição é lida de forma consistente, mas não há um instantâneo do estoque
+ * inteiro: uma listagem pode ver uma escrita em uma partição e não ver outra, feita ao
+ * mesmo tempo em outra partição. A árvore não pode ter observadores (diário, índices):
+ * escritas em partições diferentes os chamariam de várias threads ao mesmo tempo, e
+ * eles não são sincronizados.
+ */
+public class EstoqueParticionado {
+
+    /** O tamanho alvo nunca fica abaixo disto, para um estoque pequeno não virar muitas partições minúsculas. */
+    private static final int TAMANHO_MINIMO = 4096;
+
+    // Resposta de uma operação que chegou a uma partição depois de a tabela mudar.
+    private static final Object REPETIR = new Object();
+
+    private final int particoesAlvo;
+    private volatile Tabela tabela;
+
+    // Total de produtos, para calcular o tamanho alvo sem travar as partições.
+    private final LongAdder total = new LongAdder();
+
+    // Só uma reorganização (divisões e junções) por vez.
+    private final ReentrantLock reorganizacao = new ReentrantLock();
+    private volatile long limiteDivisao;
+    private volatile long limiteJuncao;
+
+    // Construtor do estoque particionado. Começa vazio, com 4 partições alvo por processador
+    public EstoqueParticionado() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Cria um estoque vazio. Ele começa com uma partição e se divide conforme cresce.
+     * @param particoesAlvo Em quantas partições o estoque deve ficar, aproximadamente.
+     */
+    public EstoqueParticionado(int particoesAlvo) {
+        this(new ArvoreAVL(), particoesAlvo);
+    }
+
+    /**
+     * Divide uma árvore existente em partições com a mesma quantidade de produtos (nos
+     * quantis de ID), em O(p log n). A árvore passa a pertencer a este estoque e não deve
+     * mais ser usada diretamente.
+     * @param arvore Os produtos, sem observadores (o cache de produtos fica só na primeira partição).
+     * @param particoesAlvo Em quantas partições o estoque deve ficar, aproximadamente.
+     * @throws IllegalArgumentException Se a árvore tiver observadores.
+     */
+    public EstoqueParticionado(ArvoreAVL arvore, int particoesAlvo) {
+        if (particoesAlvo <= 0) throw new IllegalArgumentException("O número de partições deve ser positivo.");
+        if (arvore.temObservadores()) {
+            throw new IllegalArgumentException("A árvore não pode ter observadores: as partições são escritas em paralelo.");
+        }
+        this.particoesAlvo = particoesAlvo;
+
+        int tamanho = arvore.tamanho();
+        int particoes = Math.max(1, Math.min(particoesAlvo, tamanho / TAMANHO_MINIMO));
+        int[] inicios = new int[particoes];
+        inicios[0] = Integer.MIN_VALUE;
+        for (int k = 1; k < particoes; k++) inicios[k] = arvore.select((int) ((long) k * tamanho / particoes)).getId();
+
+        ArvoreAVLConcorrente[] estoques = new ArvoreAVLConcorrente[particoes];
+        for (int k = particoes - 1; k >= 1; k--) estoques[k] = new ArvoreAVLConcorrente(arvore.separar(inicios[k]));
+        estoques[0] = new ArvoreAVLConcorrente(arvore);
+
+        total.add(tamanho);
+        tabela = new Tabela(inicios, estoques);
+        definirLimites(alvo(tamanho));
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    /**
+     * Busca um produto pelo ID na partição dele (leitura otimista, ver {@link ArvoreAVLConcorrente#buscar}).
+     * @param id O ID do produto a ser buscado.
+     * @return O objeto Produto se encontrado, caso contrário, null.
+     */
+    public Produto buscar(int id) {
+        while (true) {
+            Tabela t = tabela;
+            Produto produto = t.particao(id).buscar(id);
+            if (tabela == t) return produto; // Senão a partição pode ter sido dividida ou juntada no meio da busca
+        }
+    }
+
+    /**
+     * Insere um novo produto na partição do ID, dividindo-a se ela ficar grande demais.
+     * @param produto O produto a ser inserido.
+     * @return true se o produto foi inserido, false se já existir um produto com o mesmo ID.
+     */
+    public boolean inserir(Produto produto) {
+        int[] tamanho = new int[1];
+        boolean inserido = escrever(produto.getId(), arvore -> {
+            boolean ok = arvore.inserir(produto);
+            tamanho[0] = arvore.tamanho();
+            return ok;
+        });
+        if (inserido) {
+            total.increment();
+            if (tamanho[0] > limiteDivisao) reorganizar();
+        }
+        return inserido;
+    }
+
+    /**
+     * Altera um produto existente. Ver {@link ArvoreAVL#atualizar(int, Consumer)}.
+     * @param id O ID do produto.
+     * @param alteracao O que mudar no produto.
+     * @return O novo produto, ou null se não existir produto com o ID.
+     */
+    public Produto atualizar(int id, Consumer<Produto> alteracao) {
+        return escrever(id, arvore -> arvore.atualizar(id, alteracao));
+    }
+
+    /**
+     * Soma uma quantidade ao estoque de um produto. Ver {@link ArvoreAVL#ajustarQuantidade(int, int)}.
+     * @param id O ID do produto.
+     * @param delta A quantidade a somar (negativa para saída).
+     * @return O novo produto, ou null se não existir produto com o ID.
+     */
+    public Produto ajustarQuantidade(int id, int delta) {
+        return escrever(id, arvore -> arvore.ajustarQuantidade(id, delta));
+    }
+
+    /**
+     * Remove um produto pelo ID, juntando a partição com uma vizinha se ela ficar pequena demais.
+     * @param id O ID do produto a ser removido.
+     * @return true se o produto foi removido com sucesso, false se o produto não foi encontrado.
+     */
+    public boolean remover(int id) {
+        int[] tamanho = new int[1];
+        boolean removido = escrever(id, arvore -> {
+            boolean ok = arvore.remover(id);
+            tamanho[0] = arvore.tamanho();
+            return ok;
+        });
+        if (removido) {
+            total.decrement();
+            if (tamanho[0] < limiteJuncao && tabela.particoes().length > 1) reorganizar();
+        }
+        return removido;
+    }
+
+    /**
+     * Lista os produtos com ID no intervalo fechado [idInicial, idFinal], em ordem,
+     * lendo as partições envolvidas em paralelo.
+     * @param idInicial O menor ID do intervalo.
+     * @param idFinal O maior ID do intervalo.
+     * @return Os produtos do intervalo (vazio se idInicial > idFinal).
+     */
+    public List<Produto> intervalo(int idInicial, int idFinal) {
+        if (idInicial > idFinal) return List.of();
+        List<List<Produto>> partes = lerParticoes(idInicial, idFinal, arvore -> arvore.intervalo(idInicial, idFinal).toList());
+        List<Produto> produtos = new ArrayList<>(partes.stream().mapToInt(List::size).sum());
+        partes.forEach(produtos::addAll);
+        return produtos;
+    }
+
+    /**
+     * @return Todos os produtos ordenados pelo ID.
+     */
+    public List<Produto> listar() {
+        return intervalo(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Conta os produtos com ID no intervalo fechado [idInicial, idFinal], em O(p log n)
+     * para as p partições envolvidas.
+     * @param idInicial O menor ID do intervalo.
+     * @param idFinal O maior ID do intervalo.
+     * @return A quantidade de produtos no intervalo (0 se idInicial > idFinal).
+     */
+    public int contarIntervalo(int idInicial, int idFinal) {
+        if (idInicial > idFinal) return 0;
+        return lerParticoes(idInicial, idFinal, arvore -> arvore.contarIntervalo(idInicial, idFinal))
+                .stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return A quantidade de produtos no estoque.
+     */
+    public int tamanho() {
+        return agregar(ArvoreAVL::tamanho, Integer::sum);
+    }
+
+    /**
+     * Calcula um valor sobre o estoque inteiro, uma partição por tarefa em paralelo, e
+     * combina os resultados na ordem das partições (ex.: valor total em estoque, produtos
+     * abaixo do mínimo). Cada partição é lida com a sua trava de leitura.
+     * @param porParticao O cálculo sobre uma partição; não deve alterar a árvore.
+     * @param combinar Junta os resultados de duas partições.
+     * @return O resultado combinado.
+     */
+    public <R> R agregar(Function<ArvoreAVL, R> porParticao, BinaryOperator<R> combinar) {
+        return lerParticoes(Integer.MIN_VALUE, Integer.MAX_VALUE, porParticao).stream().reduce(combinar).orElseThrow();
+    }
+
+    /**
+     * @return O primeiro ID de cada partição, em ordem (o da primeira é Integer.MIN_VALUE).
+     */
+    public int[] iniciosParticoes() {
+        return tabela.inicios().clone();
+    }
+
+    /**
+     * @return A quantidade de produtos de cada partição, na ordem das faixas.
+     */
+    public int[] tamanhosParticoes() {
+        return lerParticoes(Integer.MIN_VALUE, Integer.MAX_VALUE, ArvoreAVL::tamanho).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Executa uma escrita na partição do ID, com a trava de escrita dela. Se a tabela
+     * mudou até a trava ser obtida, a partição pode não ser mais a dona do ID: a escrita
+     * não é feita e é tentada de novo na tabela nova.
+     */
+    @SuppressWarnings("unchecked")
+    private <R> R escrever(int id, Function<ArvoreAVL, R> escrita) {
+        while (true) {
+            Tabela t = tabela;
+            Object resultado = t.particao(id).<Object>escrever(arvore -> (tabela == t) ? escrita.apply(arvore) : REPETIR);
+            if (resultado != REPETIR) return (R) resultado;
+        }
+    }
+
+    /**
+     * Lê em paralelo as partições que cobrem [idInicial, idFinal], cada uma com a sua
+     * trava de leitura, e devolve os resultados na ordem das faixas. Se a tabela mudar
+     * no meio, lê tudo de novo na tabela nova.
+     */
+    @SuppressWarnings("unchecked")
+    private <R> List<R> lerParticoes(int idInicial, int idFinal, Function<ArvoreAVL, R> leitura) {
+        while (true) {
+            Tabela t = tabela;
+            List<Object> partes = IntStream.rangeClosed(t.indice(idInicial), t.indice(idFinal)).parallel()
+                    .mapToObj(i -> t.particoes()[i].<Object>ler(arvore -> (tabela == t) ? leitura.apply(arvore) : REPETIR))
+                    .toList();
+            if (partes.stream().noneMatch(parte -> parte == REPETIR)) return (List<R>) partes;
+        }
+    }
+
+    /**
+     * Junta as partições pequenas com a vizinha menor e divide ao meio as grandes, até
+     * todas ficarem entre 1/4 e 2x o tamanho alvo. Se outra thread já estiver
+     * reorganizando, não faz nada: ela ou uma próxima escrita cuida do resto.
+     */
+    private void reorganizar() {
+        if (!reorganizacao.tryLock()) return;
+        try {
+            long alvo = alvo(total.sum());
+
+            // Junções primeiro: se a soma ficar grande demais, a divisão abaixo reparte as duas ao meio.
+            int i = 0;
+            while (i < tabela.particoes().length && tabela.particoes().length > 1) {
+                Tabela t = tabela;
+                if (tamanho(t, i) >= alvo / 4) {
+                    i++;
+                    continue;
+                }
+                int ultima = t.particoes().length - 1;
+                int esquerda = (i == ultima || (i > 0 && tamanho(t, i - 1) <= tamanho(t, i + 1))) ? i - 1 : i;
+                juntar(t, esquerda);
+                i = esquerda; // A partição juntada pode ainda ser pequena
+            }
+
+            i = 0;
+            while (i < tabela.particoes().length) {
+                Tabela t = tabela;
+                if (tamanho(t, i) > 2 * alvo) dividir(t, i); // As metades podem ainda ser grandes
+                else i++;
+            }
+
+            definirLimites(alvo);
+        } finally {
+            reorganizacao.unlock();
+        }
+    }
+
+    /**
+     * Junta a partição i com a seguinte (join da AVL), com a trava de escrita das duas.
+     * A tabela nova é publicada antes de as travas serem soltas.
+     */
+    private void juntar(Tabela t, int i) {
+        ArvoreAVLConcorrente esquerda = t.particoes()[i];
+        ArvoreAVLConcorrente direita = t.particoes()[i + 1];
+        esquerda.escrever(menores -> direita.escrever(maiores -> {
+            menores.concatenar(maiores);
+            tabela = t.semParticao(i + 1);
+            return null;
+        }));
+    }
+
+    /**
+     * Divide a partição i na mediana (split da AVL), com a trava de escrita dela.
+     */
+    private void dividir(Tabela t, int i) {
+        t.particoes()[i].escrever(arvore -> {
+            int mediana = arvore.select(arvore.tamanho() / 2).getId();
+            ArvoreAVL maiores = arvore.separar(mediana);
+            tabela = t.comParticao(i + 1, mediana, new ArvoreAVLConcorrente(maiores));
+            return null;
+        });
+    }
+
+    private static int tamanho(Tabela t, int i) {
+        return t.particoes()[i].ler(ArvoreAVL::tamanho);
+    }
+
+    private long alvo(long produtos) {
+        return Math.max(TAMANHO_MINIMO, produtos / particoesAlvo);
+    }
+
+    private void definirLimites(long alvo) {
+        limiteDivisao = 2 * alvo;
+        limiteJuncao = alvo / 4;
+    }
+
+    /**
+     * Tabela de faixas, imutável: a partição i guarda os IDs em [inicios[i], inicios[i + 1]).
+     */
+    private record Tabela(int[] inicios, ArvoreAVLConcorrente[] particoes) {
+
+        int indice(int id) {
+            int i = Arrays.binarySearch(inicios, id);
+            return (i >= 0) ? i : -i - 2; // inicios[0] é Integer.MIN_VALUE, então sempre há uma faixa
+        }
+
+        ArvoreAVLConcorrente particao(int id) {
+            return particoes[indice(id)];
+        }
+
+        Tabela comParticao(int i, int inicio, ArvoreAVLConcorrente particao) {
+            int[] novosInicios = new int[inicios.length + 1];
+            ArvoreAVLConcorrente[] novas = new ArvoreAVLConcorrente[particoes.length + 1];
+            System.arraycopy(inicios, 0, novosInicios, 0, i);
+            System.arraycopy(particoes, 0, novas, 0, i);
+            novosInicios[i] = inicio;
+            novas[i] = particao;
+            System.arraycopy(inicios, i, novosInicios, i + 1, inicios.length - i);
+            System.arraycopy(particoes, i, novas, i + 1, particoes.length - i);
+            return new Tabela(novosInicios, novas);
+        }
+
+        Tabela semParticao(int i) {
+            int[] novosInicios = new int[inicios.length - 1];
+            ArvoreAVLConcorrente[] novas = new ArvoreAVLConcorrente[particoes.length - 1];
+            System.arraycopy(inicios, 0, novosInicios, 0, i);
+            System.arraycopy(particoes, 0, novas, 0, i);
+            System.arraycopy(inicios, i + 1, novosInicios, i, inicios.length - i - 1);
+            System.arraycopy(particoes, i + 1, novas, i, particoes.length - i - 1);
+            return new Tabela(novosInicios, novas);
+        }
+    }
+}
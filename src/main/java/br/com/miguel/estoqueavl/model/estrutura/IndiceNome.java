@@ -0,0 +1,338 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+// Classe que indexa os produtos pelo nome
+
+/**
+ * Índice secundário pelo nome dos produtos, mantido junto com a {@link ArvoreAVL}.
+ *
+ * Os nomes são normalizados (minúsculas e sem acentos), então "Café" e "cafe"
+ * são equivalentes. Há duas estruturas de busca:
+ *   - um mapa ordenado pelo nome normalizado, para busca por prefixo em O(log n + k);
+ *   - um índice de trigramas (sequências de 3 caracteres) para busca por trecho:
+ *     a busca percorre só a lista do trigrama mais raro do texto procurado e
+ *     confere cada candidato, em vez de varrer o catálogo inteiro.
+ * Um mapa por ID acha a entrada de um produto atualizado ou removido.
+ *
+ * Registrado como {@link ObservadorArvore}, acompanha cada inserção, atualização e remoção.
+ * Não é sincronizado: com a {@link ArvoreAVLConcorrente}, as consultas devem ser
+ * feitas dentro de {@code ler(...)}, já que as atualizações acontecem sob a trava de escrita.
+ */
+public class IndiceNome implements ObservadorArvore {
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+
+    // Ordem: nome normalizado e, para nomes iguais, ID
+    private static final Comparator<Entrada> ORDEM = Comparator.<Entrada, String>comparing(e -> e.nome)
+            .thenComparingInt(e -> e.id);
+
+    private final NavigableSet<Entrada> porNome = new TreeSet<>(ORDEM);
+    private final MapaTrigramas trigramas = new MapaTrigramas();
+
+    // As mesmas entradas por ID, para achar a de um produto sem descer o mapa por nome
+    // (comparando textos) a cada atualização e remoção.
+    private MapaAVLInt<Entrada> porId = new MapaAVLInt<>();
+
+    // Construtor do índice. Começa vazio
+    public IndiceNome() {
+    }
+
+    /**
+     * Cria um índice com os produtos atuais da árvore e o registra como observador dela.
+     * @param arvore A árvore a ser indexada.
+     * @return O índice, já acompanhando as alterações da árvore.
+     */
+    public static IndiceNome indexar(ArvoreAVL arvore) {
+        IndiceNome indice = new IndiceNome();
+        List<Entrada> entradas = new ArrayList<>(arvore.tamanho());
+        for (Produto p : arvore) {
+            if (p.getNome() != null) entradas.add(new Entrada(p, normalizar(p.getNome())));
+        }
+        // A árvore é percorrida em ordem de ID, então o mapa por ID é montado de uma vez, em O(n).
+        indice.porId = MapaAVLInt.deOrdenados(entradas.toArray(new Entrada[0]), entradas.size(), e -> e.id);
+        // Em ordem de nome, as inserções no mapa ordenado acontecem sempre na ponta (bem mais rápidas).
+        entradas.sort(ORDEM);
+        for (Entrada entrada : entradas) indice.adicionar(entrada);
+        arvore.adicionarObservador(indice);
+        return indice;
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    @Override
+    public void aoInserir(Produto produto) {
+        if (produto.getNome() == null) return;
+        Entrada entrada = new Entrada(produto, normalizar(produto.getNome()));
+        porId.inserir(entrada.id, entrada);
+        adicionar(entrada);
+    }
+
+    /**
+     * Se o nome normalizado não mudou (ex.: ajuste de preço ou quantidade), a entrada
+     * fica onde está e só passa a apontar para o novo produto, sem mexer nos trigramas.
+     */
+    @Override
+    public void aoAtualizar(Produto anterior, Produto atual) {
+        String nomeAnterior = anterior.getNome(), nomeAtual = atual.getNome();
+        if (nomeAnterior == null && nomeAtual == null) return;
+        if (nomeAnterior != null && nomeAtual != null
+                && (nomeAnterior.equals(nomeAtual) || normalizar(nomeAnterior).equals(normalizar(nomeAtual)))) {
+            Entrada entrada = porId.obter(atual.getId());
+            if (entrada != null) entrada.produto = atual;
+            return;
+        }
+        aoRemover(anterior);
+        aoInserir(atual);
+    }
+
+    @Override
+    public void aoRemover(Produto produto) {
+        Entrada entrada = porId.remover(produto.getId());
+        if (entrada == null) return;
+        porNome.remove(entrada);
+
+        long[] codigos = trigramasDistintos(entrada.nome);
+        for (int i = 0; i < codigos.length; i++) {
+            trigramas.obter(codigos[i]).remover(entrada.posicoes[i], codigos[i]);
+        }
+    }
+
+    /**
+     * Busca produtos cujo nome começa com o prefixo (sem diferenciar maiúsculas e acentos).
+     * @param prefixo O início do nome.
+     * @param limite O máximo de produtos retornados.
+     * @return Os produtos encontrados, em ordem alfabética do nome.
+     */
+    public List<Produto> buscarPorPrefixo(String prefixo, int limite) {
+        String normalizado = normalizar(prefixo);
+        List<Produto> resultado = new ArrayList<>();
+        Entrada inicio = new Entrada(null, normalizado, Integer.MIN_VALUE);
+        Entrada fim = new Entrada(null, normalizado + Character.MAX_VALUE, Integer.MIN_VALUE);
+        for (Entrada entrada : porNome.subSet(inicio, true, fim, false)) {
+            if (resultado.size() >= limite) break;
+            resultado.add(entrada.produto);
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca produtos cujo nome contém o trecho em qualquer posição.
+     * Trechos com menos de 3 caracteres não formam trigrama e são buscados como prefixo.
+     * @param trecho O texto procurado.
+     * @param limite O máximo de produtos retornados.
+     * @return Os produtos encontrados, ordenados pelo ID.
+     */
+    public List<Produto> buscarPorTrecho(String trecho, int limite) {
+        String normalizado = normalizar(trecho);
+        if (normalizado.length() < 3) return buscarPorPrefixo(normalizado, limite);
+
+        // A lista do trigrama mais raro limita os candidatos; se algum trigrama não existe, não há resultado.
+        ListaTrigrama menor = null;
+        for (long codigo : trigramasDistintos(normalizado)) {
+            ListaTrigrama lista = trigramas.obter(codigo);
+            if (lista == null || lista.tamanho == 0) return new ArrayList<>();
+            if (menor == null || lista.tamanho < menor.tamanho) menor = lista;
+        }
+
+        List<Produto> resultado = new ArrayList<>();
+        for (int i = 0; i < menor.tamanho && resultado.size() < limite; i++) {
+            Entrada candidata = menor.entradas[i];
+            if (candidata.nome.contains(normalizado)) resultado.add(candidata.produto);
+        }
+        resultado.sort(Comparator.comparingInt(Produto::getId));
+        return resultado;
+    }
+
+    /**
+     * Busca combinada usada na tela de busca: primeiro os nomes que começam com o
+     * texto, depois os que apenas o contêm, sem repetições.
+     * @param texto O texto digitado.
+     * @param limite O máximo de produtos retornados.
+     * @return Os produtos encontrados.
+     */
+    public List<Produto> buscar(String texto, int limite) {
+        Set<Produto> resultado = new LinkedHashSet<>(buscarPorPrefixo(texto, limite));
+        if (resultado.size() < limite) {
+            for (Produto p : buscarPorTrecho(texto, limite)) {
+                if (resultado.size() >= limite) break;
+                resultado.add(p);
+            }
+        }
+        return new ArrayList<>(resultado);
+    }
+
+    /**
+     * Retorna quantos produtos estão indexados (os sem nome ficam de fora).
+     * @return O número de produtos no índice.
+     */
+    public int tamanho() {
+        return porNome.size();
+    }
+
+    /**
+     * Normaliza um texto para comparação: remove acentos, passa para minúsculas e
+     * tira espaços das pontas.
+     * @param texto O texto original.
+     * @return O texto normalizado.
+     */
+    public static String normalizar(String texto) {
+        if (ascii(texto)) return texto.toLowerCase(Locale.ROOT).strip(); // Caminho rápido: não há acentos
+
+        String semAcentos = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return semAcentos.toLowerCase(Locale.ROOT).strip();
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Coloca a entrada no mapa ordenado e na lista de cada um dos seus trigramas.
+     */
+    private void adicionar(Entrada entrada) {
+        porNome.add(entrada);
+
+        long[] codigos = trigramasDistintos(entrada.nome);
+        entrada.posicoes = new int[codigos.length];
+        for (int i = 0; i < codigos.length; i++) {
+            entrada.posicoes[i] = trigramas.obterOuCriar(codigos[i]).adicionar(entrada);
+        }
+    }
+
+    private static boolean ascii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Codifica cada trigrama (3 chars de 16 bits) em um long, sem repetições.
+     */
+    private static long[] trigramasDistintos(String texto) {
+        int quantidade = Math.max(0, texto.length() - 2);
+        long[] codigos = new long[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            codigos[i] = ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+        }
+        Arrays.sort(codigos);
+        int distintos = 0;
+        for (int i = 0; i < quantidade; i++) {
+            if (i == 0 || codigos[i] != codigos[i - 1]) codigos[distintos++] = codigos[i];
+        }
+        return Arrays.copyOf(codigos, distintos);
+    }
+
+    /**
+     * Um produto indexado, com o nome normalizado e, para cada trigrama dele (na
+     * ordem de {@link #trigramasDistintos}), a posição em que está na lista desse trigrama.
+     * Os trigramas não são guardados: são recalculados do nome quando preciso.
+     */
+    private static final class Entrada {
+        private Produto produto;
+        private final String nome;
+        private final int id;
+        private int[] posicoes;
+
+        private Entrada(Produto produto, String nome) {
+            this(produto, nome, produto.getId());
+        }
+
+        private Entrada(Produto produto, String nome, int id) {
+            this.produto = produto;
+            this.nome = nome;
+            this.id = id;
+        }
+
+        private void atualizarPosicao(long trigrama, int posicao) {
+            posicoes[Arrays.binarySearch(trigramasDistintos(nome), trigrama)] = posicao;
+        }
+    }
+
+    /**
+     * Lista de produtos que contêm um trigrama. A remoção troca o removido pelo
+     * último da lista (O(1)), avisando o movido da sua nova posição.
+     */
+    private static final class ListaTrigrama {
+        private Entrada[] entradas = new Entrada[4];
+        private int tamanho;
+
+        private int adicionar(Entrada entrada) {
+            if (tamanho == entradas.length) entradas = Arrays.copyOf(entradas, tamanho * 2);
+            entradas[tamanho] = entrada;
+            return tamanho++;
+        }
+
+        private void remover(int posicao, long trigrama) {
+            Entrada ultima = entradas[--tamanho];
+            entradas[tamanho] = null;
+            if (posicao != tamanho) {
+                entradas[posicao] = ultima;
+                ultima.atualizarPosicao(trigrama, posicao);
+            }
+        }
+    }
+
+    /**
+     * Mapa de trigrama (long) para a sua lista, com endereçamento aberto e sondagem
+     * linear: evita criar um Long a cada consulta. Listas que ficam vazias são
+     * mantidas (o número de trigramas distintos é pequeno perto do de produtos).
+     */
+    private static final class MapaTrigramas {
+        private long[] chaves = new long[1024];
+        private ListaTrigrama[] valores = new ListaTrigrama[1024];
+        private int quantidade;
+
+        private ListaTrigrama obter(long chave) {
+            int mascara = chaves.length - 1;
+            for (int i = espalhar(chave) & mascara; valores[i] != null; i = (i + 1) & mascara) {
+                if (chaves[i] == chave) return valores[i];
+            }
+            return null;
+        }
+
+        private ListaTrigrama obterOuCriar(long chave) {
+            int mascara = chaves.length - 1;
+            int i = espalhar(chave) & mascara;
+            for (; valores[i] != null; i = (i + 1) & mascara) {
+                if (chaves[i] == chave) return valores[i];
+            }
+            ListaTrigrama lista = new ListaTrigrama();
+            chaves[i] = chave;
+            valores[i] = lista;
+            if (++quantidade * 2 > chaves.length) crescer();
+            return lista;
+        }
+
+        private void crescer() {
+            long[] chavesAntigas = chaves;
+            ListaTrigrama[] valoresAntigos = valores;
+            chaves = new long[chavesAntigas.length * 2];
+            valores = new ListaTrigrama[valoresAntigos.length * 2];
+            int mascara = chaves.length - 1;
+            for (int j = 0; j < chavesAntigas.length; j++) {
+                if (valoresAntigos[j] == null) continue;
+                int i = espalhar(chavesAntigas[j]) & mascara;
+                while (valores[i] != null) i = (i + 1) & mascara;
+                chaves[i] = chavesAntigas[j];
+                valores[i] = valoresAntigos[j];
+            }
+        }
+
+        private static int espalhar(long chave) {
+            long h = chave * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+// Classe que indexa os produtos por um atributo ordenável (preço, quantidade...)
+
+/**
+ * Índice secundário ordenado dos produtos por um atributo, mantido junto com a
+ * {@link ArvoreAVL} principal.
+ *
+ * É um {@link MapaAVL} ordenado pelo par (chave, id): produtos com a mesma chave
+ * (mesmo preço, por exemplo) ficam em ordem de ID, então cada par é único.
+ * Cada nó guarda a chave com que o produto foi indexado, o que permite removê-lo
+ * mesmo que o atributo tenha mudado depois, e o tamanho da subárvore, o que
+ * permite contar uma faixa em O(log n) sem percorrê-la.
+ *
+ * Registrado como {@link ObservadorArvore}, acompanha cada inserção, atualização e remoção.
+ * Produtos com a chave nula não são indexados. Não é sincronizado: com a
+ * {@link ArvoreAVLConcorrente}, as consultas devem ser feitas dentro de {@code ler(...)}.
+ *
+ * @param <C> O tipo da chave (ex.: BigDecimal para preço, Integer para quantidade).
+ */
+public class IndiceOrdenado<C extends Comparable<? super C>> implements ObservadorArvore {
+
+    private final Function<Produto, C> extrairChave;
+    private final MapaAVL<Chave<C>, Produto> produtos;
+
+    /**
+     * Cria um índice vazio.
+     * @param extrairChave Função que obtém a chave de um produto (ex.: Produto::getPreco).
+     */
+    public IndiceOrdenado(Function<Produto, C> extrairChave) {
+        this(extrairChave, new MapaAVL<>(ordem()));
+    }
+
+    private IndiceOrdenado(Function<Produto, C> extrairChave, MapaAVL<Chave<C>, Produto> produtos) {
+        this.extrairChave = extrairChave;
+        this.produtos = produtos;
+    }
+
+    /**
+     * Cria um índice pelo preço com os produtos atuais da árvore e o registra como observador dela.
+     * @param arvore A árvore a ser indexada.
+     * @return O índice, já acompanhando as alterações da árvore.
+     */
+    public static IndiceOrdenado<BigDecimal> porPreco(ArvoreAVL arvore) {
+        return indexar(arvore, Produto::getPreco);
+    }
+
+    /**
+     * Cria um índice pela quantidade em estoque com os produtos atuais da árvore e o
+     * registra como observador dela.
+     * @param arvore A árvore a ser indexada.
+     * @return O índice, já acompanhando as alterações da árvore.
+     */
+    public static IndiceOrdenado<Integer> porQuantidade(ArvoreAVL arvore) {
+        return indexar(arvore, Produto::getQuantidade);
+    }
+
+    /**
+     * Cria um índice com os produtos atuais da árvore, montado já balanceado em
+     * O(n log n) (uma ordenação), e o registra como observador dela.
+     * @param arvore A árvore a ser indexada.
+     * @param extrairChave Função que obtém a chave de um produto.
+     * @return O índice, já acompanhando as alterações da árvore.
+     */
+    public static <C extends Comparable<? super C>> IndiceOrdenado<C> indexar(ArvoreAVL arvore,
+                                                                           Function<Produto, C> extrairChave) {
+        List<Produto> valores = new ArrayList<>(arvore.tamanho());
+        for (Produto p : arvore) {
+            if (extrairChave.apply(p) != null) valores.add(p);
+        }
+        // A árvore é percorrida em ordem de ID; a ordenação estável mantém o desempate por ID.
+        valores.sort(Comparator.comparing(extrairChave));
+
+        List<Chave<C>> chaves = new ArrayList<>(valores.size());
+        for (Produto p : valores) chaves.add(new Chave<>(extrairChave.apply(p), p.getId()));
+        IndiceOrdenado<C> indice = new IndiceOrdenado<>(extrairChave, MapaAVL.deOrdenados(ordem(), chaves, valores));
+
+        arvore.adicionarObservador(indice);
+        return indice;
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    @Override
+    public void aoInserir(Produto produto) {
+        C chave = extrairChave.apply(produto);
+        if (chave != null) produtos.inserir(new Chave<>(chave, produto.getId()), produto);
+    }
+
+    /**
+     * Se a chave não mudou (ex.: ajuste de quantidade no índice de preço), o novo
+     * produto só toma o lugar do anterior na mesma posição. Senão, o produto sai da
+     * posição da chave antiga e entra na da nova.
+     */
+    @Override
+    public void aoAtualizar(Produto anterior, Produto atual) {
+        C chaveAnterior = extrairChave.apply(anterior);
+        C chaveAtual = extrairChave.apply(atual);
+        if (chaveAnterior == null && chaveAtual == null) return;
+        if (chaveAnterior != null && chaveAtual != null && chaveAnterior.compareTo(chaveAtual) == 0) {
+            produtos.colocar(new Chave<>(chaveAnterior, anterior.getId()), atual);
+            return;
+        }
+        aoRemover(anterior);
+        aoInserir(atual);
+    }
+
+    @Override
+    public void aoRemover(Produto produto) {
+        C chave = extrairChave.apply(produto);
+        if (chave != null) produtos.remover(new Chave<>(chave, produto.getId()));
+    }
+
+    /**
+     * Lista os produtos com a chave dentro da faixa, em ordem de chave (e de ID, no empate).
+     * @param minimo O menor valor da faixa (inclusivo), ou null para não limitar por baixo.
+     * @param maximo O maior valor da faixa (inclusivo), ou null para não limitar por cima.
+     * @param limite O máximo de produtos retornados.
+     * @return Os produtos encontrados.
+     */
+    public List<Produto> intervalo(C minimo, C maximo, int limite) {
+        return produtos.intervalo(inicio(minimo), fim(maximo), limite);
+    }
+
+    /**
+     * Lista os produtos com a chave estritamente menor que o valor informado
+     * (ex.: quantidade abaixo de 5), em ordem de chave.
+     * @param valor O limite superior (exclusivo).
+     * @param limite O máximo de produtos retornados.
+     * @return Os produtos encontrados.
+     */
+    public List<Produto> menoresQue(C valor, int limite) {
+        return produtos.menoresQue(inicio(valor), limite);
+    }
+
+    /**
+     * Conta os produtos com a chave dentro da faixa, em O(log n), sem percorrê-la.
+     * @param minimo O menor valor da faixa (inclusivo), ou null para não limitar por baixo.
+     * @param maximo O maior valor da faixa (inclusivo), ou null para não limitar por cima.
+     * @return A quantidade de produtos na faixa.
+     */
+    public int contarIntervalo(C minimo, C maximo) {
+        return produtos.contarIntervalo(inicio(minimo), fim(maximo));
+    }
+
+    /**
+     * Retorna quantos produtos estão indexados (os com chave nula ficam de fora).
+     * @return O número de produtos no índice.
+     */
+    public int tamanho() {
+        return produtos.tamanho();
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Ordem do índice: a chave e, para chaves iguais, o ID.
+     */
+    private static <C extends Comparable<? super C>> Comparator<Chave<C>> ordem() {
+        return (a, b) -> {
+            int c = a.valor().compareTo(b.valor());
+            return (c != 0) ? c : Integer.compare(a.id(), b.id());
+        };
+    }
+
+    /**
+     * O menor par possível com a chave informada (vem antes de qualquer ID), ou null se não houver limite.
+     */
+    private static <C> Chave<C> inicio(C valor) {
+        return (valor == null) ? null : new Chave<>(valor, Integer.MIN_VALUE);
+    }
+
+    /**
+     * O maior par possível com a chave informada (vem depois de qualquer ID), ou null se não houver limite.
+     */
+    private static <C> Chave<C> fim(C valor) {
+        return (valor == null) ? null : new Chave<>(valor, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Chave de um produto no índice: o valor do atributo quando foi indexado e o ID.
+     */
+    private record Chave<C>(C valor, int id) {
+    }
+}
@@ -0,0 +1,451 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// Classe que representa uma AVL com chaves genéricas
+
+/**
+ * Mapa ordenado de chaves para valores, implementado como Árvore AVL, com a
+ * ordem definida por um {@link Comparator}.
+ *
+ * Segue a mesma estrutura do {@link MapaAVLInt} (descida única e iterativa,
+ * rebalanceamento de baixo para cima com pilha reaproveitada, tamanho da
+ * subárvore em cada nó), para chaves que não são um int: índices secundários
+ * (preço, quantidade), cadastros com código texto etc. Para chaves int, o
+ * {@link MapaAVLInt} evita o boxing e deve ser preferido.
+ *
+ * Cada nó guarda a chave com que o valor foi inserido, então um valor pode ser
+ * removido pela chave antiga mesmo que o atributo de onde ela veio tenha mudado.
+ * Não aceita chaves nem valores nulos. Não é sincronizado.
+ *
+ * @param <K> O tipo das chaves.
+ * @param <V> O tipo dos valores.
+ */
+public class MapaAVL<K, V> implements Iterable<V> {
+
+    private final Comparator<? super K> comparador;
+    private No<K, V> raiz;
+
+    // Pilha reaproveitada com os nós visitados na descida de inserir/remover.
+    private final No<K, V>[] caminho = novosNos(MapaAVLInt.ALTURA_MAXIMA);
+
+    /**
+     * Cria um mapa vazio.
+     * @param comparador A ordem das chaves.
+     */
+    public MapaAVL(Comparator<? super K> comparador) {
+        this.comparador = Objects.requireNonNull(comparador, "comparador");
+    }
+
+    /**
+     * Constrói um mapa perfeitamente balanceado, em O(n), a partir de pares já em
+     * ordem estritamente crescente de chave.
+     * @param comparador A ordem das chaves.
+     * @param chaves As chaves, ordenadas e sem repetições.
+     * @param valores Os valores, na mesma posição das suas chaves.
+     * @return Um novo mapa com os pares.
+     */
+    public static <K, V> MapaAVL<K, V> deOrdenados(Comparator<? super K> comparador, List<K> chaves, List<V> valores) {
+        MapaAVL<K, V> mapa = new MapaAVL<>(comparador);
+        mapa.raiz = construir(chaves, valores, 0, chaves.size() - 1);
+        return mapa;
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    /**
+     * Busca o valor de uma chave, descendo iterativamente a partir da raiz.
+     * @param chave A chave buscada.
+     * @return O valor se encontrado, caso contrário, null.
+     */
+    public V obter(K chave) {
+        No<K, V> atual = this.raiz;
+        while (atual != null) {
+            int c = comparador.compare(chave, atual.chave);
+            if (c == 0) return atual.valor;
+            atual = (c < 0) ? atual.esquerda : atual.direita;
+        }
+        return null;
+    }
+
+    /**
+     * Verifica se a chave está no mapa.
+     * @param chave A chave buscada.
+     * @return true se houver um valor com essa chave.
+     */
+    public boolean contem(K chave) {
+        return obter(chave) != null;
+    }
+
+    /**
+     * Insere um valor em uma única descida, se a chave ainda não existir.
+     * @param chave A chave do valor.
+     * @param valor O valor a ser inserido.
+     * @return true se o valor foi inserido, false se a chave já existir (o valor antigo é mantido).
+     */
+    public boolean inserir(K chave, V valor) {
+        return inserirOuTrocar(chave, valor, false) == null;
+    }
+
+    /**
+     * Associa o valor à chave em uma única descida, trocando o valor anterior se houver.
+     * @param chave A chave do valor.
+     * @param valor O novo valor.
+     * @return O valor anterior, ou null se a chave não existia.
+     */
+    public V colocar(K chave, V valor) {
+        return inserirOuTrocar(chave, valor, true);
+    }
+
+    /**
+     * Remove uma chave em uma única descida.
+     * @param chave A chave a ser removida.
+     * @return O valor removido, ou null se a chave não foi encontrada.
+     */
+    public V remover(K chave) {
+        int profundidade = 0;
+        No<K, V> atual = this.raiz;
+        while (atual != null) {
+            int c = comparador.compare(chave, atual.chave);
+            if (c == 0) break;
+            caminho[profundidade++] = atual;
+            atual = (c < 0) ? atual.esquerda : atual.direita;
+        }
+
+        if (atual == null) {
+            limparCaminho(profundidade);
+            return null;
+        }
+        V removido = atual.valor;
+
+        // Nó com dois filhos: copia o sucessor in-order e passa a remover o nó dele.
+        if (atual.esquerda != null && atual.direita != null) {
+            caminho[profundidade++] = atual;
+            No<K, V> sucessor = atual.direita;
+            while (sucessor.esquerda != null) {
+                caminho[profundidade++] = sucessor;
+                sucessor = sucessor.esquerda;
+            }
+            atual.chave = sucessor.chave;
+            atual.valor = sucessor.valor;
+            atual = sucessor;
+        }
+
+        // Nó com um ou nenhum filho: o filho (ou null) ocupa o lugar dele.
+        No<K, V> filho = (atual.esquerda != null) ? atual.esquerda : atual.direita;
+        substituirFilho(profundidade, atual, filho);
+
+        rebalancearCaminho(profundidade);
+        return removido;
+    }
+
+    /**
+     * Retorna a quantidade de valores no mapa, em O(1).
+     * @return O número de valores armazenados.
+     */
+    public int tamanho() {
+        return tamanho(this.raiz);
+    }
+
+    /**
+     * Lista os valores com chave dentro da faixa, em ordem de chave.
+     * @param minimo A menor chave da faixa (inclusiva), ou null para não limitar por baixo.
+     * @param maximo A maior chave da faixa (inclusiva), ou null para não limitar por cima.
+     * @param limite O máximo de valores retornados.
+     * @return Os valores encontrados.
+     */
+    public List<V> intervalo(K minimo, K maximo, int limite) {
+        List<V> resultado = new ArrayList<>();
+        coletar(raiz, minimo, maximo, limite, resultado);
+        return resultado;
+    }
+
+    /**
+     * Lista os valores com chave estritamente menor que a informada, em ordem de chave.
+     * @param chave O limite superior (exclusivo).
+     * @param limite O máximo de valores retornados.
+     * @return Os valores encontrados.
+     */
+    public List<V> menoresQue(K chave, int limite) {
+        List<V> resultado = new ArrayList<>();
+        coletarMenores(raiz, chave, limite, resultado);
+        return resultado;
+    }
+
+    /**
+     * Conta os valores com chave dentro da faixa, em O(log n), sem percorrê-la.
+     * @param minimo A menor chave da faixa (inclusiva), ou null para não limitar por baixo.
+     * @param maximo A maior chave da faixa (inclusiva), ou null para não limitar por cima.
+     * @return A quantidade de valores na faixa.
+     */
+    public int contarIntervalo(K minimo, K maximo) {
+        int ateMaximo = (maximo == null) ? tamanho() : contarAte(maximo, true);
+        int antesMinimo = (minimo == null) ? 0 : contarAte(minimo, false);
+        return Math.max(0, ateMaximo - antesMinimo);
+    }
+
+    /**
+     * Percorre os valores em ordem crescente de chave, com pilha explícita.
+     * O mapa não deve ser alterado durante o percurso.
+     * @return Um iterador sobre os valores.
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<>() {
+            private final No<K, V>[] pilha = novosNos(MapaAVLInt.ALTURA_MAXIMA);
+            private int topo = empilharEsquerda(raiz, 0);
+
+            private int empilharEsquerda(No<K, V> no, int inicio) {
+                for (No<K, V> n = no; n != null; n = n.esquerda) pilha[inicio++] = n;
+                return inicio;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return topo > 0;
+            }
+
+            @Override
+            public V next() {
+                if (topo == 0) throw new NoSuchElementException();
+                No<K, V> no = pilha[--topo];
+                topo = empilharEsquerda(no.direita, topo);
+                return no.valor;
+            }
+        };
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Inserção em uma descida: se a chave já existe, troca o valor (quando pedido) e
+     * não altera a estrutura; senão, cria uma folha e rebalanceia o caminho.
+     * @return O valor que já estava na chave, ou null se ela foi inserida agora.
+     */
+    private V inserirOuTrocar(K chave, V valor, boolean trocar) {
+        Objects.requireNonNull(chave, "chave");
+        Objects.requireNonNull(valor, "valor");
+        if (this.raiz == null) {
+            this.raiz = new No<>(chave, valor);
+            return null;
+        }
+
+        int profundidade = 0;
+        No<K, V> atual = this.raiz;
+        while (true) {
+            caminho[profundidade++] = atual;
+            int c = comparador.compare(chave, atual.chave);
+            if (c == 0) {
+                limparCaminho(profundidade);
+                V anterior = atual.valor;
+                if (trocar) atual.valor = valor;
+                return anterior;
+            }
+
+            No<K, V> proximo = (c < 0) ? atual.esquerda : atual.direita;
+            if (proximo == null) {
+                if (c < 0) atual.esquerda = new No<>(chave, valor);
+                else atual.direita = new No<>(chave, valor);
+                break;
+            }
+            atual = proximo;
+        }
+
+        rebalancearCaminho(profundidade);
+        return null;
+    }
+
+    private static int altura(No<?, ?> n) {
+        return (n == null) ? 0 : n.altura;
+    }
+
+    private static int tamanho(No<?, ?> n) {
+        return (n == null) ? 0 : n.tamanho;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> No<K, V>[] novosNos(int tamanho) {
+        return new No[tamanho]; // Arrays de tipo genérico só com a conversão não verificada
+    }
+
+    private static void atualizarAlturaETamanho(No<?, ?> no) {
+        no.altura = 1 + Math.max(altura(no.esquerda), altura(no.direita));
+        no.tamanho = 1 + tamanho(no.esquerda) + tamanho(no.direita);
+    }
+
+    /**
+     * Monta a subárvore balanceada dos pares em [inicio..fim], já ordenados.
+     */
+    private static <K, V> No<K, V> construir(List<K> chaves, List<V> valores, int inicio, int fim) {
+        if (inicio > fim) return null;
+
+        int meio = (inicio + fim) >>> 1;
+        No<K, V> no = new No<>(chaves.get(meio), valores.get(meio));
+        no.esquerda = construir(chaves, valores, inicio, meio - 1);
+        no.direita = construir(chaves, valores, meio + 1, fim);
+        atualizarAlturaETamanho(no);
+        return no;
+    }
+
+    /**
+     * Conta as chaves menores (ou menores ou iguais) à informada, em uma descida.
+     */
+    private int contarAte(K chave, boolean inclusivo) {
+        int contagem = 0;
+        No<K, V> atual = this.raiz;
+        while (atual != null) {
+            int c = comparador.compare(chave, atual.chave);
+            if (c > 0 || (inclusivo && c == 0)) {
+                contagem += tamanho(atual.esquerda) + 1;
+                atual = atual.direita;
+            } else {
+                atual = atual.esquerda;
+            }
+        }
+        return contagem;
+    }
+
+    /**
+     * Realiza o balanceamento de um nó, aplicando as rotações necessárias.
+     * @return O nó balanceado (a nova raiz da subárvore).
+     */
+    private static <K, V> No<K, V> balancear(No<K, V> no) {
+        atualizarAlturaETamanho(no);
+        int saldo = altura(no.esquerda) - altura(no.direita);
+
+        if (saldo > 1) {
+            // Rotação Dupla à Direita (Esquerda-Direita)
+            if (altura(no.esquerda.esquerda) < altura(no.esquerda.direita)) no.esquerda = rotacaoEsquerda(no.esquerda);
+            return rotacaoDireita(no);
+        }
+        if (saldo < -1) {
+            // Rotação Dupla à Esquerda (Direita-Esquerda)
+            if (altura(no.direita.direita) < altura(no.direita.esquerda)) no.direita = rotacaoDireita(no.direita);
+            return rotacaoEsquerda(no);
+        }
+        return no;
+    }
+
+    /**
+     * Rebalanceia, de baixo para cima, os nós guardados em {@code caminho[0..profundidade)},
+     * parando as rotações quando a altura de uma subárvore não muda.
+     */
+    private void rebalancearCaminho(int profundidade) {
+        for (int i = profundidade - 1; i >= 0; i--) {
+            No<K, V> no = caminho[i];
+            caminho[i] = null;
+
+            int alturaAnterior = no.altura;
+            No<K, V> novaRaiz = balancear(no);
+            substituirFilho(i, no, novaRaiz);
+
+            if (novaRaiz.altura == alturaAnterior) {
+                for (int j = i - 1; j >= 0; j--) {
+                    No<K, V> ancestral = caminho[j];
+                    caminho[j] = null;
+                    ancestral.tamanho = 1 + tamanho(ancestral.esquerda) + tamanho(ancestral.direita);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Faz o pai de um nó do caminho (ou a raiz) apontar para um novo nó.
+     */
+    private void substituirFilho(int profundidade, No<K, V> antigo, No<K, V> novo) {
+        if (profundidade == 0) {
+            this.raiz = novo;
+            return;
+        }
+        No<K, V> pai = caminho[profundidade - 1];
+        if (pai.esquerda == antigo) pai.esquerda = novo;
+        else pai.direita = novo;
+    }
+
+    private void limparCaminho(int profundidade) {
+        for (int i = 0; i < profundidade; i++) caminho[i] = null;
+    }
+
+    // ###### ROTAÇÕES ######
+
+    private static <K, V> No<K, V> rotacaoDireita(No<K, V> y) {
+        No<K, V> x = y.esquerda;
+        y.esquerda = x.direita;
+        x.direita = y;
+        atualizarAlturaETamanho(y);
+        atualizarAlturaETamanho(x);
+        return x;
+    }
+
+    private static <K, V> No<K, V> rotacaoEsquerda(No<K, V> x) {
+        No<K, V> y = x.direita;
+        x.direita = y.esquerda;
+        y.esquerda = x;
+        atualizarAlturaETamanho(x);
+        atualizarAlturaETamanho(y);
+        return y;
+    }
+
+    // ###### MÉTODOS DE RECURSÃO ######
+
+    /**
+     * Percorre em ordem só as subárvores que podem ter chaves dentro da faixa.
+     * Um limite já garantido para a subárvore inteira (ex.: à esquerda de um nó que
+     * está abaixo do máximo, tudo está abaixo do máximo) é passado como null, então
+     * o miolo da faixa é percorrido sem nenhuma comparação.
+     * @return false quando o limite foi atingido (interrompe o percurso).
+     */
+    private boolean coletar(No<K, V> no, K minimo, K maximo, int limite, List<V> resultado) {
+        if (no == null) return true;
+        boolean acimaDoMinimo = minimo == null || comparador.compare(no.chave, minimo) >= 0;
+        boolean abaixoDoMaximo = maximo == null || comparador.compare(no.chave, maximo) <= 0;
+
+        if (acimaDoMinimo && !coletar(no.esquerda, minimo, abaixoDoMaximo ? null : maximo, limite, resultado)) {
+            return false;
+        }
+        if (acimaDoMinimo && abaixoDoMaximo) {
+            if (resultado.size() >= limite) return false;
+            resultado.add(no.valor);
+        }
+        if (abaixoDoMaximo) return coletar(no.direita, acimaDoMinimo ? null : minimo, maximo, limite, resultado);
+        return true;
+    }
+
+    /**
+     * Percorre em ordem os nós com chave menor que a informada. À esquerda de um nó
+     * menor que ela, tudo é menor: a chave é passada como null e não há mais comparações.
+     * @return false quando o limite foi atingido ou apareceu uma chave maior ou igual.
+     */
+    private boolean coletarMenores(No<K, V> no, K chave, int limite, List<V> resultado) {
+        if (no == null) return true;
+        boolean abaixo = chave == null || comparador.compare(no.chave, chave) < 0;
+        if (!coletarMenores(no.esquerda, abaixo ? null : chave, limite, resultado)) return false;
+        if (!abaixo) return false; // Daqui em diante, tudo é maior ou igual
+        if (resultado.size() >= limite) return false;
+        resultado.add(no.valor);
+        return coletarMenores(no.direita, chave, limite, resultado);
+    }
+
+    /**
+     * Nó do mapa: a chave, o valor e os dados da AVL.
+     */
+    private static final class No<K, V> {
+        private K chave;
+        private V valor;
+        private No<K, V> esquerda;
+        private No<K, V> direita;
+        private int altura = 1;
+        private int tamanho = 1;
+
+        private No(K chave, V valor) {
+            this.chave = chave;
+            this.valor = valor;
+        }
+    }
+}
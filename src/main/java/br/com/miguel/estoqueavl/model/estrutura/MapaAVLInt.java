@@ -0,0 +1,1143 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.metricas.Metricas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+// Classe que representa uma AVL com chaves int
+
+/**
+ * Mapa ordenado de chaves {@code int} para valores, implementado como Árvore AVL.
+ *
+ * É o motor da {@link ArvoreAVL} (produtos por ID), separado para poder guardar
+ * outros cadastros indexados por um código inteiro (fornecedores, locais...).
+ * A chave fica no próprio nó como {@code int}: a descida compara números sem
+ * criar objetos (sem boxing) e sem ler o valor guardado em cada passo.
+ *
+ * Inserção e remoção descem a árvore uma única vez, de forma iterativa, e
+ * rebalanceiam de baixo para cima com uma pilha reaproveitada. Cada nó guarda o
+ * tamanho da sua subárvore, o que dá rank, select e contagem de intervalos em O(log n).
+ *
+ * As operações de conjunto (união, interseção e diferença por chave) são feitas com
+ * as primitivas de junção (join) e divisão (split) da AVL, em O(m log(n/m + 1)) para
+ * mapas de tamanhos m <= n, com as duas metades de cada passo em paralelo (fork-join).
+ *
+ * {@link #instantaneo()} tira uma cópia do mapa em O(1), sem copiar nenhum nó: os dois
+ * passam a compartilhar a árvore, e cada escrita posterior (em qualquer um deles) copia
+ * só os O(log n) nós do caminho que altera (cópia de caminho). Para isso cada mapa tem
+ * uma geração única, e cada nó guarda a geração do mapa que o criou: um mapa só altera
+ * no lugar os nós da sua geração, e troca de geração sempre que os nós dele passam a
+ * ser vistos por outro mapa (instantâneo, separar, concatenar).
+ *
+ * Não aceita valores nulos. Não é sincronizado.
+ *
+ * @param <V> O tipo dos valores.
+ */
+public class MapaAVLInt<V> implements Iterable<V> {
+
+    /**
+     * Altura máxima suportada pelo caminho de descida. Uma AVL com 2^31 nós tem
+     * altura no máximo ~45, então 64 posições bastam.
+     */
+    static final int ALTURA_MAXIMA = 64;
+
+    /**
+     * Quando o menor dos dois lados tem menos nós que isto, as operações de conjunto não
+     * dividem mais o trabalho entre threads: o trabalho restante é proporcional ao lado
+     * menor, e o custo da tarefa passaria o dele.
+     */
+    private static final int LIMIAR_PARALELO = 1 << 13;
+
+    /**
+     * Quando o outro lado de uma operação de conjunto tem até esta quantidade de nós,
+     * as chaves dele são inseridas, removidas ou buscadas uma a uma na subárvore, sem
+     * dividi-la: nas subárvores pequenas, o split e o join custam mais que as descidas.
+     */
+    private static final int LIMIAR_SEQUENCIAL = 32;
+
+    // Fonte das gerações: cada mapa (e cada troca de geração) recebe um número novo.
+    private static final AtomicInteger GERACOES = new AtomicInteger();
+
+    private No<V> raiz;
+
+    // Só os nós com esta geração pertencem a este mapa e podem ser alterados no lugar;
+    // os outros podem estar compartilhados com um instantâneo e são copiados antes.
+    private int geracao = GERACOES.incrementAndGet();
+
+    // Pilha reaproveitada com os nós visitados na descida de inserir/remover,
+    // usada para rebalancear de baixo para cima sem recursão e sem alocação.
+    private final No<V>[] caminho = novosNos(ALTURA_MAXIMA);
+
+    // Construtor do mapa. Inicializa a raiz como nula
+    public MapaAVLInt() {
+        this.raiz = null;
+    }
+
+    /**
+     * Constrói um mapa perfeitamente balanceado, em O(n), a partir de valores já
+     * em ordem estritamente crescente de chave.
+     * @param valores Os valores, ordenados pela chave e sem chaves repetidas.
+     * @param quantidade Quantos valores do início do array usar.
+     * @param extrairChave Função que obtém a chave de cada valor.
+     * @return Um novo mapa com os valores.
+     */
+    public static <V> MapaAVLInt<V> deOrdenados(V[] valores, int quantidade, ToIntFunction<? super V> extrairChave) {
+        MapaAVLInt<V> mapa = new MapaAVLInt<>();
+        mapa.raiz = construir(valores, 0, quantidade - 1, extrairChave, mapa.geracao);
+        return mapa;
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    /**
+     * Busca o valor de uma chave, descendo iterativamente a partir da raiz.
+     * @param chave A chave buscada.
+     * @return O valor se encontrado, caso contrário, null.
+     */
+    public V obter(int chave) {
+        No<V> atual = this.raiz;
+        while (atual != null) {
+            if (chave == atual.chave) return atual.valor;
+            atual = (chave < atual.chave) ? atual.esquerda : atual.direita;
+        }
+        return null;
+    }
+
+    /**
+     * Verifica se a chave está no mapa.
+     * @param chave A chave buscada.
+     * @return true se houver um valor com essa chave.
+     */
+    public boolean contem(int chave) {
+        return obter(chave) != null;
+    }
+
+    /**
+     * Insere um valor em uma única descida, se a chave ainda não existir.
+     * @param chave A chave do valor.
+     * @param valor O valor a ser inserido.
+     * @return true se o valor foi inserido, false se a chave já existir (o valor antigo é mantido).
+     */
+    public boolean inserir(int chave, V valor) {
+        return inserirOuTrocar(chave, valor, false) == null;
+    }
+
+    /**
+     * Associa o valor à chave em uma única descida, trocando o valor anterior se houver.
+     * @param chave A chave do valor.
+     * @param valor O novo valor.
+     * @return O valor anterior, ou null se a chave não existia.
+     */
+    public V colocar(int chave, V valor) {
+        return inserirOuTrocar(chave, valor, true);
+    }
+
+    /**
+     * Remove uma chave em uma única descida.
+     * @param chave A chave a ser removida.
+     * @return O valor removido, ou null se a chave não foi encontrada.
+     */
+    public V remover(int chave) {
+        int profundidade = 0;
+        No<V> atual = this.raiz;
+        while (atual != null) {
+            if (chave == atual.chave) break;
+            caminho[profundidade++] = atual;
+            atual = (chave < atual.chave) ? atual.esquerda : atual.direita;
+        }
+
+        if (atual == null) {
+            limparCaminho(profundidade);
+            return null;
+        }
+        V removido = atual.valor;
+
+        // Nó com dois filhos: copia o sucessor in-order (menor na subárvore direita)
+        // e passa a remover o nó do sucessor, que não tem filho à esquerda.
+        int encontrado = -1;
+        if (atual.esquerda != null && atual.direita != null) {
+            encontrado = profundidade;
+            caminho[profundidade++] = atual;
+            No<V> sucessor = atual.direita;
+            while (sucessor.esquerda != null) {
+                caminho[profundidade++] = sucessor;
+                sucessor = sucessor.esquerda;
+            }
+            atual = sucessor;
+        }
+
+        possuirCaminho(profundidade);
+        if (encontrado >= 0) {
+            caminho[encontrado].chave = atual.chave;
+            caminho[encontrado].valor = atual.valor;
+        }
+
+        // Nó com um ou nenhum filho: o filho (ou null) ocupa o lugar dele.
+        No<V> filho = (atual.esquerda != null) ? atual.esquerda : atual.direita;
+        substituirFilho(profundidade, atual, filho);
+
+        rebalancearCaminho(profundidade);
+        return removido;
+    }
+
+    /**
+     * Retorna a quantidade de valores no mapa, em O(1).
+     * @return O número de valores armazenados.
+     */
+    public int tamanho() {
+        return tamanho(this.raiz);
+    }
+
+    /**
+     * Retorna a altura da árvore (0 se vazia), em O(1).
+     * @return A quantidade de nós no caminho mais longo da raiz até uma folha.
+     */
+    public int altura() {
+        return altura(this.raiz);
+    }
+
+    /**
+     * Calcula a posição (rank) de uma chave na ordem crescente.
+     * @param chave A chave de referência (não precisa existir no mapa).
+     * @return A quantidade de chaves menores que a informada.
+     */
+    public int rank(int chave) {
+        return contarMenores(chave, false);
+    }
+
+    /**
+     * Retorna o k-ésimo valor na ordem crescente de chave.
+     * @param k A posição desejada, começando em 0.
+     * @return O valor na posição k, ou null se k estiver fora de [0, tamanho()).
+     */
+    public V select(int k) {
+        if (k < 0 || k >= tamanho()) return null;
+
+        No<V> atual = this.raiz;
+        while (true) {
+            int tamanhoEsquerda = tamanho(atual.esquerda);
+            if (k < tamanhoEsquerda) {
+                atual = atual.esquerda;
+            } else if (k == tamanhoEsquerda) {
+                return atual.valor;
+            } else {
+                k -= tamanhoEsquerda + 1;
+                atual = atual.direita;
+            }
+        }
+    }
+
+    /**
+     * Conta quantas chaves estão no intervalo fechado [inicio, fim].
+     * @param inicio A menor chave do intervalo.
+     * @param fim A maior chave do intervalo.
+     * @return A quantidade de chaves no intervalo (0 se inicio > fim).
+     */
+    public int contarIntervalo(int inicio, int fim) {
+        if (inicio > fim) return 0;
+        return contarMenores(fim, true) - contarMenores(inicio, false);
+    }
+
+    /**
+     * Retorna uma página de valores na ordem crescente de chave, em O(log n + limite),
+     * sem materializar o mapa inteiro.
+     * @param deslocamento A posição do primeiro valor da página (começando em 0).
+     * @param limite A quantidade máxima de valores na página.
+     * @return Os valores da página (vazia se o deslocamento passar do fim).
+     */
+    public List<V> pagina(int deslocamento, int limite) {
+        int total = tamanho();
+        if (deslocamento < 0 || limite <= 0 || deslocamento >= total) return new ArrayList<>();
+
+        List<V> lista = new ArrayList<>(Math.min(limite, total - deslocamento));
+        No<V>[] pilha = novosNos(ALTURA_MAXIMA);
+        int topo = 0;
+
+        // Desce até o valor da posição "deslocamento", empilhando os nós
+        // que ainda vêm depois dele na ordem (aqueles de onde descemos à esquerda).
+        No<V> atual = this.raiz;
+        int k = deslocamento;
+        while (atual != null) {
+            int tamanhoEsquerda = tamanho(atual.esquerda);
+            if (k < tamanhoEsquerda) {
+                pilha[topo++] = atual;
+                atual = atual.esquerda;
+            } else if (k == tamanhoEsquerda) {
+                pilha[topo++] = atual;
+                break;
+            } else {
+                k -= tamanhoEsquerda + 1;
+                atual = atual.direita;
+            }
+        }
+
+        // Continua o percurso em ordem a partir dali.
+        while (topo > 0 && lista.size() < limite) {
+            No<V> no = pilha[--topo];
+            lista.add(no.valor);
+            for (No<V> n = no.direita; n != null; n = n.esquerda) {
+                pilha[topo++] = n;
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Tira deste mapa as chaves maiores ou iguais à informada e as devolve em um novo
+     * mapa, em O(log n), reaproveitando os nós (split da AVL).
+     * @param chave A primeira chave do novo mapa.
+     * @return Um mapa com as chaves >= chave; este fica com as menores.
+     */
+    public MapaAVLInt<V> separar(int chave) {
+        Divisao<V> divisao = new Divisao<>();
+        dividir(this.raiz, chave, divisao, geracao);
+        this.raiz = divisao.menores;
+
+        MapaAVLInt<V> maiores = new MapaAVLInt<>();
+        maiores.raiz = (divisao.encontrado != null) ? juntar(null, divisao.encontrado, divisao.maiores, geracao) : divisao.maiores;
+        this.geracao = GERACOES.incrementAndGet(); // O novo mapa ficou com nós desta geração
+        return maiores;
+    }
+
+    /**
+     * Acrescenta ao fim deste mapa todas as chaves de outro, em O(log n), reaproveitando
+     * os nós (join da AVL). O outro mapa fica vazio.
+     * @param maiores Um mapa cujas chaves são todas maiores que as deste.
+     * @throws IllegalArgumentException Se as chaves dos dois mapas se intercalarem.
+     */
+    public void concatenar(MapaAVLInt<V> maiores) {
+        if (maiores == this) throw new IllegalArgumentException("Um mapa não pode ser concatenado a si mesmo.");
+        if (this.raiz != null && maiores.raiz != null && maximo(this.raiz).chave >= minimo(maiores.raiz).chave) {
+            throw new IllegalArgumentException("As chaves do mapa concatenado precisam ser maiores que as deste.");
+        }
+        this.raiz = juntar(this.raiz, maiores.raiz, geracao);
+        maiores.raiz = null;
+        maiores.geracao = GERACOES.incrementAndGet(); // Os nós dele agora são vistos por este
+    }
+
+    /**
+     * Transforma este mapa na união dele com outro: acrescenta as chaves do outro que
+     * ainda não existem aqui (as que existem mantêm o valor deste mapa). O outro não muda.
+     * @param outro O mapa a unir.
+     * @return Quantas chaves foram acrescentadas.
+     */
+    public int uniao(MapaAVLInt<V> outro) {
+        return aplicarConjunto(Conjunto.UNIAO, outro);
+    }
+
+    /**
+     * Transforma este mapa na interseção dele com outro: mantém só as chaves que também
+     * existem no outro (com os valores deste mapa). O outro não muda.
+     * @param outro O mapa a intersectar.
+     * @return Quantas chaves foram retiradas.
+     */
+    public int intersecao(MapaAVLInt<V> outro) {
+        return -aplicarConjunto(Conjunto.INTERSECAO, outro);
+    }
+
+    /**
+     * Transforma este mapa na diferença dele com outro: retira as chaves que existem
+     * no outro. O outro não muda.
+     * @param outro O mapa com as chaves a retirar.
+     * @return Quantas chaves foram retiradas.
+     */
+    public int diferenca(MapaAVLInt<V> outro) {
+        return -aplicarConjunto(Conjunto.DIFERENCA, outro);
+    }
+
+    /**
+     * Tira um instantâneo do mapa em O(1): um novo mapa com o conteúdo atual, que
+     * compartilha os nós com este. Nenhum nó compartilhado é alterado depois: as escritas
+     * nos dois mapas copiam os nós do caminho que alteram. Assim o instantâneo pode ser
+     * percorrido por outra thread, sem trava, enquanto este mapa continua sendo alterado.
+     *
+     * Só troca a geração deste mapa, então pode ser chamado junto com outras leituras
+     * (sob uma trava de leitura), mas não junto com uma escrita.
+     * @return Um mapa independente com o conteúdo atual.
+     */
+    public MapaAVLInt<V> instantaneo() {
+        MapaAVLInt<V> copia = new MapaAVLInt<>();
+        copia.raiz = this.raiz;
+        this.geracao = GERACOES.incrementAndGet();
+        return copia;
+    }
+
+    /**
+     * Percorre os valores em ordem crescente de chave sob demanda, usando uma pilha
+     * explícita em vez de recursão. O mapa não deve ser alterado durante o percurso.
+     * @return Um iterador sobre os valores.
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Retorna um Spliterator ordenado sobre todos os valores. Ele se divide nas
+     * fronteiras das subárvores, então um stream paralelo distribui o trabalho
+     * entre os núcleos sem copiar o mapa.
+     * @return Um Spliterator sobre os valores.
+     */
+    @Override
+    public Spliterator<V> spliterator() {
+        return new SpliteratorAVL<>(this.raiz, Integer.MIN_VALUE, Integer.MAX_VALUE, tamanho());
+    }
+
+    /**
+     * Retorna um Spliterator sobre os valores com chave no intervalo fechado [inicio, fim].
+     * Só os nós do intervalo são visitados, além de um caminho de O(log n) até o primeiro deles.
+     * @param inicio A menor chave do intervalo.
+     * @param fim A maior chave do intervalo.
+     * @return Um Spliterator sobre os valores do intervalo.
+     */
+    public Spliterator<V> spliterator(int inicio, int fim) {
+        return new SpliteratorAVL<>(this.raiz, inicio, fim, contarIntervalo(inicio, fim));
+    }
+
+    /**
+     * Variante de obter usada pela leitura otimista (sem trava) da {@link ArvoreAVLConcorrente}.
+     * Um escritor pode estar rotacionando a árvore ao mesmo tempo, então a descida é limitada
+     * a ALTURA_MAXIMA passos e tolera referências nulas. O resultado só vale se o chamador
+     * validar depois que nenhuma escrita aconteceu durante a leitura.
+     * @param chave A chave buscada.
+     * @return O valor encontrado, ou null (que também pode indicar uma leitura inconsistente).
+     */
+    V obterOtimista(int chave) {
+        No<V> atual = this.raiz;
+        for (int passos = 0; atual != null && passos < ALTURA_MAXIMA; passos++) {
+            int chaveAtual = atual.chave;
+            if (chave == chaveAtual) return atual.valor;
+            atual = (chave < chaveAtual) ? atual.esquerda : atual.direita;
+        }
+        return null;
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Inserção em uma descida: se a chave já existe, troca o valor (quando pedido) e
+     * não altera a estrutura; senão, cria uma folha e rebalanceia o caminho.
+     * @return O valor que já estava na chave, ou null se ela foi inserida agora.
+     */
+    private V inserirOuTrocar(int chave, V valor, boolean trocar) {
+        Objects.requireNonNull(valor, "valor");
+        if (this.raiz == null) {
+            this.raiz = new No<>(chave, valor, geracao);
+            return null;
+        }
+
+        int profundidade = 0;
+        No<V> atual = this.raiz;
+        while (true) {
+            caminho[profundidade++] = atual;
+            if (chave == atual.chave) {
+                V anterior = atual.valor;
+                if (trocar) {
+                    possuirCaminho(profundidade);
+                    caminho[profundidade - 1].valor = valor;
+                }
+                limparCaminho(profundidade);
+                return anterior;
+            }
+
+            No<V> proximo = (chave < atual.chave) ? atual.esquerda : atual.direita;
+            if (proximo == null) break;
+            atual = proximo;
+        }
+
+        possuirCaminho(profundidade);
+        No<V> pai = caminho[profundidade - 1];
+        if (chave < pai.chave) pai.esquerda = new No<>(chave, valor, geracao);
+        else pai.direita = new No<>(chave, valor, geracao);
+
+        rebalancearCaminho(profundidade);
+        return null;
+    }
+
+    /**
+     * Retorna a altura de um nó.
+     * @param n O nó para calcular a altura.
+     * @return A altura do nó, ou 0 se o nó for nulo.
+     */
+    private static int altura(No<?> n) {
+        return (n == null) ? 0 : n.altura;
+    }
+
+    /**
+     * Retorna o tamanho da subárvore de um nó.
+     * @param n O nó raiz da subárvore.
+     * @return A quantidade de nós da subárvore, ou 0 se o nó for nulo.
+     */
+    private static int tamanho(No<?> n) {
+        return (n == null) ? 0 : n.tamanho;
+    }
+
+    /**
+     * Cria um array de nós. O Java não cria arrays de tipo genérico, então este é o
+     * único ponto com a conversão não verificada (o array nunca sai da classe).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V> No<V>[] novosNos(int tamanho) {
+        return new No[tamanho];
+    }
+
+    /**
+     * Monta a subárvore balanceada de {@code valores[inicio..fim]} usando o elemento do meio
+     * como raiz. As alturas das duas metades diferem no máximo em 1, então o resultado já é AVL.
+     * @return A raiz da subárvore, ou null se o intervalo for vazio.
+     */
+    private static <V> No<V> construir(V[] valores, int inicio, int fim, ToIntFunction<? super V> extrairChave, int geracao) {
+        if (inicio > fim) return null;
+
+        int meio = (inicio + fim) >>> 1;
+        No<V> no = new No<>(extrairChave.applyAsInt(valores[meio]), valores[meio], geracao);
+        no.esquerda = construir(valores, inicio, meio - 1, extrairChave, geracao);
+        no.direita = construir(valores, meio + 1, fim, extrairChave, geracao);
+        atualizarAlturaETamanho(no);
+        return no;
+    }
+
+    /**
+     * Conta as chaves menores (ou menores ou iguais) à informada, em uma descida.
+     * @param chave A chave de referência.
+     * @param inclusivo Se true, conta também a própria chave.
+     * @return A quantidade de chaves encontrada.
+     */
+    private int contarMenores(int chave, boolean inclusivo) {
+        int contagem = 0;
+        No<V> atual = this.raiz;
+        while (atual != null) {
+            if (chave > atual.chave || (inclusivo && chave == atual.chave)) {
+                contagem += tamanho(atual.esquerda) + 1;
+                atual = atual.direita;
+            } else {
+                atual = atual.esquerda;
+            }
+        }
+        return contagem;
+    }
+
+    /**
+     * Calcula o fator de balanceamento de um nó.
+     * @param n O nó para calcular o fator de balanceamento.
+     * @return O fator de balanceamento do nó.
+     */
+    private static int getFatorBalanceamento(No<?> n) {
+        return (n == null) ? 0 : altura(n.esquerda) - altura(n.direita);
+    }
+
+    /**
+     * Atualiza a altura e o tamanho da subárvore de um nó com base em seus filhos.
+     * @param no O nó a ser atualizado.
+     */
+    private static void atualizarAlturaETamanho(No<?> no) {
+        no.altura = 1 + Math.max(altura(no.esquerda), altura(no.direita));
+        no.tamanho = 1 + tamanho(no.esquerda) + tamanho(no.direita);
+    }
+
+    /**
+     * Realiza o balanceamento de um nó, aplicando as rotações necessárias.
+     * @param no O nó a ser balanceado (copiado antes, se não for da geração).
+     * @param geracao A geração do mapa que está sendo alterado.
+     * @return O nó balanceado (a nova raiz da subárvore).
+     */
+    private static <V> No<V> balancear(No<V> no, int geracao) {
+        no = proprio(no, geracao);
+        atualizarAlturaETamanho(no);
+        int saldo = getFatorBalanceamento(no);
+
+        // Rotação Simples à Direita
+        if (saldo > 1 && getFatorBalanceamento(no.esquerda) >= 0) {
+            Metricas.contar(Metricas.ROTACAO_DIREITA);
+            return rotacaoDireita(no, geracao);
+        }
+
+        // Rotação Dupla à Direita (Esquerda-Direita)
+        if (saldo > 1 && getFatorBalanceamento(no.esquerda) < 0) {
+            Metricas.contar(Metricas.ROTACAO_ESQUERDA_DIREITA);
+            no.esquerda = rotacaoEsquerda(no.esquerda, geracao);
+            return rotacaoDireita(no, geracao);
+        }
+
+        // Rotação Simples à Esquerda
+        if (saldo < -1 && getFatorBalanceamento(no.direita) <= 0) {
+            Metricas.contar(Metricas.ROTACAO_ESQUERDA);
+            return rotacaoEsquerda(no, geracao);
+        }
+
+        // Rotação Dupla à Esquerda (Direita-Esquerda)
+        if (saldo < -1 && getFatorBalanceamento(no.direita) > 0) {
+            Metricas.contar(Metricas.ROTACAO_DIREITA_ESQUERDA);
+            no.direita = rotacaoDireita(no.direita, geracao);
+            return rotacaoEsquerda(no, geracao);
+        }
+
+        return no;
+    }
+
+    /**
+     * Rebalanceia, de baixo para cima, os nós guardados em {@code caminho[0..profundidade)}.
+     * Quando a altura de uma subárvore não muda, os ancestrais não precisam de rotação:
+     * basta atualizar o tamanho deles.
+     * @param profundidade A quantidade de nós válidos no caminho.
+     */
+    private void rebalancearCaminho(int profundidade) {
+        for (int i = profundidade - 1; i >= 0; i--) {
+            No<V> no = caminho[i];
+            caminho[i] = null;
+
+            int alturaAnterior = no.altura;
+            No<V> novaRaiz = balancear(no, geracao);
+            substituirFilho(i, no, novaRaiz);
+
+            if (novaRaiz.altura == alturaAnterior) {
+                for (int j = i - 1; j >= 0; j--) {
+                    No<V> ancestral = caminho[j];
+                    caminho[j] = null;
+                    ancestral.tamanho = 1 + tamanho(ancestral.esquerda) + tamanho(ancestral.direita);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Faz o pai de um nó do caminho (ou a raiz) apontar para um novo nó.
+     * @param profundidade A posição do nó antigo no caminho; o pai está em profundidade - 1.
+     * @param antigo O nó que está sendo substituído.
+     * @param novo O nó que passa a ocupar o lugar dele (pode ser null).
+     */
+    private void substituirFilho(int profundidade, No<V> antigo, No<V> novo) {
+        if (profundidade == 0) {
+            this.raiz = novo;
+            return;
+        }
+        No<V> pai = caminho[profundidade - 1];
+        if (pai.esquerda == antigo) pai.esquerda = novo;
+        else pai.direita = novo;
+    }
+
+    /**
+     * Garante que os nós de {@code caminho[0..profundidade)} sejam deste mapa: de cima
+     * para baixo, troca cada nó ainda compartilhado com um instantâneo por uma cópia
+     * e religa a cópia ao pai (que já é deste mapa). Chamado antes de alterar o caminho.
+     * @param profundidade A quantidade de nós válidos no caminho.
+     */
+    private void possuirCaminho(int profundidade) {
+        for (int i = 0; i < profundidade; i++) {
+            No<V> no = caminho[i];
+            if (no.geracao == geracao) continue;
+            No<V> copia = proprio(no, geracao);
+            substituirFilho(i, no, copia);
+            caminho[i] = copia;
+        }
+    }
+
+    /**
+     * Libera as referências guardadas no caminho para não reter nós removidos.
+     * @param profundidade A quantidade de posições a limpar.
+     */
+    private void limparCaminho(int profundidade) {
+        for (int i = 0; i < profundidade; i++) caminho[i] = null;
+    }
+
+    // ###### JUNÇÃO E DIVISÃO ######
+
+    /** As operações de conjunto, todas feitas sobre a divisão deste mapa pelas raízes do outro. */
+    private enum Conjunto { UNIAO, INTERSECAO, DIFERENCA }
+
+    /**
+     * Resultado de uma divisão: as subárvores com as chaves menores e maiores, e o nó
+     * com a própria chave, se existia.
+     */
+    private static final class Divisao<V> {
+        private No<V> menores;
+        private No<V> encontrado;
+        private No<V> maiores;
+    }
+
+    /**
+     * Executa uma operação de conjunto sobre a raiz deste mapa. Mapas grandes vão para o
+     * pool comum do fork-join; os pequenos são feitos na própria thread.
+     * @return A variação no tamanho deste mapa.
+     */
+    private int aplicarConjunto(Conjunto operacao, MapaAVLInt<V> outro) {
+        int antes = tamanho();
+        if (outro == this) {
+            // A operação lê o outro mapa enquanto reaproveita os nós deste: não podem ser os mesmos.
+            if (operacao == Conjunto.DIFERENCA) this.raiz = null;
+            return tamanho() - antes;
+        }
+        if (Math.min(antes, outro.tamanho()) >= LIMIAR_PARALELO) {
+            this.raiz = ForkJoinPool.commonPool().invoke(new TarefaConjunto<>(operacao, this.raiz, outro.raiz, geracao));
+        } else {
+            this.raiz = combinar(operacao, this.raiz, outro.raiz, geracao);
+        }
+        return tamanho() - antes;
+    }
+
+    /**
+     * Combina recursivamente a subárvore {@code a} (cujos nós são reaproveitados) com a
+     * subárvore {@code b} (só lida): divide {@code a} pela chave da raiz de {@code b},
+     * combina as metades com os filhos de {@code b} e junta os resultados.
+     * @param geracao A geração do mapa de {@code a}; os nós alterados são dela.
+     * @return A raiz do resultado.
+     */
+    private static <V> No<V> combinar(Conjunto operacao, No<V> a, No<V> b, int geracao) {
+        switch (operacao) {
+            case UNIAO -> {
+                if (b == null) return a;
+                if (a == null) return copiar(b, geracao);
+            }
+            case INTERSECAO -> {
+                if (a == null || b == null) return null;
+            }
+            case DIFERENCA -> {
+                if (a == null || b == null) return a;
+            }
+        }
+
+        if (tamanho(b) <= LIMIAR_SEQUENCIAL) return combinarUmAUm(operacao, a, b, geracao);
+
+        boolean paralelo = Math.min(tamanho(a), tamanho(b)) >= LIMIAR_PARALELO;
+        Divisao<V> divisao = new Divisao<>();
+        dividir(a, b.chave, divisao, geracao);
+
+        No<V> esquerda;
+        No<V> direita;
+        if (paralelo) {
+            TarefaConjunto<V> tarefa = new TarefaConjunto<>(operacao, divisao.menores, b.esquerda, geracao);
+            tarefa.fork();
+            direita = combinar(operacao, divisao.maiores, b.direita, geracao);
+            esquerda = tarefa.join();
+        } else {
+            esquerda = combinar(operacao, divisao.menores, b.esquerda, geracao);
+            direita = combinar(operacao, divisao.maiores, b.direita, geracao);
+        }
+
+        return switch (operacao) {
+            case UNIAO -> juntar(esquerda, (divisao.encontrado != null) ? divisao.encontrado : new No<>(b.chave, b.valor, geracao), direita, geracao);
+            case INTERSECAO -> (divisao.encontrado != null) ? juntar(esquerda, divisao.encontrado, direita, geracao) : juntar(esquerda, direita, geracao);
+            case DIFERENCA -> juntar(esquerda, direita, geracao);
+        };
+    }
+
+    /**
+     * Caso base de {@link #combinar} para uma subárvore {@code b} pequena: percorre as
+     * chaves dela em ordem e insere, busca ou remove cada uma na subárvore {@code a}.
+     * @return A raiz do resultado.
+     */
+    private static <V> No<V> combinarUmAUm(Conjunto operacao, No<V> a, No<V> b, int geracao) {
+        No<V>[] nos = novosNos(tamanho(b));
+        coletar(b, nos, 0);
+
+        if (operacao == Conjunto.INTERSECAO) {
+            // Guarda os nós de "a" com as chaves de "b" e monta o resultado só com eles.
+            int quantidade = 0;
+            for (No<V> no : nos) {
+                No<V> encontrado = buscar(a, no.chave);
+                if (encontrado != null) nos[quantidade++] = encontrado;
+            }
+            return montar(nos, 0, quantidade - 1, geracao);
+        }
+
+        for (No<V> no : nos) {
+            a = (operacao == Conjunto.UNIAO) ? inserir(a, no.chave, no.valor, geracao) : remover(a, no.chave, geracao);
+        }
+        return a;
+    }
+
+    /**
+     * Metade de uma operação de conjunto executada por outra thread do fork-join.
+     */
+    private static final class TarefaConjunto<V> extends RecursiveTask<No<V>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Conjunto operacao;
+        private final transient No<V> a; // A tarefa nunca é serializada
+        private final transient No<V> b;
+        private final int geracao;
+
+        private TarefaConjunto(Conjunto operacao, No<V> a, No<V> b, int geracao) {
+            this.operacao = operacao;
+            this.a = a;
+            this.b = b;
+            this.geracao = geracao;
+        }
+
+        @Override
+        protected No<V> compute() {
+            return combinar(operacao, a, b, geracao);
+        }
+    }
+
+    /**
+     * Divide uma subárvore pela chave (split), reaproveitando os nós, em O(altura).
+     * Cada nó do caminho de descida vira o meio da junção do lado a que pertence.
+     * @param no A raiz da subárvore (é desmontada).
+     * @param chave A chave da divisão.
+     * @param divisao Recebe as chaves menores, o nó da chave (ou null) e as maiores.
+     * @param geracao A geração do mapa que está sendo alterado.
+     */
+    private static <V> void dividir(No<V> no, int chave, Divisao<V> divisao, int geracao) {
+        if (no == null) {
+            divisao.menores = null;
+            divisao.encontrado = null;
+            divisao.maiores = null;
+        } else if (chave == no.chave) {
+            divisao.menores = no.esquerda;
+            divisao.encontrado = no;
+            divisao.maiores = no.direita;
+        } else if (chave < no.chave) {
+            No<V> direita = no.direita;
+            dividir(no.esquerda, chave, divisao, geracao);
+            divisao.maiores = juntar(divisao.maiores, no, direita, geracao);
+        } else {
+            No<V> esquerda = no.esquerda;
+            dividir(no.direita, chave, divisao, geracao);
+            divisao.menores = juntar(esquerda, no, divisao.menores, geracao);
+        }
+    }
+
+    /**
+     * Junta duas subárvores AVL e um nó do meio (join), com todas as chaves de
+     * {@code esquerda} < chave do meio < todas as de {@code direita}. Desce pela borda
+     * da mais alta até uma subárvore da altura da outra, pendura ali o meio e
+     * rebalanceia na volta: O(|diferença de altura| + 1).
+     * @return A raiz da subárvore resultante.
+     */
+    private static <V> No<V> juntar(No<V> esquerda, No<V> meio, No<V> direita, int geracao) {
+        if (altura(esquerda) > altura(direita) + 1) {
+            esquerda = proprio(esquerda, geracao);
+            esquerda.direita = juntar(esquerda.direita, meio, direita, geracao);
+            return balancear(esquerda, geracao);
+        }
+        if (altura(direita) > altura(esquerda) + 1) {
+            direita = proprio(direita, geracao);
+            direita.esquerda = juntar(esquerda, meio, direita.esquerda, geracao);
+            return balancear(direita, geracao);
+        }
+        meio = proprio(meio, geracao);
+        meio.esquerda = esquerda;
+        meio.direita = direita;
+        atualizarAlturaETamanho(meio);
+        return meio;
+    }
+
+    /**
+     * Junta duas subárvores sem nó do meio, usando como meio o menor nó da direita.
+     * @return A raiz da subárvore resultante.
+     */
+    private static <V> No<V> juntar(No<V> esquerda, No<V> direita, int geracao) {
+        if (direita == null) return esquerda;
+        if (esquerda == null) return direita;
+
+        Divisao<V> divisao = new Divisao<>();
+        No<V> resto = separarMinimo(direita, divisao, geracao);
+        return juntar(esquerda, divisao.encontrado, resto, geracao);
+    }
+
+    /**
+     * Retira o menor nó de uma subárvore, rebalanceando na volta.
+     * @param divisao Recebe o nó retirado em {@code encontrado}.
+     * @return A raiz da subárvore sem o menor nó.
+     */
+    private static <V> No<V> separarMinimo(No<V> no, Divisao<V> divisao, int geracao) {
+        if (no.esquerda == null) {
+            divisao.encontrado = no;
+            return no.direita;
+        }
+        no = proprio(no, geracao);
+        no.esquerda = separarMinimo(no.esquerda, divisao, geracao);
+        return balancear(no, geracao);
+    }
+
+    /**
+     * Insere uma chave em uma subárvore, recursivamente, se ainda não existir.
+     * @return A nova raiz da subárvore.
+     */
+    private static <V> No<V> inserir(No<V> no, int chave, V valor, int geracao) {
+        if (no == null) return new No<>(chave, valor, geracao);
+        if (chave == no.chave) return no;
+
+        no = proprio(no, geracao);
+        if (chave < no.chave) no.esquerda = inserir(no.esquerda, chave, valor, geracao);
+        else no.direita = inserir(no.direita, chave, valor, geracao);
+        return balancear(no, geracao);
+    }
+
+    /**
+     * Remove uma chave de uma subárvore, recursivamente, se existir.
+     * @return A nova raiz da subárvore.
+     */
+    private static <V> No<V> remover(No<V> no, int chave, int geracao) {
+        if (no == null) return null;
+        if (chave == no.chave) return juntar(no.esquerda, no.direita, geracao);
+
+        no = proprio(no, geracao);
+        if (chave < no.chave) no.esquerda = remover(no.esquerda, chave, geracao);
+        else no.direita = remover(no.direita, chave, geracao);
+        return balancear(no, geracao);
+    }
+
+    private static <V> No<V> buscar(No<V> no, int chave) {
+        while (no != null && chave != no.chave) no = (chave < no.chave) ? no.esquerda : no.direita;
+        return no;
+    }
+
+    /**
+     * Copia os nós de uma subárvore, em ordem, para o array.
+     * @return A próxima posição livre do array.
+     */
+    private static <V> int coletar(No<V> no, No<V>[] nos, int posicao) {
+        if (no == null) return posicao;
+        posicao = coletar(no.esquerda, nos, posicao);
+        nos[posicao++] = no;
+        return coletar(no.direita, nos, posicao);
+    }
+
+    /**
+     * Religa nós já em ordem de chave como uma subárvore balanceada (como {@link #construir}).
+     * @return A raiz da subárvore, ou null se o intervalo for vazio.
+     */
+    private static <V> No<V> montar(No<V>[] nos, int inicio, int fim, int geracao) {
+        if (inicio > fim) return null;
+
+        int meio = (inicio + fim) >>> 1;
+        No<V> no = proprio(nos[meio], geracao);
+        no.esquerda = montar(nos, inicio, meio - 1, geracao);
+        no.direita = montar(nos, meio + 1, fim, geracao);
+        atualizarAlturaETamanho(no);
+        return no;
+    }
+
+    /**
+     * Copia uma subárvore com a mesma forma (as alturas e tamanhos continuam válidos).
+     */
+    private static <V> No<V> copiar(No<V> no, int geracao) {
+        if (no == null) return null;
+
+        No<V> copia = new No<>(no.chave, no.valor, geracao);
+        copia.esquerda = copiar(no.esquerda, geracao);
+        copia.direita = copiar(no.direita, geracao);
+        copia.altura = no.altura;
+        copia.tamanho = no.tamanho;
+        return copia;
+    }
+
+    /**
+     * Retorna o próprio nó, se ele é da geração informada; senão, uma cópia dele (com os
+     * mesmos filhos) dessa geração, que pode ser alterada sem afetar quem compartilha o original.
+     */
+    private static <V> No<V> proprio(No<V> no, int geracao) {
+        if (no.geracao == geracao) return no;
+
+        No<V> copia = new No<>(no.chave, no.valor, geracao);
+        copia.esquerda = no.esquerda;
+        copia.direita = no.direita;
+        copia.altura = no.altura;
+        copia.tamanho = no.tamanho;
+        return copia;
+    }
+
+    private static <V> No<V> minimo(No<V> no) {
+        while (no.esquerda != null) no = no.esquerda;
+        return no;
+    }
+
+    private static <V> No<V> maximo(No<V> no) {
+        while (no.direita != null) no = no.direita;
+        return no;
+    }
+
+    // ###### ROTAÇÕES ######
+
+    /**
+     * Realiza uma rotação simples à direita.
+     * @param y O nó pivô da rotação.
+     * @param geracao A geração do mapa; os dois nós rotacionados são copiados se não forem dela.
+     * @return A nova raiz da subárvore após a rotação.
+     */
+    private static <V> No<V> rotacaoDireita(No<V> y, int geracao) {
+        y = proprio(y, geracao);
+        No<V> x = proprio(y.esquerda, geracao);
+        y.esquerda = x.direita;
+        x.direita = y;
+
+        atualizarAlturaETamanho(y);
+        atualizarAlturaETamanho(x);
+
+        return x;
+    }
+
+    /**
+     * Realiza uma rotação simples à esquerda.
+     * @param x O nó pivô da rotação.
+     * @param geracao A geração do mapa; os dois nós rotacionados são copiados se não forem dela.
+     * @return A nova raiz da subárvore após a rotação.
+     */
+    private static <V> No<V> rotacaoEsquerda(No<V> x, int geracao) {
+        x = proprio(x, geracao);
+        No<V> y = proprio(x.direita, geracao);
+        x.direita = y.esquerda;
+        y.esquerda = x;
+
+        atualizarAlturaETamanho(x);
+        atualizarAlturaETamanho(y);
+
+        return y;
+    }
+
+    /**
+     * Nó do mapa: a chave como int, o valor e os dados da AVL.
+     */
+    private static final class No<V> {
+        private int chave;
+        private V valor;
+        private No<V> esquerda;
+        private No<V> direita;
+        private int altura = 1; // Novo nó é uma folha com altura 1
+        private int tamanho = 1; // Quantidade de nós na subárvore (estatística de ordem)
+        private final int geracao; // Geração do mapa que criou o nó (ver instantaneo)
+
+        private No(int chave, V valor, int geracao) {
+            this.chave = chave;
+            this.valor = valor;
+            this.geracao = geracao;
+        }
+    }
+
+    // ###### PERCURSO ######
+
+    /**
+     * Percurso em ordem (In-Order) com pilha explícita, limitado a um intervalo de chaves.
+     *
+     * A pilha guarda os nós que ainda serão visitados, com o de maior chave no fundo;
+     * cada nó é seguido pela sua subárvore direita. Para dividir, a parte inicial
+     * (tudo até o nó do fundo) vira um novo Spliterator e este fica só com a
+     * subárvore direita do nó do fundo, que numa AVL é cerca de metade do restante.
+     */
+    private static final class SpliteratorAVL<V> implements Spliterator<V> {
+
+        private final No<V>[] pilha;
+        private int topo;
+        private final int fim;
+        private long estimativa;
+        private int caracteristicas = ORDERED | NONNULL;
+
+        /**
+         * Cria o percurso dos valores com chave em [inicio, fim] de uma subárvore.
+         * @param raiz A raiz da subárvore.
+         * @param inicio A menor chave a visitar.
+         * @param fim A maior chave a visitar.
+         * @param quantidade A quantidade exata de valores no intervalo.
+         */
+        SpliteratorAVL(No<V> raiz, int inicio, int fim, long quantidade) {
+            this(novosNos(ALTURA_MAXIMA), 0, fim, quantidade);
+            this.caracteristicas |= SIZED;
+
+            // Empilha o caminho até a primeira chave >= inicio.
+            for (No<V> n = raiz; n != null; ) {
+                if (n.chave >= inicio) {
+                    pilha[topo++] = n;
+                    n = n.esquerda;
+                } else {
+                    n = n.direita;
+                }
+            }
+        }
+
+        private SpliteratorAVL(No<V>[] pilha, int topo, int fim, long estimativa) {
+            this.pilha = pilha;
+            this.topo = topo;
+            this.fim = fim;
+            this.estimativa = estimativa;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super V> acao) {
+            if (topo == 0) return false;
+
+            No<V> no = pilha[--topo];
+            if (no.chave > fim) {
+                topo = 0; // Passou do fim do intervalo
+                return false;
+            }
+
+            // O próximo na ordem é o menor da subárvore direita.
+            for (No<V> n = no.direita; n != null; n = n.esquerda) {
+                pilha[topo++] = n;
+            }
+            if (estimativa > 0) estimativa--;
+            acao.accept(no.valor);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super V> acao) {
+            while (tryAdvance(acao)) {
+                // Consome até o fim
+            }
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            if (topo == 0) return null;
+
+            No<V> fundo = pilha[0];
+            if (fundo.chave > fim) return null;
+
+            No<V> direita = fundo.direita;
+            SpliteratorAVL<V> prefixo;
+            if (direita != null) {
+                // Prefixo: tudo que está pendente até o nó do fundo (inclusive).
+                // Este: a subárvore direita do nó do fundo.
+                long estimativaDireita = Math.min(estimativa, direita.tamanho);
+                prefixo = new SpliteratorAVL<>(Arrays.copyOf(pilha, ALTURA_MAXIMA), topo,
+                        fundo.chave, estimativa - estimativaDireita);
+
+                topo = 0;
+                for (No<V> n = direita; n != null; n = n.esquerda) {
+                    pilha[topo++] = n;
+                }
+                estimativa = estimativaDireita;
+            } else if (topo > 1) {
+                // Sem subárvore direita: o prefixo leva tudo acima do fundo e este fica só com ele.
+                No<V>[] copia = novosNos(ALTURA_MAXIMA);
+                System.arraycopy(pilha, 1, copia, 0, topo - 1);
+                prefixo = new SpliteratorAVL<>(copia, topo - 1, fim, Math.max(estimativa - 1, 0));
+
+                topo = 1;
+                estimativa = 1;
+            } else {
+                return null;
+            }
+
+            // Depois de dividir, as estimativas deixam de ser exatas.
+            caracteristicas &= ~SIZED;
+            prefixo.caracteristicas = caracteristicas;
+            return prefixo;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimativa;
+        }
+
+        @Override
+        public int characteristics() {
+            return caracteristicas;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+
+// Interface para quem precisa acompanhar as alterações da árvore
+
+/**
+ * Recebe as alterações feitas em uma {@link ArvoreAVL}, na ordem em que acontecem.
+ *
+ * Os métodos são chamados dentro da própria operação, logo depois de a árvore
+ * ser alterada e antes de a operação retornar; com a {@link ArvoreAVLConcorrente}
+ * isso significa ainda dentro da trava de escrita. Por isso devem ser rápidos e
+ * não devem alterar a árvore. Se um observador lançar uma exceção, a alteração
+ * continua valendo e os observadores seguintes ainda são avisados; a exceção é
+ * relançada no fim da operação.
+ *
+ * Quem precisa registrar a alteração antes de ela valer (o diário de operações)
+ * responde true em {@link #avisarAntes()}.
+ */
+public interface ObservadorArvore {
+
+    /**
+     * Se true, o observador é avisado antes de a árvore ser alterada, e uma exceção
+     * dele cancela a operação sem alterar a árvore (nem avisar os demais).
+     * @return false por padrão: o observador é avisado depois da alteração.
+     */
+    default boolean avisarAntes() {
+        return false;
+    }
+
+    /**
+     * Chamado quando um produto é inserido.
+     * @param produto O produto inserido.
+     */
+    default void aoInserir(Produto produto) {
+    }
+
+    /**
+     * Chamado quando um produto é alterado (mesmo ID). A árvore não altera o objeto
+     * que guardava: ela passa a guardar um novo, então quem aponta para o anterior deve
+     * passar a apontar para o atual. Por padrão equivale a remover o anterior e inserir o atual.
+     * @param anterior O produto como estava antes da alteração (não é mais o da árvore).
+     * @param atual O novo produto guardado na árvore.
+     */
+    default void aoAtualizar(Produto anterior, Produto atual) {
+        aoRemover(anterior);
+        aoInserir(atual);
+    }
+
+    /**
+     * Chamado quando um produto é removido.
+     * @param produto O produto que estava na árvore.
+     */
+    default void aoRemover(Produto produto) {
+    }
+}
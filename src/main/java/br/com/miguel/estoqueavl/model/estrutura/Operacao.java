@@ -0,0 +1,73 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+
+import java.util.Objects;
+
+// Registro que representa uma alteração de um lote
+
+/**
+ * Uma alteração do estoque a ser aplicada por {@link ArvoreAVL#aplicarLote}.
+ * Criada pelos métodos de fábrica, que preenchem só os campos usados pelo tipo.
+ *
+ * @param tipo O tipo da operação.
+ * @param id O ID do produto afetado.
+ * @param produto O produto a inserir, ou os novos dados (ATUALIZAR); null nos demais tipos.
+ * @param delta A quantidade a somar (AJUSTAR); 0 nos demais tipos.
+ */
+public record Operacao(Tipo tipo, int id, Produto produto, int delta) {
+
+    /**
+     * Os tipos de operação, com a mesma semântica dos métodos da {@link ArvoreAVL}.
+     */
+    public enum Tipo {
+        /** Insere o produto se o ID ainda não existir. */
+        INSERIR,
+        /** Troca nome, preço e quantidade do produto existente (ver {@link ArvoreAVL#atualizar}). */
+        ATUALIZAR,
+        /** Soma delta à quantidade, se o produto existir e o saldo não ficar negativo. */
+        AJUSTAR,
+        /** Remove o produto, se existir. */
+        REMOVER
+    }
+
+    /**
+     * @param produto O produto a ser inserido.
+     * @return A operação de inserção.
+     */
+    public static Operacao inserir(Produto produto) {
+        return new Operacao(Tipo.INSERIR, produto.getId(), produto, 0);
+    }
+
+    /**
+     * @param dados O ID do produto a alterar e os novos nome, preço e quantidade.
+     * @return A operação de atualização.
+     */
+    public static Operacao atualizar(Produto dados) {
+        return new Operacao(Tipo.ATUALIZAR, dados.getId(), dados, 0);
+    }
+
+    /**
+     * @param id O ID do produto.
+     * @param delta A quantidade a somar (negativa para saída).
+     * @return A operação de ajuste de quantidade.
+     */
+    public static Operacao ajustar(int id, int delta) {
+        return new Operacao(Tipo.AJUSTAR, id, null, delta);
+    }
+
+    /**
+     * @param id O ID do produto a ser removido.
+     * @return A operação de remoção.
+     */
+    public static Operacao remover(int id) {
+        return new Operacao(Tipo.REMOVER, id, null, 0);
+    }
+
+    public Operacao {
+        Objects.requireNonNull(tipo, "tipo");
+        if ((tipo == Tipo.INSERIR || tipo == Tipo.ATUALIZAR) && (produto == null || produto.getId() != id)) {
+            throw new IllegalArgumentException("A operação " + tipo + " precisa de um produto com o ID " + id + ".");
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package br.com.miguel.estoqueavl.service;
+
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Classe que salva o estoque em segundo plano
+
+/**
+ * Salvamento automático do estoque em uma thread de fundo, fora da thread do JavaFX.
+ *
+ * Uma vez por segundo compara o contador de alterações da árvore com o do último
+ * salvamento; se nada mudou, não faz mais nada (períodos ociosos custam só essa
+ * comparação). Havendo alterações, salva quando o intervalo configurado passou
+ * desde o último salvamento, quando o número de alterações pendentes chega ao
+ * limite, ou quando o diário de operações passa do tamanho máximo.
+ *
+ * Cada salvamento é um {@link PersistenciaServico#checkpoint checkpoint}: grava em
+ * arquivo temporário, troca de forma atômica e esvazia o diário. A duração e os
+ * bytes do último salvamento são publicados nas métricas (ver {@link #estatisticas()}).
+ */
+public class AgendadorPersistencia implements AutoCloseable {
+
+    private static final long VERIFICACAO_MS = 1000;
+
+    private final PersistenciaServico servico;
+    private final ArvoreAVLConcorrente estoque;
+    private final DiarioOperacoes diario;
+    private final Duration intervalo;
+    private final long limiteAlteracoes;
+    private final long limiteDiarioBytes;
+
+    private final ScheduledExecutorService executor;
+
+    // Estado do último salvamento (só a thread de fundo escreve)
+    private volatile long alteracoesSalvas;
+    private long ultimoSalvamentoNanos = System.nanoTime();
+
+    // Métricas, lidas por outras threads
+    private volatile long ultimaDuracaoMs = -1;
+    private volatile long ultimosBytesGravados = -1;
+    private volatile long ultimoSalvamentoEpochMs = -1;
+    private volatile long totalSalvamentos;
+    private volatile long totalFalhas;
+
+    /**
+     * Cria o agendador e começa a verificar o estoque em segundo plano.
+     * Todas as alterações que a árvore já sofreu contam como pendentes, então uma
+     * árvore recém-carregada com operações reaplicadas do diário é salva no próximo ciclo.
+     * @param servico O serviço que grava o instantâneo.
+     * @param estoque O estoque a ser salvo.
+     * @param diario O diário de operações do estoque, ou null se não houver.
+     * @param intervalo O tempo máximo que alterações ficam sem instantâneo.
+     * @param limiteAlteracoes Quantidade de alterações pendentes que dispara um salvamento imediato.
+     * @param limiteDiarioBytes Tamanho do diário que dispara um salvamento imediato.
+     */
+    public AgendadorPersistencia(PersistenciaServico servico, ArvoreAVLConcorrente estoque, DiarioOperacoes diario,
+                                 Duration intervalo, long limiteAlteracoes, long limiteDiarioBytes) {
+        this.servico = servico;
+        this.estoque = estoque;
+        this.diario = diario;
+        this.intervalo = intervalo;
+        this.limiteAlteracoes = limiteAlteracoes;
+        this.limiteDiarioBytes = limiteDiarioBytes;
+        this.alteracoesSalvas = 0; // Alterações já feitas (ex.: reaplicadas do diário) ainda não estão no instantâneo
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "salvamento-automatico");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::verificar, VERIFICACAO_MS, VERIFICACAO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    /**
+     * Pede um salvamento assim que possível, mesmo sem atingir os limites
+     * (se não houver alterações, nada é gravado).
+     */
+    public void salvarAgora() {
+        executor.execute(() -> {
+            if (pendentes() > 0) salvar();
+        });
+    }
+
+    /**
+     * Indica se há alterações que ainda não estão em um instantâneo.
+     * @return true se o estoque mudou desde o último salvamento.
+     */
+    public boolean temAlteracoesPendentes() {
+        return pendentes() > 0;
+    }
+
+    /**
+     * Estatísticas dos salvamentos, publicadas pelo MBean de métricas
+     * ({@code MetricasEstoqueMXBean.getCheckpoint}): duração (ms) e bytes gravados do
+     * último, quando ele terminou (epoch em ms) e os totais de salvamentos e de falhas.
+     * Os valores do último são -1 enquanto não houver nenhum.
+     * @return As estatísticas, em um mapa novo.
+     */
+    public Map<String, Long> estatisticas() {
+        Map<String, Long> estatisticas = new LinkedHashMap<>();
+        estatisticas.put("ultimaDuracaoMs", ultimaDuracaoMs);
+        estatisticas.put("ultimosBytes", ultimosBytesGravados);
+        estatisticas.put("ultimoSalvamentoEpochMs", ultimoSalvamentoEpochMs);
+        estatisticas.put("salvamentos", totalSalvamentos);
+        estatisticas.put("falhas", totalFalhas);
+        return estatisticas;
+    }
+
+    /**
+     * Para o agendador, aguardando um salvamento em andamento terminar.
+     * Não faz um salvamento final: com o diário, as alterações pendentes são
+     * recuperadas na próxima carga. Se a thread for interrompida durante a espera,
+     * para de esperar e mantém a interrupção marcada.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Verificação periódica: decide se é hora de salvar.
+     */
+    private void verificar() {
+        long pendentes = pendentes();
+        if (pendentes == 0) return;
+
+        boolean venceuIntervalo = System.nanoTime() - ultimoSalvamentoNanos >= intervalo.toNanos();
+        boolean muitasAlteracoes = pendentes >= limiteAlteracoes;
+        boolean diarioGrande = diario != null && diario.tamanhoSegmento() >= limiteDiarioBytes;
+        if (venceuIntervalo || muitasAlteracoes || diarioGrande) salvar();
+    }
+
+    private long pendentes() {
+        return estoque.ler(ArvoreAVL::getAlteracoes) - alteracoesSalvas;
+    }
+
+    /**
+     * Salva e atualiza as métricas. O contador é lido antes do salvamento: o que
+     * mudar durante a gravação conta como pendente para o próximo.
+     */
+    private void salvar() {
+        long alteracoes = estoque.ler(ArvoreAVL::getAlteracoes);
+        long inicio = System.nanoTime();
+        long bytes = servico.checkpoint(estoque, diario);
+        long fim = System.nanoTime();
+
+        if (bytes < 0) {
+            totalFalhas++;
+            return;
+        }
+        alteracoesSalvas = alteracoes;
+        ultimoSalvamentoNanos = fim;
+        ultimaDuracaoMs = (fim - inicio) / 1_000_000;
+        ultimosBytesGravados = bytes;
+        ultimoSalvamentoEpochMs = System.currentTimeMillis();
+        totalSalvamentos++;
+    }
+}
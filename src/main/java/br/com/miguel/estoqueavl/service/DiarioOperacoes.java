@@ -0,0 +1,450 @@
+package br.com.miguel.estoqueavl.service;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ObservadorArvore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Classe que registra cada alteração do estoque antes de ela ser confirmada
+
+/**
+ * Diário de operações (write-ahead log) do estoque.
+ *
+ * Registrado como {@link ObservadorArvore} avisado antes de cada alteração (ver
+ * {@link #avisarAntes()}), acrescenta ao arquivo um registro para cada inserção,
+ * atualização e remoção, com número de sequência e CRC32, antes de a árvore mudar.
+ * Se o registro falhar, a operação é cancelada e a árvore fica como estava. Depois de
+ * uma falha de E/S o diário recusa todo registro seguinte (e, com ele, toda alteração)
+ * até a aplicação ser reiniciada: a memória nunca fica à frente do que foi gravado.
+ * Na política SEMPRE, uma falha no fsync deixa a operação incerta: o registro pode ter
+ * chegado ao disco e ser reaplicado na próxima carga. Na próxima carga,
+ * os registros são reaplicados sobre o último instantâneo salvo, então uma queda
+ * da aplicação perde no máximo o que ainda não tinha sido sincronizado em disco
+ * (ver {@link Sincronizacao}).
+ *
+ * A reaplicação é idempotente (inserir vira "substituir" e remover ignora IDs
+ * ausentes), então reaplicar registros que o instantâneo já contém não muda o
+ * resultado. O checkpoint (ver {@link PersistenciaServico#checkpoint}) usa isso:
+ * {@link #rotacionar()} fecha o segmento atual como ".antigo", o instantâneo é
+ * salvo, e só então {@link #descartarAntigo()} apaga o segmento antigo. Uma queda
+ * no meio do caminho reaplica os dois segmentos sobre o instantâneo anterior.
+ *
+ * Formato de cada registro (little-endian):
+ * <pre>
+ *   int tamanho   int crc32   long sequencia   byte tipo   int id
+ *   (INSERIR/ATUALIZAR) int quantidade  int escala  int n  byte[n] precoSemEscala  int m  byte[m] nome
+ * </pre>
+ * Tamanhos -1 representam preço ou nome nulos. Um registro incompleto ou com CRC
+ * errado no fim do arquivo (gravação interrompida) é descartado na reaplicação.
+ */
+public class DiarioOperacoes implements ObservadorArvore, AutoCloseable {
+
+    /**
+     * Quando os registros são forçados para o disco (fsync).
+     */
+    public enum Sincronizacao {
+        /** Cada operação só retorna depois do fsync. Nenhuma perda, mas cada escrita custa um fsync. */
+        SEMPRE,
+        /** Os registros são acumulados e gravados com um único fsync a cada intervalo (group commit). */
+        EM_GRUPO,
+        /** Os registros vão para o sistema operacional a cada intervalo, sem fsync. */
+        NUNCA
+    }
+
+    static final byte INSERIR = 1;
+    static final byte REMOVER = 2;
+    static final byte ATUALIZAR = 3;
+
+    private static final int TAMANHO_CABECALHO_REGISTRO = 8; // tamanho + crc
+    private static final int TAMANHO_BUFFER = 1 << 20;
+
+    private final Path atual;
+    private final Path antigo;
+    private final Sincronizacao sincronizacao;
+    private final long intervaloMs;
+
+    private FileChannel canal;
+    private ScheduledExecutorService sincronizador;
+    private final ByteBuffer pendente = ByteBuffer.allocateDirect(TAMANHO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer registro = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+
+    private long sequencia;
+    private long tamanhoSegmento;
+    private IOException falha; // Primeira falha de E/S; depois dela nada mais é gravado
+
+    /**
+     * Cria o diário com sincronização em grupo a cada 50 ms.
+     * @param arquivo O caminho do arquivo do diário (ex.: estoque_dados.wal).
+     */
+    public DiarioOperacoes(String arquivo) {
+        this(arquivo, Sincronizacao.EM_GRUPO, 50);
+    }
+
+    /**
+     * Cria o diário escolhendo a política de sincronização.
+     * @param arquivo O caminho do arquivo do diário.
+     * @param sincronizacao Quando forçar os registros para o disco.
+     * @param intervaloMs O intervalo de gravação para EM_GRUPO e NUNCA (máximo de perda em uma queda).
+     */
+    public DiarioOperacoes(String arquivo, Sincronizacao sincronizacao, long intervaloMs) {
+        this.atual = Path.of(arquivo);
+        this.antigo = Path.of(arquivo + ".antigo");
+        this.sincronizacao = sincronizacao;
+        this.intervaloMs = intervaloMs;
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    /**
+     * Reaplica na árvore os registros existentes (segmento antigo e atual), abre o
+     * diário para novas escritas e passa a observar a árvore.
+     * @param arvore A árvore já carregada do último instantâneo.
+     * @return A quantidade de operações reaplicadas.
+     */
+    public synchronized int abrir(ArvoreAVL arvore) throws IOException {
+        int reaplicadas = 0;
+        if (Files.exists(antigo)) reaplicadas += reaplicar(antigo, arvore, false);
+        if (Files.exists(atual)) reaplicadas += reaplicar(atual, arvore, true);
+
+        canal = FileChannel.open(atual, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        tamanhoSegmento = canal.size();
+        canal.position(tamanhoSegmento);
+
+        if (sincronizacao != Sincronizacao.SEMPRE) {
+            sincronizador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "diario-sincronizador");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sincronizador.scheduleWithFixedDelay(this::sincronizarSilenciosamente,
+                    intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        }
+        arvore.adicionarObservador(this);
+        return reaplicadas;
+    }
+
+    /**
+     * O diário registra cada operação antes de a árvore ser alterada (write-ahead).
+     */
+    @Override
+    public boolean avisarAntes() {
+        return true;
+    }
+
+    @Override
+    public void aoInserir(Produto produto) {
+        acrescentar(INSERIR, produto.getId(), produto);
+    }
+
+    @Override
+    public void aoAtualizar(Produto anterior, Produto atual) {
+        // O registro leva o estado completo (não o delta), para a reaplicação continuar idempotente.
+        acrescentar(ATUALIZAR, atual.getId(), atual);
+    }
+
+    @Override
+    public void aoRemover(Produto produto) {
+        acrescentar(REMOVER, produto.getId(), null);
+    }
+
+    /**
+     * Grava no arquivo tudo o que está pendente e força para o disco
+     * (exceto na política NUNCA, que só entrega ao sistema operacional).
+     */
+    public synchronized void sincronizar() throws IOException {
+        if (canal == null) return;
+        verificarFalha();
+        boolean escreveu = pendente.position() > 0;
+        try {
+            descarregar();
+            if (escreveu && sincronizacao != Sincronizacao.NUNCA) canal.force(false);
+        } catch (IOException e) {
+            throw falhar(e);
+        }
+    }
+
+    /**
+     * Fecha o segmento atual e começa um novo, vazio. O segmento fechado passa a
+     * ser o ".antigo" (ou é acrescentado a ele, se um checkpoint anterior não terminou).
+     * Deve ser chamado sem escritas em andamento na árvore.
+     */
+    public synchronized void rotacionar() throws IOException {
+        verificarFalha();
+        try {
+            descarregar();
+            canal.force(false);
+        } catch (IOException e) {
+            throw falhar(e);
+        }
+        canal.close();
+
+        if (Files.exists(antigo)) {
+            try (FileChannel origem = FileChannel.open(atual, StandardOpenOption.READ);
+                 FileChannel destino = FileChannel.open(antigo, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long copiados = 0;
+                while (copiados < origem.size()) {
+                    copiados += origem.transferTo(copiados, origem.size() - copiados, destino);
+                }
+                destino.force(false);
+            }
+            Files.delete(atual);
+        } else {
+            Files.move(atual, antigo, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        canal = FileChannel.open(atual, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        tamanhoSegmento = 0;
+    }
+
+    /**
+     * Apaga o segmento antigo. Só deve ser chamado depois que um instantâneo com
+     * todas as operações dele foi salvo.
+     */
+    public void descartarAntigo() throws IOException {
+        Files.deleteIfExists(antigo);
+    }
+
+    /**
+     * Retorna quantos bytes o segmento atual já tem (gravados e pendentes).
+     * Usado para decidir quando vale fazer um checkpoint.
+     * @return O tamanho do segmento atual em bytes.
+     */
+    public synchronized long tamanhoSegmento() {
+        return tamanhoSegmento;
+    }
+
+    /**
+     * Retorna o número de sequência do último registro gravado.
+     * @return A última sequência, ou 0 se nenhum registro foi gravado ainda.
+     */
+    public synchronized long getSequencia() {
+        return sequencia;
+    }
+
+    /**
+     * Para a sincronização periódica, grava o que estiver pendente e fecha o arquivo.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (sincronizador != null) sincronizador.shutdownNow();
+        if (canal != null && canal.isOpen()) {
+            try {
+                if (falha == null) {
+                    descarregar();
+                    canal.force(false);
+                }
+            } finally {
+                canal.close();
+            }
+        }
+    }
+
+    // ###### ESCRITA ######
+
+    /**
+     * Codifica um registro e o acrescenta ao diário. Na política SEMPRE, só retorna
+     * depois do fsync; nas outras, o registro fica no buffer até a próxima sincronização.
+     * @throws UncheckedIOException Se a gravação falhar agora ou já tiver falhado antes.
+     */
+    private synchronized void acrescentar(byte tipo, int id, Produto produto) {
+        try {
+            verificarFalha();
+            codificar(sequencia + 1, tipo, id, produto);
+            int tamanho = registro.remaining();
+            try {
+                if (pendente.remaining() < tamanho) descarregar();
+                if (tamanho > pendente.capacity()) escreverTudo(registro);
+            } catch (IOException e) {
+                throw falhar(e);
+            }
+            if (tamanho <= pendente.capacity()) pendente.put(registro);
+            sequencia++;
+            tamanhoSegmento += tamanho;
+            if (sincronizacao == Sincronizacao.SEMPRE) sincronizar();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar no diário de operações", e);
+        }
+    }
+
+    private void verificarFalha() throws IOException {
+        if (falha != null) throw new IOException("O diário de operações parou após uma falha de gravação", falha);
+    }
+
+    /**
+     * Marca o diário como falho: o que estava pendente é descartado e nada mais é gravado.
+     */
+    private IOException falhar(IOException e) {
+        if (falha == null) falha = e;
+        pendente.clear();
+        return e;
+    }
+
+    /**
+     * Monta o registro completo (cabeçalho + conteúdo) no buffer {@code registro}, pronto para leitura.
+     */
+    private void codificar(long seq, byte tipo, int id, Produto produto) {
+        byte[] precoSemEscala = null;
+        byte[] nome = null;
+        int necessario = TAMANHO_CABECALHO_REGISTRO + 13;
+        if (produto != null) {
+            if (produto.getPreco() != null) precoSemEscala = produto.getPreco().unscaledValue().toByteArray();
+            if (produto.getNome() != null) nome = produto.getNome().getBytes(StandardCharsets.UTF_8);
+            necessario += 16 + (precoSemEscala == null ? 0 : precoSemEscala.length) + (nome == null ? 0 : nome.length);
+        }
+        if (registro.capacity() < necessario) {
+            registro = ByteBuffer.allocate(Math.max(necessario, registro.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        registro.clear();
+        registro.position(TAMANHO_CABECALHO_REGISTRO);
+        registro.putLong(seq).put(tipo).putInt(id);
+        if (produto != null) {
+            registro.putInt(produto.getQuantidade());
+            registro.putInt(produto.getPreco() == null ? 0 : produto.getPreco().scale());
+            escreverBytes(precoSemEscala);
+            escreverBytes(nome);
+        }
+
+        int tamanhoConteudo = registro.position() - TAMANHO_CABECALHO_REGISTRO;
+        crc.reset();
+        crc.update(registro.array(), TAMANHO_CABECALHO_REGISTRO, tamanhoConteudo);
+        registro.putInt(0, tamanhoConteudo).putInt(4, (int) crc.getValue());
+        registro.flip();
+    }
+
+    private void escreverBytes(byte[] bytes) {
+        if (bytes == null) {
+            registro.putInt(-1);
+        } else {
+            registro.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private void descarregar() throws IOException {
+        pendente.flip();
+        escreverTudo(pendente);
+        pendente.clear();
+    }
+
+    private void escreverTudo(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) canal.write(buffer);
+    }
+
+    private void sincronizarSilenciosamente() {
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // ###### REAPLICAÇÃO ######
+
+    /**
+     * Lê um segmento do diário e aplica cada registro válido na árvore, na ordem.
+     * @param segmento O arquivo do segmento.
+     * @param arvore A árvore onde as operações são reaplicadas.
+     * @param truncarCauda Se true, corta do arquivo um final incompleto ou corrompido,
+     *                     para que as próximas escritas continuem de um ponto válido.
+     * @return A quantidade de operações reaplicadas.
+     */
+    private int reaplicar(Path segmento, ArvoreAVL arvore, boolean truncarCauda) throws IOException {
+        try (FileChannel leitura = FileChannel.open(segmento, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer dados = leitura.map(FileChannel.MapMode.READ_ONLY, 0, leitura.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            int reaplicadas = 0;
+            int valido = 0;
+            while (dados.remaining() >= TAMANHO_CABECALHO_REGISTRO) {
+                int tamanho = dados.getInt(valido);
+                int crcEsperado = dados.getInt(valido + 4);
+                int inicio = valido + TAMANHO_CABECALHO_REGISTRO;
+                if (tamanho < 13 || tamanho > dados.limit() - inicio) break;
+
+                ByteBuffer conteudo = dados.slice(inicio, tamanho).order(ByteOrder.LITTLE_ENDIAN);
+                crc.reset();
+                crc.update(conteudo.duplicate());
+                if ((int) crc.getValue() != crcEsperado) break;
+
+                long seq = conteudo.getLong();
+                if (seq <= sequencia) break; // sequência fora de ordem: trata como fim do diário
+                if (!aplicar(conteudo, arvore)) break;
+                sequencia = seq;
+                reaplicadas++;
+                valido = inicio + tamanho;
+                dados.position(valido);
+            }
+
+            if (valido < leitura.size()) {
+                System.out.println("Diário " + segmento.getFileName() + ": final inválido descartado a partir do byte " + valido + ".");
+                if (truncarCauda) leitura.truncate(valido);
+            }
+            if (reaplicadas > 0) {
+                System.out.println("Diário " + segmento.getFileName() + ": " + reaplicadas + " operações reaplicadas.");
+            }
+            return reaplicadas;
+        }
+    }
+
+    /**
+     * Decodifica o restante de um registro e o aplica na árvore.
+     * @return false se o registro não pôde ser decodificado.
+     */
+    private static boolean aplicar(ByteBuffer conteudo, ArvoreAVL arvore) {
+        try {
+            byte tipo = conteudo.get();
+            int id = conteudo.getInt();
+            switch (tipo) {
+                case REMOVER -> arvore.remover(id);
+                case INSERIR, ATUALIZAR -> {
+                    int quantidade = conteudo.getInt();
+                    int escala = conteudo.getInt();
+                    byte[] precoSemEscala = lerBytes(conteudo);
+                    byte[] nome = lerBytes(conteudo);
+                    BigDecimal preco = (precoSemEscala == null) ? null : new BigDecimal(new BigInteger(precoSemEscala), escala);
+                    String texto = (nome == null) ? null : new String(nome, StandardCharsets.UTF_8);
+
+                    // Substitui o que houver com o mesmo ID, para a reaplicação ser idempotente.
+                    Produto existente = arvore.atualizar(id, p -> {
+                        p.setNome(texto);
+                        p.setPreco(preco);
+                        p.setQuantidade(quantidade);
+                    });
+                    if (existente == null) arvore.inserir(new Produto(id, texto, preco, quantidade));
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (RuntimeException e) { // BufferUnderflow, NegativeArraySize, NumberFormat...
+            return false;
+        }
+    }
+
+    private static byte[] lerBytes(ByteBuffer conteudo) {
+        int tamanho = conteudo.getInt();
+        if (tamanho < 0) return null;
+        byte[] bytes = new byte[tamanho];
+        conteudo.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,277 @@
+package br.com.miguel.estoqueavl.service;
+
+import br.com.miguel.estoqueavl.model.Produto;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Classe que grava e lê o instantâneo binário do estoque
+
+/**
+ * Formato binário do estoque, bem mais rápido de carregar que o JSON.
+ *
+ * Layout do arquivo (little-endian):
+ * <pre>
+ *   Cabeçalho (32 bytes):
+ *     int   MAGICO ("EAVL")     short versao      short reservado
+ *     int   quantidade          int   crcRegistros
+ *     long  tamanhoNomes        int   crcNomes    int   reservado
+ *   Registros (32 bytes cada, em ordem de ID):
+ *     int   id                  int   quantidade
+ *     long  precoSemEscala      int   escala
+ *     int   deslocamentoNome    int   tamanhoNome int   sinalizadores
+ *   Nomes: bytes UTF-8 de todos os nomes, um após o outro.
+ * </pre>
+ *
+ * O preço é guardado como (valor sem escala, escala) do BigDecimal, então a
+ * carga não faz nenhuma conversão de texto. Preços que não cabem em um long
+ * vão como texto para a área de nomes (sinalizador PRECO_TEXTO). Os CRC32 dos
+ * registros e dos nomes são conferidos antes de montar qualquer produto, e o
+ * cabeçalho é gravado por último: um arquivo interrompido no meio da gravação
+ * não passa na verificação do número mágico.
+ *
+ * A escrita usa FileChannel com buffers diretos; a leitura mapeia o arquivo
+ * em memória (MappedByteBuffer), sem cópias intermediárias.
+ */
+final class FormatoBinario {
+
+    static final int MAGICO = 0x4C564145; // "EAVL" em little-endian
+    static final short VERSAO = 1;
+
+    private static final int TAMANHO_CABECALHO = 32;
+    private static final int TAMANHO_REGISTRO = 32;
+    private static final int TAMANHO_BUFFER = 1 << 16;
+
+    // Sinalizadores de cada registro
+    private static final int NOME_NULO = 1;
+    private static final int PRECO_NULO = 1 << 1;
+    private static final int PRECO_TEXTO = 1 << 2;
+
+    private FormatoBinario() {
+    }
+
+    /**
+     * Verifica, pelo número mágico, se o arquivo está no formato binário.
+     * @param arquivo O arquivo a ser verificado.
+     * @return true se o arquivo começa com o número mágico do formato.
+     */
+    static boolean reconhece(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer inicio = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (inicio.hasRemaining() && canal.read(inicio) >= 0) { }
+            return !inicio.hasRemaining() && inicio.getInt(0) == MAGICO;
+        }
+    }
+
+    /**
+     * Grava os produtos no formato binário.
+     * @param arquivo O arquivo de destino (sobrescrito).
+     * @param produtos Os produtos, já ordenados pelo ID.
+     * @param quantidade Quantos produtos o Iterable vai entregar (define onde começa a área de nomes).
+     */
+    static void gravar(Path arquivo, Iterable<Produto> produtos, int quantidade) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer registros = ByteBuffer.allocateDirect(TAMANHO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer nomes = ByteBuffer.allocateDirect(TAMANHO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 crcRegistros = new CRC32();
+            CRC32 crcNomes = new CRC32();
+
+            long posicaoRegistros = TAMANHO_CABECALHO;
+            long inicioNomes = TAMANHO_CABECALHO + (long) quantidade * TAMANHO_REGISTRO;
+            long posicaoNomes = inicioNomes;
+            long tamanhoNomes = 0;
+            int gravados = 0;
+
+            for (Produto p : produtos) {
+                if (gravados == quantidade) {
+                    throw new IllegalStateException("Mais produtos do que o informado: " + quantidade);
+                }
+                int sinalizadores = 0;
+                long precoSemEscala = 0;
+                int escala = 0;
+
+                byte[] nome = null;
+                if (p.getNome() == null) {
+                    sinalizadores |= NOME_NULO;
+                } else {
+                    nome = p.getNome().getBytes(StandardCharsets.UTF_8);
+                }
+                long deslocamentoNome = tamanhoNomes;
+                tamanhoNomes += (nome == null) ? 0 : nome.length;
+
+                BigDecimal preco = p.getPreco();
+                byte[] precoTexto = null;
+                if (preco == null) {
+                    sinalizadores |= PRECO_NULO;
+                } else if (preco.unscaledValue().bitLength() < Long.SIZE) {
+                    precoSemEscala = preco.unscaledValue().longValue();
+                    escala = preco.scale();
+                } else {
+                    // Não cabe em um long: vai como texto logo depois do nome
+                    sinalizadores |= PRECO_TEXTO;
+                    precoTexto = preco.toString().getBytes(StandardCharsets.US_ASCII);
+                    precoSemEscala = tamanhoNomes;
+                    escala = precoTexto.length;
+                    tamanhoNomes += precoTexto.length;
+                }
+                if (tamanhoNomes > Integer.MAX_VALUE) {
+                    throw new IOException("Área de nomes excede o limite do formato (2 GB).");
+                }
+
+                if (registros.remaining() < TAMANHO_REGISTRO) {
+                    posicaoRegistros += descarregar(canal, registros, posicaoRegistros, crcRegistros);
+                }
+                registros.putInt(p.getId())
+                        .putInt(p.getQuantidade())
+                        .putLong(precoSemEscala)
+                        .putInt(escala)
+                        .putInt((int) deslocamentoNome)
+                        .putInt((nome == null) ? 0 : nome.length)
+                        .putInt(sinalizadores);
+
+                if (nome != null) posicaoNomes = acrescentar(canal, nomes, posicaoNomes, crcNomes, nome);
+                if (precoTexto != null) posicaoNomes = acrescentar(canal, nomes, posicaoNomes, crcNomes, precoTexto);
+                gravados++;
+            }
+            if (gravados != quantidade) {
+                throw new IllegalStateException("Esperados " + quantidade + " produtos, recebidos " + gravados);
+            }
+            descarregar(canal, registros, posicaoRegistros, crcRegistros);
+            descarregar(canal, nomes, posicaoNomes, crcNomes);
+
+            // Cabeçalho por último: só um arquivo completo é reconhecido como válido
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).order(ByteOrder.LITTLE_ENDIAN);
+            cabecalho.putInt(MAGICO).putShort(VERSAO).putShort((short) 0)
+                    .putInt(quantidade).putInt((int) crcRegistros.getValue())
+                    .putLong(tamanhoNomes).putInt((int) crcNomes.getValue()).putInt(0)
+                    .flip();
+            escreverTudo(canal, cabecalho, 0);
+            canal.truncate(inicioNomes + tamanhoNomes);
+            canal.force(false);
+        }
+    }
+
+    /**
+     * Lê todos os produtos de um arquivo binário, na ordem em que foram gravados.
+     * @param arquivo O arquivo a ser lido.
+     * @return Os produtos do arquivo.
+     * @throws IOException Se o arquivo estiver truncado, corrompido ou em versão desconhecida.
+     */
+    static Produto[] ler(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanhoArquivo = canal.size();
+            if (tamanhoArquivo < TAMANHO_CABECALHO) throw new IOException("Arquivo binário truncado.");
+
+            ByteBuffer cabecalho = canal.map(FileChannel.MapMode.READ_ONLY, 0, TAMANHO_CABECALHO)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (cabecalho.getInt(0) != MAGICO) throw new IOException("Arquivo não está no formato binário.");
+            short versao = cabecalho.getShort(4);
+            if (versao != VERSAO) throw new IOException("Versão do formato binário não suportada: " + versao);
+
+            int quantidade = cabecalho.getInt(8);
+            int crcRegistros = cabecalho.getInt(12);
+            long tamanhoNomes = cabecalho.getLong(16);
+            int crcNomes = cabecalho.getInt(24);
+
+            long tamanhoRegistros = (long) quantidade * TAMANHO_REGISTRO;
+            if (quantidade < 0 || tamanhoNomes < 0 || tamanhoRegistros > Integer.MAX_VALUE
+                    || tamanhoNomes > Integer.MAX_VALUE
+                    || TAMANHO_CABECALHO + tamanhoRegistros + tamanhoNomes != tamanhoArquivo) {
+                throw new IOException("Cabeçalho do arquivo binário inconsistente com o tamanho do arquivo.");
+            }
+
+            MappedByteBuffer registros = canal.map(FileChannel.MapMode.READ_ONLY, TAMANHO_CABECALHO, tamanhoRegistros);
+            MappedByteBuffer nomes = canal.map(FileChannel.MapMode.READ_ONLY, TAMANHO_CABECALHO + tamanhoRegistros, tamanhoNomes);
+            registros.order(ByteOrder.LITTLE_ENDIAN);
+            if (crc(registros) != crcRegistros || crc(nomes) != crcNomes) {
+                throw new IOException("Checksum do arquivo binário não confere.");
+            }
+
+            Produto[] produtos = new Produto[quantidade];
+            byte[] bytes = new byte[256];
+            for (int i = 0; i < quantidade; i++) {
+                int base = i * TAMANHO_REGISTRO;
+                int id = registros.getInt(base);
+                int estoque = registros.getInt(base + 4);
+                long precoSemEscala = registros.getLong(base + 8);
+                int escala = registros.getInt(base + 16);
+                int deslocamentoNome = registros.getInt(base + 20);
+                int tamanhoNome = registros.getInt(base + 24);
+                int sinalizadores = registros.getInt(base + 28);
+
+                String nome = null;
+                if ((sinalizadores & NOME_NULO) == 0) {
+                    if (tamanhoNome > bytes.length) bytes = new byte[Math.max(tamanhoNome, bytes.length * 2)];
+                    nomes.get(deslocamentoNome, bytes, 0, tamanhoNome);
+                    nome = new String(bytes, 0, tamanhoNome, StandardCharsets.UTF_8);
+                }
+
+                BigDecimal preco = null;
+                if ((sinalizadores & PRECO_TEXTO) != 0) {
+                    byte[] texto = new byte[escala];
+                    nomes.get((int) precoSemEscala, texto, 0, escala);
+                    preco = new BigDecimal(new String(texto, StandardCharsets.US_ASCII));
+                } else if ((sinalizadores & PRECO_NULO) == 0) {
+                    preco = BigDecimal.valueOf(precoSemEscala, escala);
+                }
+
+                produtos[i] = new Produto(id, nome, preco, estoque);
+            }
+            return produtos;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Registro do arquivo binário aponta para fora da área de nomes.", e);
+        }
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Copia bytes para o buffer da área de nomes, descarregando no canal sempre que ele enche.
+     * @return A posição no arquivo onde o próximo descarregamento deve começar.
+     */
+    private static long acrescentar(FileChannel canal, ByteBuffer buffer, long posicao, CRC32 crc, byte[] bytes)
+            throws IOException {
+        int inicio = 0;
+        while (inicio < bytes.length) {
+            if (!buffer.hasRemaining()) posicao += descarregar(canal, buffer, posicao, crc);
+            int parte = Math.min(buffer.remaining(), bytes.length - inicio);
+            buffer.put(bytes, inicio, parte);
+            inicio += parte;
+        }
+        return posicao;
+    }
+
+    /**
+     * Escreve o conteúdo do buffer no canal a partir da posição, atualiza o CRC e esvazia o buffer.
+     * @return Quantos bytes foram escritos.
+     */
+    private static int descarregar(FileChannel canal, ByteBuffer buffer, long posicao, CRC32 crc) throws IOException {
+        buffer.flip();
+        int escritos = buffer.remaining();
+        crc.update(buffer.duplicate());
+        escreverTudo(canal, buffer, posicao);
+        buffer.clear();
+        return escritos;
+    }
+
+    private static void escreverTudo(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+        while (buffer.hasRemaining()) {
+            posicao += canal.write(buffer, posicao);
+        }
+    }
+
+    private static int crc(ByteBuffer regiao) {
+        CRC32 crc = new CRC32();
+        crc.update(regiao.duplicate());
+        return (int) crc.getValue();
+    }
+}
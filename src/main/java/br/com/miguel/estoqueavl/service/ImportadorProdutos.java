@@ -0,0 +1,586 @@
+package br.com.miguel.estoqueavl.service;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import br.com.miguel.estoqueavl.model.estrutura.Operacao;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjDoubleConsumer;
+import java.util.stream.IntStream;
+
+// Classe que importa catálogos de fornecedores (CSV ou JSON lines) para o estoque
+
+/**
+ * Importação em massa de produtos a partir de um arquivo CSV ou JSON lines (um objeto
+ * {"id", "nome", "preco", "quantidade"} por linha), para cadastrar o catálogo de um
+ * fornecedor de uma vez em vez de produto por produto.
+ *
+ * O arquivo é dividido em pedaços de ~8 MB cortados em fins de linha, lidos e validados
+ * em paralelo (fork-join). Cada pedaço é ordenado por ID e tem os IDs repetidos
+ * descartados; depois os pedaços são intercalados em ordem de ID e gravados no estoque
+ * em lotes ({@link ArvoreAVL#aplicarLote}), cada um sob uma trava de escrita, então as
+ * telas e o servidor continuam respondendo entre um lote e outro.
+ *
+ * CSV: separador ';' ou ',' (o que aparecer na primeira linha), campos entre aspas
+ * opcionais e cabeçalho opcional. Com cabeçalho, as colunas são achadas pelo nome
+ * (id, nome, preco, quantidade; as demais são ignoradas); sem ele, valem nessa ordem.
+ * O preço aceita vírgula decimal, como na tela de cadastro.
+ *
+ * As linhas recusadas (campo inválido, ID repetido no arquivo ou, no modo
+ * {@link Modo#INSERIR}, já cadastrado) vão para "&lt;arquivo&gt;.rejeitados.txt", com o
+ * número da linha, o motivo e o registro original.
+ */
+public class ImportadorProdutos {
+
+    /**
+     * O que fazer com os produtos do arquivo cujo ID já está no estoque.
+     */
+    public enum Modo {
+        /** Mantém o produto do estoque e recusa a linha do arquivo. */
+        INSERIR,
+        /** Substitui nome, preço e quantidade pelos do arquivo. */
+        ATUALIZAR
+    }
+
+    /**
+     * Resumo de uma importação.
+     * @param registros Linhas de dados lidas (sem o cabeçalho e as linhas em branco).
+     * @param inseridos Produtos novos no estoque.
+     * @param atualizados Produtos existentes atualizados (modo {@link Modo#ATUALIZAR}).
+     * @param rejeitados Linhas recusadas.
+     * @param nanos Duração total.
+     * @param arquivoRejeitados O arquivo com as linhas recusadas, ou null se não houve nenhuma.
+     */
+    public record Resultado(long registros, int inseridos, int atualizados, int rejeitados, long nanos,
+                            Path arquivoRejeitados) {
+
+        /**
+         * @return A vazão da importação, em registros por minuto.
+         */
+        public double registrosPorMinuto() {
+            return (nanos == 0) ? 0 : registros * 60e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d registros em %.1f s (%,.0f por minuto): %,d inseridos, %,d atualizados, %,d rejeitados",
+                    registros, nanos / 1e9, registrosPorMinuto(), inseridos, atualizados, rejeitados);
+        }
+    }
+
+    private enum Formato { CSV, JSON_LINHAS }
+
+    /** Colunas obrigatórias, na ordem usada por {@link Layout#colunas}. */
+    private static final String[] COLUNAS = {"id", "nome", "preco", "quantidade"};
+
+    private static final int TAMANHO_PEDACO = 8 << 20;
+    private static final int LOTE_PADRAO = 100_000;
+    private static final int TAMANHO_AMOSTRA = 64 * 1024;
+    private static final byte[] BOM_UTF8 = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final ArvoreAVLConcorrente estoque;
+    private final Modo modo;
+    private final int lote;
+
+    /**
+     * Cria o importador com lotes de {@value #LOTE_PADRAO} produtos.
+     * @param estoque O estoque que recebe os produtos.
+     * @param modo O que fazer com IDs já cadastrados.
+     */
+    public ImportadorProdutos(ArvoreAVLConcorrente estoque, Modo modo) {
+        this(estoque, modo, LOTE_PADRAO);
+    }
+
+    /**
+     * @param estoque O estoque que recebe os produtos.
+     * @param modo O que fazer com IDs já cadastrados.
+     * @param lote Produtos gravados por trava de escrita: lotes maiores gravam mais rápido,
+     *             menores deixam as leituras esperarem menos.
+     */
+    public ImportadorProdutos(ArvoreAVLConcorrente estoque, Modo modo, int lote) {
+        if (lote <= 0) throw new IllegalArgumentException("O lote deve ser positivo.");
+        this.estoque = estoque;
+        this.modo = modo;
+        this.lote = lote;
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    /**
+     * Importa um arquivo sem acompanhar o progresso.
+     * @see #importar(Path, ObjDoubleConsumer)
+     */
+    public Resultado importar(Path arquivo) throws IOException {
+        return importar(arquivo, (mensagem, fracao) -> { });
+    }
+
+    /**
+     * Importa um arquivo CSV ou JSON lines para o estoque.
+     * @param arquivo O arquivo; o formato é reconhecido pelo conteúdo.
+     * @param progresso Recebe a etapa atual e a fração concluída (0 a 1). Pode ser chamado
+     *                  de várias threads ao mesmo tempo durante a leitura.
+     * @return O resumo da importação.
+     * @throws IOException Se o arquivo não puder ser lido, ou se o cabeçalho do CSV não tiver
+     *         as colunas obrigatórias. Nesse caso nada é gravado no estoque.
+     */
+    public Resultado importar(Path arquivo, ObjDoubleConsumer<String> progresso) throws IOException {
+        long inicio = System.nanoTime();
+        List<Rejeicao> rejeicoes = new ArrayList<>();
+        Lido[] lidos;
+        long[] linhasAntes;
+        long registros = 0;
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            Layout layout = Layout.detectar(canal, tamanho);
+            List<Pedaco> pedacos = dividir(canal, layout.inicioDados(), tamanho);
+
+            // Leitura e validação em paralelo, um pedaço por tarefa.
+            AtomicLong bytesLidos = new AtomicLong();
+            double megabytes = tamanho / (1024.0 * 1024);
+            try {
+                lidos = IntStream.range(0, pedacos.size()).parallel().mapToObj(i -> {
+                    Lido lido = ler(canal, pedacos.get(i), layout);
+                    double lidosMb = bytesLidos.addAndGet(pedacos.get(i).tamanho()) / (1024.0 * 1024);
+                    progresso.accept(String.format("Lendo e validando: %,.0f de %,.0f MB", lidosMb, megabytes),
+                            0.5 * lidosMb / Math.max(megabytes, Double.MIN_VALUE));
+                    return lido;
+                }).toArray(Lido[]::new);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            // Números de linha globais: cada pedaço só conhece as suas.
+            linhasAntes = new long[lidos.length];
+            long linhas = layout.linhasCabecalho();
+            for (int i = 0; i < lidos.length; i++) {
+                linhasAntes[i] = linhas;
+                linhas += lidos[i].linhasPedaco();
+                registros += lidos[i].registros();
+                for (Rejeicao r : lidos[i].rejeicoes()) rejeicoes.add(new Rejeicao(linhasAntes[i] + r.linha(), r.motivo()));
+            }
+        }
+
+        int[] gravados = intercalarEGravar(lidos, linhasAntes, rejeicoes, progresso);
+
+        Path arquivoRejeitados = arquivo.resolveSibling(arquivo.getFileName() + ".rejeitados.txt");
+        if (rejeicoes.isEmpty()) {
+            Files.deleteIfExists(arquivoRejeitados); // Não deixa o relatório de uma importação anterior
+            arquivoRejeitados = null;
+        } else {
+            progresso.accept("Gravando as linhas rejeitadas...", 1);
+            gravarRejeitados(arquivo, arquivoRejeitados, rejeicoes);
+        }
+
+        Resultado resultado = new Resultado(registros, gravados[0], gravados[1], rejeicoes.size(),
+                System.nanoTime() - inicio, arquivoRejeitados);
+        progresso.accept(resultado.toString(), 1);
+        return resultado;
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Intercala os pedaços (cada um já ordenado) em ordem de ID e grava no estoque em lotes.
+     * Entre IDs iguais de pedaços diferentes vale o do pedaço anterior, ou seja, a primeira
+     * ocorrência no arquivo, como dentro de um pedaço.
+     * @return Quantos produtos foram inseridos e quantos atualizados.
+     */
+    private int[] intercalarEGravar(Lido[] lidos, long[] linhasAntes, List<Rejeicao> rejeicoes,
+                                    ObjDoubleConsumer<String> progresso) {
+        int[] posicoes = new int[lidos.length];
+        PriorityQueue<Integer> fila = new PriorityQueue<>(Math.max(1, lidos.length),
+                Comparator.<Integer>comparingInt(i -> lidos[i].produtos()[posicoes[i]].getId()).thenComparingInt(i -> i));
+        long total = 0;
+        for (int i = 0; i < lidos.length; i++) {
+            total += lidos[i].quantidade();
+            if (lidos[i].quantidade() > 0) fila.add(i);
+        }
+
+        int[] gravados = new int[2];
+        Produto[] produtos = new Produto[(int) Math.min(lote, Math.max(total, 1))];
+        long[] linhas = new long[produtos.length];
+        int quantidade = 0;
+        long intercalados = 0;
+        int ultimoId = 0;
+        boolean primeiro = true;
+
+        while (!fila.isEmpty()) {
+            int i = fila.poll();
+            Lido lido = lidos[i];
+            Produto produto = lido.produtos()[posicoes[i]];
+            long linha = linhasAntes[i] + lido.linhas()[posicoes[i]];
+            if (++posicoes[i] < lido.quantidade()) fila.add(i);
+
+            if (!primeiro && produto.getId() == ultimoId) {
+                rejeicoes.add(new Rejeicao(linha, "ID " + produto.getId() + " repetido no arquivo"));
+                continue;
+            }
+            primeiro = false;
+            ultimoId = produto.getId();
+
+            produtos[quantidade] = produto;
+            linhas[quantidade++] = linha;
+            intercalados++;
+            if (quantidade == produtos.length) {
+                gravar(produtos, linhas, quantidade, gravados, rejeicoes);
+                quantidade = 0;
+                progresso.accept(String.format("Gravando no estoque: %,d de %,d produtos", intercalados, total),
+                        0.5 + 0.5 * intercalados / total);
+            }
+        }
+        if (quantidade > 0) gravar(produtos, linhas, quantidade, gravados, rejeicoes);
+        return gravados;
+    }
+
+    /**
+     * Grava um lote já ordenado sob uma única trava de escrita. A separação entre novos
+     * e existentes acontece dentro da trava, então não disputa com outras gravações.
+     */
+    private void gravar(Produto[] produtos, long[] linhas, int quantidade, int[] gravados, List<Rejeicao> rejeicoes) {
+        estoque.escrever(arvore -> {
+            List<Operacao> operacoes = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                Produto produto = produtos[i];
+                if (arvore.buscar(produto.getId()) == null) {
+                    operacoes.add(Operacao.inserir(produto));
+                    gravados[0]++;
+                } else if (modo == Modo.ATUALIZAR) {
+                    operacoes.add(Operacao.atualizar(produto));
+                    gravados[1]++;
+                } else {
+                    rejeicoes.add(new Rejeicao(linhas[i], "ID " + produto.getId() + " já cadastrado no estoque"));
+                }
+            }
+            return arvore.aplicarLote(operacoes);
+        });
+    }
+
+    /**
+     * Divide o arquivo em pedaços de ~{@link #TAMANHO_PEDACO} bytes que terminam em fim de linha.
+     */
+    private static List<Pedaco> dividir(FileChannel canal, long inicio, long tamanho) throws IOException {
+        List<Pedaco> pedacos = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (inicio < tamanho) {
+            long fim = proximaLinha(canal, Math.min(inicio + TAMANHO_PEDACO, tamanho), tamanho, buffer);
+            pedacos.add(new Pedaco(inicio, fim));
+            inicio = fim;
+        }
+        return pedacos;
+    }
+
+    /**
+     * @return A posição logo depois do primeiro '\n' a partir de posicao - 1 (posicao, se
+     *         ela já começa uma linha), ou o fim do arquivo.
+     */
+    private static long proximaLinha(FileChannel canal, long posicao, long tamanho, ByteBuffer buffer) throws IOException {
+        long p = posicao - 1;
+        while (p < tamanho) {
+            buffer.clear();
+            int lidos = canal.read(buffer, p);
+            if (lidos <= 0) break;
+            for (int i = 0; i < lidos; i++) {
+                if (buffer.get(i) == '\n') return p + i + 1;
+            }
+            p += lidos;
+        }
+        return tamanho;
+    }
+
+    /**
+     * Lê e valida as linhas de um pedaço, ordena os produtos válidos por ID e descarta os
+     * IDs repetidos (fica a primeira ocorrência). Roda em paralelo com os outros pedaços.
+     */
+    private static Lido ler(FileChannel canal, Pedaco pedaco, Layout layout) {
+        byte[] bytes = new byte[(int) pedaco.tamanho()];
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer, pedaco.inicio() + buffer.position()) < 0) throw new IOException("O arquivo diminuiu durante a importação.");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Produto[] validos = new Produto[Math.max(16, bytes.length / 32)];
+        int[] linhasValidos = new int[validos.length];
+        int quantidade = 0;
+        List<Rejeicao> rejeicoes = new ArrayList<>();
+        int linha = 0;
+        int registros = 0;
+
+        for (int i = 0; i < bytes.length; ) {
+            int fimLinha = i;
+            while (fimLinha < bytes.length && bytes[fimLinha] != '\n') fimLinha++;
+            linha++;
+            int fim = (fimLinha > i && bytes[fimLinha - 1] == '\r') ? fimLinha - 1 : fimLinha;
+            String texto = new String(bytes, i, fim - i, StandardCharsets.UTF_8);
+            i = fimLinha + 1;
+            if (texto.isBlank()) continue;
+
+            registros++;
+            try {
+                Produto produto = layout.produto(texto);
+                if (quantidade == validos.length) {
+                    validos = Arrays.copyOf(validos, quantidade * 2);
+                    linhasValidos = Arrays.copyOf(linhasValidos, quantidade * 2);
+                }
+                validos[quantidade] = produto;
+                linhasValidos[quantidade++] = linha;
+            } catch (IllegalArgumentException e) {
+                rejeicoes.add(new Rejeicao(linha, e.getMessage()));
+            }
+        }
+
+        // Ordena pela chave (ID, posição): os repetidos ficam juntos, o primeiro na frente.
+        long[] chaves = new long[quantidade];
+        for (int k = 0; k < quantidade; k++) chaves[k] = ((long) validos[k].getId() << 32) | k;
+        Arrays.sort(chaves);
+
+        Produto[] ordenados = new Produto[quantidade];
+        int[] linhas = new int[quantidade];
+        int unicos = 0;
+        for (long chave : chaves) {
+            int k = (int) chave;
+            if (unicos > 0 && ordenados[unicos - 1].getId() == validos[k].getId()) {
+                rejeicoes.add(new Rejeicao(linhasValidos[k], "ID " + validos[k].getId() + " repetido no arquivo"));
+            } else {
+                ordenados[unicos] = validos[k];
+                linhas[unicos++] = linhasValidos[k];
+            }
+        }
+        return new Lido(ordenados, linhas, unicos, linha, registros, rejeicoes);
+    }
+
+    /**
+     * Copia as linhas recusadas do arquivo original para o relatório, em ordem de linha.
+     */
+    private static void gravarRejeitados(Path arquivo, Path destino, List<Rejeicao> rejeicoes) throws IOException {
+        rejeicoes.sort(Comparator.comparingLong(Rejeicao::linha));
+        try (InputStream entrada = new BufferedInputStream(Files.newInputStream(arquivo), 1 << 16);
+             OutputStream saida = new BufferedOutputStream(Files.newOutputStream(destino), 1 << 16)) {
+            saida.write("linha\tmotivo\tregistro\n".getBytes(StandardCharsets.UTF_8));
+            ByteArrayOutputStream registro = new ByteArrayOutputStream();
+            long linha = 1;
+            int r = 0;
+            int b;
+            while (r < rejeicoes.size()) {
+                b = entrada.read();
+                if (b != '\n' && b != -1) {
+                    if (rejeicoes.get(r).linha() == linha) registro.write(b);
+                    continue;
+                }
+                // Fim de uma linha (ou do arquivo): escreve-a se foi recusada.
+                while (r < rejeicoes.size() && rejeicoes.get(r).linha() == linha) {
+                    String texto = registro.toString(StandardCharsets.UTF_8).stripTrailing();
+                    saida.write((linha + "\t" + rejeicoes.get(r).motivo() + "\t" + texto + "\n").getBytes(StandardCharsets.UTF_8));
+                    r++;
+                }
+                registro.reset();
+                linha++;
+                if (b == -1) break;
+            }
+        }
+    }
+
+    /**
+     * Normaliza um nome de coluna do cabeçalho: minúsculas, sem acentos nem espaços.
+     */
+    private static String normalizarColuna(String nome) {
+        String semAcentos = Normalizer.normalize(nome.strip(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return semAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Separa os campos de uma linha CSV, com aspas opcionais ("" dentro de aspas é uma aspa).
+     */
+    private static List<String> campos(String linha, char separador) {
+        List<String> campos = new ArrayList<>(COLUNAS.length);
+        StringBuilder atual = new StringBuilder();
+        boolean aspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (aspas) {
+                if (c != '"') atual.append(c);
+                else if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') atual.append(linha.charAt(++i));
+                else aspas = false;
+            } else if (c == '"') {
+                aspas = true;
+            } else if (c == separador) {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        if (aspas) throw new IllegalArgumentException("Aspas sem fechamento");
+        campos.add(atual.toString());
+        return campos;
+    }
+
+    /**
+     * Valida os campos de um registro, como a tela de cadastro: ID e quantidade inteiros,
+     * preço decimal (aceita vírgula) e nome obrigatório; preço e quantidade não negativos.
+     */
+    private static Produto validar(String id, String nome, String preco, String quantidade) {
+        int valorId = inteiro(id, "ID");
+        if (nome == null || nome.isBlank()) throw new IllegalArgumentException("Nome obrigatório");
+
+        if (preco == null) throw new IllegalArgumentException("Preço ausente");
+        BigDecimal valorPreco;
+        try {
+            valorPreco = new BigDecimal(preco.strip().replace(",", "."));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Preço inválido: " + preco);
+        }
+        if (valorPreco.signum() < 0) throw new IllegalArgumentException("Preço negativo: " + preco);
+
+        int valorQuantidade = inteiro(quantidade, "Quantidade");
+        if (valorQuantidade < 0) throw new IllegalArgumentException("Quantidade negativa: " + quantidade);
+        return new Produto(valorId, nome.strip(), valorPreco, valorQuantidade);
+    }
+
+    private static int inteiro(String valor, String campo) {
+        if (valor == null) throw new IllegalArgumentException(campo + " ausente");
+        try {
+            return Integer.parseInt(valor.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(campo + " inválido: " + valor);
+        }
+    }
+
+    /**
+     * @return O valor de um campo do objeto JSON como texto, ou null se ele faltar ou for null.
+     */
+    private static String texto(JsonObject objeto, String campo) {
+        JsonElement valor = objeto.get(campo);
+        if (valor == null || valor.isJsonNull()) return null;
+        if (!valor.isJsonPrimitive()) throw new IllegalArgumentException("O campo " + campo + " deve ser um valor simples");
+        return valor.getAsString();
+    }
+
+    /** Trecho do arquivo [inicio, fim), começando e terminando em fim de linha. */
+    private record Pedaco(long inicio, long fim) {
+        long tamanho() {
+            return fim - inicio;
+        }
+    }
+
+    /** Linha recusada e o motivo. */
+    private record Rejeicao(long linha, String motivo) {
+    }
+
+    /**
+     * Resultado da leitura de um pedaço: os produtos válidos ordenados por ID e sem
+     * repetidos, com a linha (local ao pedaço) de cada um, e quantas linhas o pedaço tem.
+     */
+    private record Lido(Produto[] produtos, int[] linhas, int quantidade, int linhasPedaco, int registros,
+                        List<Rejeicao> rejeicoes) {
+    }
+
+    /**
+     * Formato do arquivo, descoberto pelo começo dele: JSON lines se a primeira linha
+     * começa com '{'; senão CSV, com o separador e as colunas da primeira linha.
+     * @param colunas Posição de id, nome, preco e quantidade nos campos do CSV.
+     * @param necessarios Quantos campos cada linha do CSV precisa ter, no mínimo.
+     * @param inicioDados Posição da primeira linha de dados (depois do BOM e do cabeçalho).
+     * @param linhasCabecalho 1 se há cabeçalho, 0 se não.
+     */
+    private record Layout(Formato formato, char separador, int[] colunas, int necessarios, long inicioDados,
+                          int linhasCabecalho) {
+
+        static Layout detectar(FileChannel canal, long tamanho) throws IOException {
+            ByteBuffer amostra = ByteBuffer.allocate((int) Math.min(TAMANHO_AMOSTRA, tamanho));
+            while (amostra.hasRemaining()) {
+                if (canal.read(amostra, amostra.position()) <= 0) break;
+            }
+            byte[] bytes = Arrays.copyOf(amostra.array(), amostra.position());
+            int inicio = (bytes.length >= 3 && Arrays.equals(bytes, 0, 3, BOM_UTF8, 0, 3)) ? 3 : 0;
+            int fimLinha = inicio;
+            while (fimLinha < bytes.length && bytes[fimLinha] != '\n') fimLinha++;
+            String primeira = new String(bytes, inicio, fimLinha - inicio, StandardCharsets.UTF_8).strip();
+
+            if (primeira.startsWith("{") || primeira.isEmpty()) {
+                return new Layout(Formato.JSON_LINHAS, ',', null, 0, inicio, 0);
+            }
+            if (primeira.startsWith("[")) {
+                throw new IOException("Arquivo JSON em array: a importação aceita JSON lines (um produto por linha) ou CSV.");
+            }
+
+            char separador = (primeira.indexOf(';') >= 0) ? ';' : ',';
+            List<String> campos = campos(primeira, separador);
+            try {
+                Integer.parseInt(campos.get(0).strip());
+                return new Layout(Formato.CSV, separador, new int[]{0, 1, 2, 3}, COLUNAS.length, inicio, 0);
+            } catch (NumberFormatException e) {
+                // A primeira linha é um cabeçalho: acha as colunas pelo nome.
+            }
+            if (fimLinha == bytes.length && fimLinha < tamanho) {
+                throw new IOException("Cabeçalho maior que " + TAMANHO_AMOSTRA + " bytes.");
+            }
+            int[] colunas = new int[COLUNAS.length];
+            for (int c = 0; c < COLUNAS.length; c++) {
+                colunas[c] = -1;
+                for (int i = 0; i < campos.size(); i++) {
+                    if (normalizarColuna(campos.get(i)).equals(COLUNAS[c])) colunas[c] = i;
+                }
+                if (colunas[c] < 0) throw new IOException("O cabeçalho do CSV não tem a coluna \"" + COLUNAS[c] + "\": " + primeira);
+            }
+            int necessarios = Arrays.stream(colunas).max().getAsInt() + 1;
+            return new Layout(Formato.CSV, separador, colunas, necessarios, Math.min(fimLinha + 1, tamanho), 1);
+        }
+
+        /**
+         * Converte uma linha de dados em produto.
+         * @throws IllegalArgumentException Com o motivo, se a linha for inválida.
+         */
+        Produto produto(String linha) {
+            if (formato == Formato.JSON_LINHAS) {
+                JsonElement elemento;
+                try {
+                    elemento = JsonParser.parseString(linha);
+                } catch (JsonParseException e) {
+                    throw new IllegalArgumentException("JSON inválido");
+                }
+                if (!elemento.isJsonObject()) throw new IllegalArgumentException("A linha deve ser um objeto JSON");
+                JsonObject objeto = elemento.getAsJsonObject();
+                return validar(texto(objeto, "id"), texto(objeto, "nome"),
+                        texto(objeto, "preco"), texto(objeto, "quantidade"));
+            }
+
+            List<String> campos = campos(linha, separador);
+            if (campos.size() < necessarios) {
+                throw new IllegalArgumentException("Esperados " + necessarios + " campos, há " + campos.size());
+            }
+            return validar(campos.get(colunas[0]), campos.get(colunas[1]),
+                    campos.get(colunas[2]), campos.get(colunas[3]));
+        }
+    }
+}
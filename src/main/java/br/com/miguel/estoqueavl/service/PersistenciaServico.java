@@ -1,68 +1,353 @@
 package br.com.miguel.estoqueavl.service;
 
+import br.com.miguel.estoqueavl.metricas.Metricas;
 import br.com.miguel.estoqueavl.model.Produto;
 import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.*;
-import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
- * Serviço para salvar e carregar os dados do estoque em um arquivo JSON.
+ * Serviço para salvar e carregar os dados do estoque em arquivo.
  * Garante que os dados persistam após o fechamento da aplicação.
+ *
+ * Há dois formatos (ver {@link Formato}): JSON, legível e editável, e um
+ * instantâneo binário (FormatoBinario), que carrega várias vezes mais rápido.
+ * A aplicação salva em binário no estoque_dados.bin; ao carregar, o formato é
+ * detectado pelo conteúdo do arquivo, e entre o arquivo configurado e o seu
+ * "irmão" do outro formato (estoque_dados.json ao lado do .bin) vale o mais
+ * recente. Assim um estoque antigo em JSON é aproveitado na primeira execução.
+ *
+ * O JSON é lido e escrito em modo streaming (JsonReader/JsonWriter): ao salvar,
+ * os produtos saem direto do percurso em ordem da árvore, sem lista intermediária.
+ * Ao carregar, o arquivo é lido produto a produto, sem montar a árvore de objetos
+ * JSON (JsonElement) do documento inteiro; mas todos os produtos lidos ficam em uma
+ * lista, copiada para um array por {@link ArvoreAVL#construirDeLista}, porque a
+ * montagem balanceada precisa do catálogo inteiro em mãos para escolher as raízes.
  */
 public class PersistenciaServico {
 
-    private static final String ARQUIVO_DADOS = "estoque_dados.json";
-    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    /**
+     * Formato do arquivo de dados.
+     */
+    public enum Formato {
+        /** Texto JSON: um array de objetos {"id", "nome", "preco", "quantidade"}. */
+        JSON(".json"),
+        /** Instantâneo binário com registros de tamanho fixo e checksum. */
+        BINARIO(".bin");
+
+        private final String extensao;
+
+        Formato(String extensao) {
+            this.extensao = extensao;
+        }
+    }
+
+    private static final String ARQUIVO_DADOS = "estoque_dados.bin";
+    private static final int TAMANHO_BUFFER = 1 << 16;
+
+    private final String arquivo;
+    private final Formato formato;
+    private final boolean compacto;
+
+    // Construtor padrão. Usa o arquivo estoque_dados.bin do diretório atual (ou o estoque_dados.json, se for mais recente)
+    public PersistenciaServico() {
+        this(ARQUIVO_DADOS, Formato.BINARIO);
+    }
+
+    /**
+     * Cria o serviço apontando para outro arquivo JSON (útil para medições e testes).
+     * @param arquivo O caminho do arquivo JSON.
+     */
+    public PersistenciaServico(String arquivo) {
+        this(arquivo, false);
+    }
 
     /**
-     * Salva todos os produtos da árvore em um arquivo JSON.
+     * Cria o serviço JSON escolhendo o formato de saída.
+     * @param arquivo O caminho do arquivo JSON.
+     * @param compacto Se true, grava sem indentação nem quebras de linha (arquivo menor e mais rápido);
+     *                 se false, grava formatado para leitura humana.
+     */
+    public PersistenciaServico(String arquivo, boolean compacto) {
+        this(arquivo, Formato.JSON, compacto);
+    }
+
+    /**
+     * Cria o serviço no formato informado (JSON formatado ou binário).
+     * @param arquivo O caminho do arquivo de dados.
+     * @param formato O formato em que os dados serão salvos.
+     */
+    public PersistenciaServico(String arquivo, Formato formato) {
+        this(arquivo, formato, false);
+    }
+
+    private PersistenciaServico(String arquivo, Formato formato, boolean compacto) {
+        this.arquivo = arquivo;
+        this.formato = formato;
+        this.compacto = compacto;
+    }
+
+    /**
+     * Salva todos os produtos da árvore no arquivo, direto do percurso em ordem.
      * @param arvore A árvore com os produtos a serem salvos.
      */
     public void salvar(ArvoreAVL arvore) {
-        try (Writer writer = new FileWriter(ARQUIVO_DADOS)) {
-            // Converte a árvore para lista e depois para JSON, salvando no arquivo.
-            List<Produto> listaDeProdutos = arvore.listar();
-            gson.toJson(listaDeProdutos, writer);
-            System.out.println("Backup realizado! " + listaDeProdutos.size() + " produtos salvos.");
+        gravar(arvore, arvore.tamanho());
+    }
+
+    /**
+     * Converte um arquivo de dados para outro formato, sem montar a árvore.
+     * O formato de origem é detectado pelo conteúdo.
+     * @param origem O arquivo existente (JSON ou binário).
+     * @param destino O arquivo a ser criado.
+     * @param formato O formato do arquivo de destino.
+     * @return A quantidade de produtos convertidos.
+     */
+    public static int converter(String origem, String destino, Formato formato) throws IOException {
+        List<Produto> produtos = ler(Path.of(origem));
+        new PersistenciaServico(destino, formato).gravarComExcecao(produtos, produtos.size());
+        return produtos.size();
+    }
+
+    /**
+     * Grava os produtos no arquivo, no formato configurado.
+     * @param produtos Os produtos, já ordenados pelo ID.
+     * @param quantidade Quantos produtos serão gravados.
+     */
+    private void gravar(Iterable<Produto> produtos, int quantidade) {
+        try {
+            gravarComExcecao(produtos, quantidade);
+            System.out.println("Backup realizado! " + quantidade + " produtos salvos.");
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Carrega os produtos de um arquivo JSON para a árvore.
-     * @return Uma nova ArvoreAVL com os dados carregados do arquivo.
+     * Grava em um arquivo temporário ao lado do destino e, só depois de completo e
+     * sincronizado em disco, o renomeia por cima do arquivo de dados (troca atômica).
+     * Uma falha no meio da gravação deixa o arquivo anterior intacto.
+     * @return A quantidade de bytes gravados.
+     */
+    private long gravarComExcecao(Iterable<Produto> produtos, int quantidade) throws IOException {
+        Path destino = Path.of(arquivo);
+        Path temporario = Path.of(arquivo + ".tmp");
+        long inicio = Metricas.inicio();
+        try {
+            if (formato == Formato.BINARIO) {
+                FormatoBinario.gravar(temporario, produtos, quantidade);
+            } else {
+                gravarJson(temporario, produtos);
+            }
+            long bytes = Files.size(temporario);
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Metricas.SALVAMENTO.registrarDesde(inicio);
+            return bytes;
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    /**
+     * Grava os produtos em um arquivo JSON, um por vez.
+     * @param destino O arquivo a ser gravado.
+     * @param produtos Os produtos, já ordenados pelo ID.
+     */
+    private void gravarJson(Path destino, Iterable<Produto> produtos) throws IOException {
+        FileOutputStream saida = new FileOutputStream(destino.toFile());
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(saida, StandardCharsets.UTF_8), TAMANHO_BUFFER))) {
+            if (!compacto) writer.setIndent("  ");
+
+            writer.beginArray();
+            for (Produto p : produtos) {
+                escreverProduto(writer, p);
+            }
+            writer.endArray();
+            writer.flush();
+            saida.getFD().sync();
+        }
+    }
+
+    /**
+     * Carrega os produtos do arquivo para a árvore.
+     * Entre o arquivo configurado e o seu irmão do outro formato, lê o mais recente;
+     * o formato é detectado pelo conteúdo. Como os arquivos são gravados em ordem
+     * de ID, a árvore é montada de uma vez no final, já balanceada.
+     *
+     * Um arquivo ilegível ou corrompido (checksum errado, JSON inválido) é um erro, e
+     * não um estoque vazio: quem chama não deve seguir (nem salvar por cima dele), e o
+     * arquivo fica intacto para ser recuperado.
+     * @return Uma nova ArvoreAVL com os dados carregados do arquivo (vazia se nenhum arquivo existe).
+     * @throws IOException Se o arquivo existe mas não pôde ser lido.
      */
-    public ArvoreAVL carregar() {
-        ArvoreAVL novaArvore = new ArvoreAVL();
-        File arquivo = new File(ARQUIVO_DADOS);
+    public ArvoreAVL carregar() throws IOException {
+        Path origem = escolherOrigem();
 
-        if (!arquivo.exists()) {
-            return novaArvore; // Retorna árvore vazia se o arquivo não existe.
+        if (origem == null) {
+            return new ArvoreAVL(); // Retorna árvore vazia se nenhum arquivo existe.
         }
 
-        try (Reader reader = new FileReader(ARQUIVO_DADOS)) {
-            // Define o tipo como uma lista de produtos para o Gson.
-            Type tipoLista = new TypeToken<ArrayList<Produto>>() {}.getType();
-            List<Produto> listaRecuperada = gson.fromJson(reader, tipoLista);
+        long inicio = Metricas.inicio();
+        try {
+            // Monta a árvore balanceada direto da lista (ordenando antes, se preciso).
+            ArvoreAVL novaArvore = ArvoreAVL.construirDeLista(ler(origem));
+            Metricas.CARREGAMENTO.registrarDesde(inicio);
+            System.out.println("Sucesso! " + novaArvore.tamanho() + " produtos carregados de " + origem.getFileName() + ".");
+            return novaArvore;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IOException("Falha ao ler " + origem.toAbsolutePath() + ": " + e.getMessage(), e);
+        }
+    }
 
-            // Insere cada produto da lista na nova árvore.
-            if (listaRecuperada != null) {
-                for (Produto p : listaRecuperada) {
-                    novaArvore.inserir(p);
+    /**
+     * Carrega o último instantâneo e reaplica sobre ele as operações do diário,
+     * que a partir daí passa a registrar as alterações da árvore.
+     * @param diario O diário de operações (ainda não aberto).
+     * @return A árvore com o estado de antes da última parada, observada pelo diário.
+     */
+    public ArvoreAVL carregar(DiarioOperacoes diario) throws IOException {
+        ArvoreAVL arvore = carregar();
+        diario.abrir(arvore);
+        return arvore;
+    }
+
+    /**
+     * Faz um checkpoint: salva um instantâneo completo e descarta o diário que ele cobre,
+     * limitando o tamanho do diário e o tempo de recuperação.
+     *
+     * Sob a trava de leitura o diário é rotacionado e a árvore ganha um instantâneo em
+     * O(1) ({@link ArvoreAVL#instantaneo()}); a gravação do arquivo percorre o instantâneo
+     * depois, já sem trava, então as escritas no estoque ficam bloqueadas só durante a
+     * rotação do diário, qualquer que seja o tamanho do catálogo.
+     * O instantâneo contém exatamente as operações do segmento descartado.
+     * @param estoque O estoque a ser salvo.
+     * @param diario O diário de operações que observa o estoque, ou null se não houver.
+     * @return A quantidade de bytes gravados, ou -1 se houve erro (o diário é mantido).
+     */
+    public long checkpoint(ArvoreAVLConcorrente estoque, DiarioOperacoes diario) {
+        try {
+            ArvoreAVL instantaneo = estoque.ler(arvore -> {
+                try {
+                    if (diario != null) diario.rotacionar();
+                    return arvore.instantaneo();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            });
+            long bytes = gravarComExcecao(instantaneo, instantaneo.tamanho());
+            if (diario != null) diario.descartarAntigo();
+            return bytes;
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Escolhe de qual arquivo carregar: o configurado ou o irmão do outro formato
+     * (mesmo nome, outra extensão), o que tiver sido modificado por último.
+     * @return O arquivo a ser lido, ou null se nenhum dos dois existe.
+     */
+    private Path escolherOrigem() {
+        Path principal = Path.of(arquivo);
+        Path irmao = null;
+        for (Formato f : Formato.values()) {
+            if (f != formato && arquivo.endsWith(formato.extensao)) {
+                irmao = Path.of(arquivo.substring(0, arquivo.length() - formato.extensao.length()) + f.extensao);
             }
-            System.out.println("Sucesso! " + (listaRecuperada != null ? listaRecuperada.size() : 0) + " produtos carregados.");
+        }
+
+        boolean temPrincipal = Files.isRegularFile(principal);
+        boolean temIrmao = irmao != null && Files.isRegularFile(irmao);
+        if (!temIrmao) return temPrincipal ? principal : null;
+        if (!temPrincipal) return irmao;
+        try {
+            return Files.getLastModifiedTime(irmao).compareTo(Files.getLastModifiedTime(principal)) > 0 ? irmao : principal;
         } catch (IOException e) {
-            e.printStackTrace();
+            return principal;
         }
+    }
 
-        return novaArvore;
+    /**
+     * Lê todos os produtos de um arquivo, detectando o formato pelo número mágico.
+     * @param origem O arquivo a ser lido.
+     * @return Os produtos, na ordem do arquivo.
+     */
+    private static List<Produto> ler(Path origem) throws IOException {
+        if (FormatoBinario.reconhece(origem)) {
+            return Arrays.asList(FormatoBinario.ler(origem));
+        }
+        return lerJson(origem);
+    }
+
+    /**
+     * Lê os produtos de um arquivo JSON, um a um.
+     */
+    private static List<Produto> lerJson(Path origem) throws IOException {
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(origem.toFile()), StandardCharsets.UTF_8), TAMANHO_BUFFER))) {
+            List<Produto> produtos = new ArrayList<>();
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                produtos.add(lerProduto(reader));
+            }
+            reader.endArray();
+            return produtos;
+        }
+    }
+
+    // ###### FORMATO JSON ######
+
+    /**
+     * Escreve um produto como objeto JSON: {"id", "nome", "preco", "quantidade"}.
+     */
+    private void escreverProduto(JsonWriter writer, Produto p) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(p.getId());
+        writer.name("nome").value(p.getNome());
+        writer.name("preco").value(p.getPreco());
+        writer.name("quantidade").value(p.getQuantidade());
+        writer.endObject();
+    }
+
+    /**
+     * Lê um objeto JSON de produto. Campos desconhecidos são ignorados e o preço
+     * é lido a partir do texto original, sem passar por double.
+     */
+    private static Produto lerProduto(JsonReader reader) throws IOException {
+        Produto p = new Produto();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String campo = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "id" -> p.setId(reader.nextInt());
+                case "nome" -> p.setNome(reader.nextString());
+                case "preco" -> p.setPreco(new BigDecimal(reader.nextString()));
+                case "quantidade" -> p.setQuantidade(reader.nextInt());
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return p;
     }
 }
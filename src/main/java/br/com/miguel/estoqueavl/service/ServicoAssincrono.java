@@ -0,0 +1,53 @@
+package br.com.miguel.estoqueavl.service;
+
+import javafx.concurrent.Task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Classe que executa os trabalhos pesados da interface fora da thread do JavaFX
+
+/**
+ * Executa carregamento, buscas, listagens e exclusões fora da thread de aplicação do
+ * JavaFX, para a interface não congelar enquanto esperam pelo disco ou pela trava da árvore.
+ *
+ * Cada trabalho vira uma {@link Task} executada em uma thread virtual própria (criar uma
+ * é barato, e esperar por uma trava ou pelo disco não prende uma thread do sistema).
+ * Os tratadores de conclusão e de falha rodam na thread do JavaFX e podem mexer na tela.
+ * Uma tarefa cancelada (ex.: uma busca substituída por outra) não chama nenhum deles.
+ */
+public class ServicoAssincrono {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Executa um trabalho em uma thread virtual.
+     * @param trabalho O trabalho, executado fora da thread do JavaFX.
+     * @param aoConcluir Recebe o resultado, na thread do JavaFX.
+     * @param aoFalhar Recebe a exceção do trabalho, na thread do JavaFX.
+     * @return A tarefa, que pode ser cancelada.
+     */
+    public <T> Task<T> executar(Callable<T> trabalho, Consumer<T> aoConcluir, Consumer<Throwable> aoFalhar) {
+        Task<T> tarefa = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return trabalho.call();
+            }
+        };
+        tarefa.setOnSucceeded(e -> aoConcluir.accept(tarefa.getValue()));
+        tarefa.setOnFailed(e -> aoFalhar.accept(tarefa.getException()));
+        return iniciar(tarefa);
+    }
+
+    /**
+     * Inicia uma tarefa já configurada (tratadores, progresso) em uma thread virtual.
+     * @param tarefa A tarefa.
+     * @return A própria tarefa.
+     */
+    public <T> Task<T> iniciar(Task<T> tarefa) {
+        executor.execute(tarefa);
+        return tarefa;
+    }
+}
@@ -0,0 +1,306 @@
+package br.com.miguel.estoqueavl.service;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Classe que expõe o estoque por HTTP/JSON, para terminais de venda e coletores
+
+/**
+ * Servidor HTTP local (JDK {@link HttpServer}) com as operações do estoque em JSON,
+ * para terminais de venda e coletores consultarem e baixarem o estoque ao mesmo tempo.
+ * Só escuta no endereço de loopback.
+ *
+ * <pre>
+ * GET    /produtos/{id}                   o produto (404 se não existir)
+ * GET    /produtos?de=&amp;ate=&amp;limite=       produtos com ID em [de, ate], em ordem (limite padrão 100, máximo 1000)
+ * POST   /produtos                        insere o produto do corpo (201; 409 se o ID existir)
+ * DELETE /produtos/{id}                   remove o produto (204; 404 se não existir)
+ * POST   /produtos/{id}/ajuste            soma {"delta": n} à quantidade (409 se o saldo ficaria negativo)
+ * </pre>
+ *
+ * Toda resposta de erro tem o corpo {"erro": mensagem}. Se o diário de operações falhar,
+ * a escrita é cancelada e respondida com 503; qualquer outra falha inesperada, com 500.
+ *
+ * Cada requisição roda em uma thread virtual própria: esperar pela rede ou pela trava
+ * de escrita não prende uma thread do sistema. O JSON de cada resposta é montado dentro
+ * da trava da operação (de leitura nas consultas, que não disputam entre si), então
+ * nunca mostra um produto alterado pela metade.
+ */
+public class ServidorEstoque implements AutoCloseable {
+
+    public static final int PORTA_PADRAO = 8080;
+
+    private static final String CAMINHO = "/produtos";
+    private static final int LIMITE_PADRAO = 100;
+    private static final int LIMITE_MAXIMO = 1000;
+    private static final int FILA_CONEXOES = 1024;
+
+    static {
+        // O HttpServer do JDK escreve cabeçalhos e corpo em envios separados; com o algoritmo
+        // de Nagle ligado, o segundo envio espera o ACK atrasado do cliente (~40 ms por resposta).
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final ArvoreAVLConcorrente estoque;
+    private final HttpServer servidor;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Gson gson = new Gson();
+
+    /**
+     * Cria o servidor (ainda parado).
+     * @param estoque O estoque servido.
+     * @param porta A porta local; 0 escolhe uma livre (ver {@link #porta()}).
+     */
+    public ServidorEstoque(ArvoreAVLConcorrente estoque, int porta) throws IOException {
+        this.estoque = estoque;
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), FILA_CONEXOES);
+        servidor.createContext(CAMINHO, this::atender);
+        servidor.setExecutor(executor);
+    }
+
+    // ###### MÉTODOS PÚBLICOS ######
+
+    /**
+     * Começa a aceitar requisições.
+     */
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * @return A porta em que o servidor escuta.
+     */
+    public int porta() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Para de aceitar conexões, espera até 1 segundo pelas requisições em andamento e
+     * encerra as threads.
+     */
+    @Override
+    public void close() {
+        servidor.stop(1);
+        executor.close();
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Encaminha a requisição pelo caminho e pelo método, e responde os erros de entrada
+     * (400, 404, 405, 409) e as falhas do servidor (503 se o diário de operações falhou,
+     * 500 nas demais) sem derrubar a conexão.
+     */
+    private void atender(HttpExchange troca) throws IOException {
+        try (troca) {
+            String resto = troca.getRequestURI().getPath().substring(CAMINHO.length());
+            String[] partes = resto.split("/");
+            String metodo = troca.getRequestMethod();
+            try {
+                if (!resto.isEmpty() && resto.charAt(0) != '/') {
+                    responderErro(troca, 404, "Caminho inexistente: " + troca.getRequestURI().getPath());
+                } else if (partes.length <= 1) {
+                    // /produtos
+                    switch (metodo) {
+                        case "GET" -> listar(troca);
+                        case "POST" -> inserir(troca);
+                        default -> metodoNaoPermitido(troca, "GET, POST");
+                    }
+                } else if (partes.length == 2) {
+                    // /produtos/{id}
+                    int id = Integer.parseInt(partes[1]);
+                    switch (metodo) {
+                        case "GET" -> buscar(troca, id);
+                        case "DELETE" -> remover(troca, id);
+                        default -> metodoNaoPermitido(troca, "GET, DELETE");
+                    }
+                } else if (partes.length == 3 && partes[2].equals("ajuste")) {
+                    // /produtos/{id}/ajuste
+                    int id = Integer.parseInt(partes[1]);
+                    if (metodo.equals("POST")) ajustar(troca, id);
+                    else metodoNaoPermitido(troca, "POST");
+                } else {
+                    responderErro(troca, 404, "Caminho inexistente: " + troca.getRequestURI().getPath());
+                }
+            } catch (NumberFormatException e) {
+                responderErro(troca, 400, "Número inválido: " + e.getMessage());
+            } catch (JsonParseException e) {
+                responderErro(troca, 400, "JSON inválido: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                responderErro(troca, 400, e.getMessage());
+            } catch (UncheckedIOException e) {
+                // Falha ao gravar no diário: a operação foi cancelada, e as próximas escritas
+                // também falham até a aplicação ser reiniciada.
+                e.printStackTrace();
+                responderFalha(troca, 503, "Estoque indisponível para alterações: " + e.getMessage());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                responderFalha(troca, 500, "Erro interno: " + e);
+            }
+        }
+    }
+
+    private void buscar(HttpExchange troca, int id) throws IOException {
+        String json = estoque.ler(arvore -> {
+            Produto produto = arvore.buscar(id);
+            return (produto == null) ? null : gson.toJson(produto);
+        });
+        if (json == null) responderErro(troca, 404, "Produto " + id + " não encontrado.");
+        else responder(troca, 200, json);
+    }
+
+    private void listar(HttpExchange troca) throws IOException {
+        Map<String, String> parametros = parametros(troca.getRequestURI());
+        int de = inteiro(parametros, "de", Integer.MIN_VALUE);
+        int ate = inteiro(parametros, "ate", Integer.MAX_VALUE);
+        int limite = inteiro(parametros, "limite", LIMITE_PADRAO);
+        if (limite < 0 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("O limite deve estar entre 0 e " + LIMITE_MAXIMO + ".");
+        }
+
+        String json = estoque.ler(arvore -> {
+            List<Produto> produtos = (de > ate) ? List.of() : arvore.intervalo(de, ate).limit(limite).toList();
+            return gson.toJson(produtos);
+        });
+        responder(troca, 200, json);
+    }
+
+    private void inserir(HttpExchange troca) throws IOException {
+        Produto produto;
+        try (Reader leitor = corpo(troca)) {
+            produto = gson.fromJson(leitor, Produto.class);
+        }
+        if (produto == null) throw new IllegalArgumentException("O corpo deve ser um produto em JSON.");
+        validar(produto);
+
+        if (estoque.inserir(produto)) {
+            responder(troca, 201, estoque.ler(arvore -> gson.toJson(produto)));
+        } else {
+            responderErro(troca, 409, "Já existe um produto com o ID " + produto.getId() + ".");
+        }
+    }
+
+    private void remover(HttpExchange troca, int id) throws IOException {
+        if (estoque.remover(id)) responder(troca, 204, null);
+        else responderErro(troca, 404, "Produto " + id + " não encontrado.");
+    }
+
+    private void ajustar(HttpExchange troca, int id) throws IOException {
+        int delta;
+        try (Reader leitor = corpo(troca)) {
+            JsonElement corpo = JsonParser.parseReader(leitor);
+            JsonElement valor = corpo.isJsonObject() ? corpo.getAsJsonObject().get("delta") : null;
+            if (valor == null || !valor.isJsonPrimitive()) throw new IllegalArgumentException("O corpo deve ser {\"delta\": n}.");
+            delta = valor.getAsInt();
+        }
+
+        String json;
+        try {
+            json = estoque.escrever(arvore -> {
+                Produto produto = arvore.ajustarQuantidade(id, delta);
+                return (produto == null) ? null : gson.toJson(produto);
+            });
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            // Estoque insuficiente ou quantidade acima do limite de int: nada foi alterado.
+            responderErro(troca, 409, e.getMessage());
+            return;
+        }
+        if (json == null) responderErro(troca, 404, "Produto " + id + " não encontrado.");
+        else responder(troca, 200, json);
+    }
+
+    /**
+     * Nome obrigatório; preço e quantidade não negativos.
+     */
+    private static void validar(Produto produto) {
+        if (produto.getNome() == null || produto.getNome().isBlank()) {
+            throw new IllegalArgumentException("O nome do produto é obrigatório.");
+        }
+        if (produto.getPreco() == null || produto.getPreco().compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalArgumentException("O preço deve ser informado e não pode ser negativo.");
+        }
+        if (produto.getQuantidade() < 0) {
+            throw new IllegalArgumentException("A quantidade não pode ser negativa.");
+        }
+    }
+
+    private static Reader corpo(HttpExchange troca) {
+        return new InputStreamReader(troca.getRequestBody(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parametros(URI uri) {
+        Map<String, String> parametros = new HashMap<>();
+        String consulta = uri.getRawQuery();
+        if (consulta == null) return parametros;
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            if (igual > 0) parametros.put(par.substring(0, igual), par.substring(igual + 1));
+        }
+        return parametros;
+    }
+
+    private static int inteiro(Map<String, String> parametros, String nome, int padrao) {
+        String valor = parametros.get(nome);
+        return (valor == null || valor.isEmpty()) ? padrao : Integer.parseInt(valor);
+    }
+
+    private void metodoNaoPermitido(HttpExchange troca, String permitidos) throws IOException {
+        troca.getResponseHeaders().set("Allow", permitidos);
+        responderErro(troca, 405, "Método " + troca.getRequestMethod() + " não permitido aqui.");
+    }
+
+    private void responderErro(HttpExchange troca, int status, String mensagem) throws IOException {
+        JsonObject erro = new JsonObject();
+        erro.addProperty("erro", mensagem);
+        responder(troca, status, erro.toString());
+    }
+
+    /**
+     * Responde uma falha do servidor, se a resposta ainda não começou a ser enviada
+     * (se começou, só resta fechar a conexão).
+     */
+    private void responderFalha(HttpExchange troca, int status, String mensagem) throws IOException {
+        if (troca.getResponseCode() == -1) responderErro(troca, status, mensagem);
+    }
+
+    /**
+     * Envia a resposta com o JSON no corpo, ou sem corpo se ele for null.
+     */
+    private static void responder(HttpExchange troca, int status, String json) throws IOException {
+        if (json == null) {
+            troca.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] corpo = json.getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, corpo.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(corpo);
+        }
+    }
+}
@@ -4,6 +4,8 @@ module br.com.seuNome.meuprimeiroapp {
     requires org.controlsfx.controls;
     requires org.kordamp.bootstrapfx.core;
     requires com.google.gson;
+    requires java.management;
+    requires jdk.httpserver;
     requires static lombok;
 
     opens br.com.miguel.estoqueavl to javafx.fxml;
@@ -13,4 +15,5 @@ module br.com.seuNome.meuprimeiroapp {
     opens br.com.miguel.estoqueavl.model to com.google.gson, javafx.base;
 
     exports br.com.miguel.estoqueavl;
+    exports br.com.miguel.estoqueavl.metricas;
 }
\ No newline at end of file
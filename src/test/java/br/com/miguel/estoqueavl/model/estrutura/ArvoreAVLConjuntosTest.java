@@ -0,0 +1,228 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Confere a união, interseção e diferença da ArvoreAVL contra um TreeMap.
+ *
+ * Em cada rodada sorteia duas árvores (de tamanhos parecidos ou bem diferentes, com
+ * faixas de IDs que se sobrepõem mais ou menos), aplica a operação e compara:
+ *   - a listagem da árvore alterada com a do TreeMap (IDs e os próprios objetos);
+ *   - o retorno com a variação de tamanho esperada;
+ *   - a outra árvore, que não pode ter mudado.
+ * Depois faz algumas inserções e remoções na árvore alterada, para confirmar que ela
+ * continua uma AVL utilizável. As rodadas maiores passam pelo caminho paralelo.
+ * Uma falha do diário no meio da operação deixa aplicados só os produtos já registrados.
+ */
+class ArvoreAVLConjuntosTest {
+
+    private static final int RODADAS = 400;
+
+    @Test
+    void uniaoConfereComTreeMap() {
+        conferir(0, 18L);
+    }
+
+    @Test
+    void intersecaoConfereComTreeMap() {
+        conferir(1, 19L);
+    }
+
+    @Test
+    void diferencaConfereComTreeMap() {
+        conferir(2, 20L);
+    }
+
+    @Test
+    void observadoresSaoAvisadosDeCadaProdutoAlterado() {
+        ArvoreAVL arvore = ArvoreAVL.construirDeLista(produtos(0, 10));
+        List<Integer> inseridos = new ArrayList<>();
+        List<Integer> removidos = new ArrayList<>();
+        arvore.adicionarObservador(new ObservadorArvore() {
+            @Override
+            public void aoInserir(Produto produto) {
+                inseridos.add(produto.getId());
+            }
+
+            @Override
+            public void aoAtualizar(Produto anterior, Produto atual) {
+            }
+
+            @Override
+            public void aoRemover(Produto produto) {
+                removidos.add(produto.getId());
+            }
+        });
+
+        assertEquals(5, arvore.uniao(ArvoreAVL.construirDeLista(produtos(5, 15))));
+        assertEquals(List.of(10, 11, 12, 13, 14), inseridos);
+        assertEquals(3, arvore.diferenca(ArvoreAVL.construirDeLista(produtos(0, 3))));
+        assertEquals(2, arvore.intersecao(ArvoreAVL.construirDeLista(produtos(5, 15))));
+        assertEquals(List.of(0, 1, 2, 3, 4), removidos);
+        assertEquals(10, arvore.tamanho());
+    }
+
+    @Test
+    void falhaDoDiarioAplicaSoOQueFoiRegistrado() {
+        ArvoreAVL arvore = ArvoreAVL.construirDeLista(produtos(0, 10));
+        DiarioComFalha diario = new DiarioComFalha(3);
+        arvore.adicionarObservador(diario);
+
+        // União: 10..14 seriam inseridos; o diário falha no terceiro.
+        assertThrows(IllegalStateException.class, () -> arvore.uniao(ArvoreAVL.construirDeLista(produtos(5, 15))));
+        assertEquals(List.of(10, 11), diario.registrados);
+        assertEquals(ids(0, 12), ids(arvore));
+
+        // Diferença: 0..4 seriam removidos; o diário falha no terceiro.
+        diario.reiniciar(3);
+        assertThrows(IllegalStateException.class, () -> arvore.diferenca(ArvoreAVL.construirDeLista(produtos(0, 5))));
+        assertEquals(List.of(0, 1), diario.registrados);
+        assertEquals(ids(2, 12), ids(arvore));
+
+        // Interseção com 5..7: 2, 3, 4, 8... seriam removidos; o diário falha no quarto.
+        diario.reiniciar(4);
+        assertThrows(IllegalStateException.class, () -> arvore.intersecao(ArvoreAVL.construirDeLista(produtos(5, 8))));
+        assertEquals(List.of(2, 3, 4), diario.registrados);
+        assertEquals(ids(5, 12), ids(arvore));
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Registrador que anota os IDs e falha a partir do n-ésimo registro, como um diário
+     * cuja gravação começou a falhar.
+     */
+    private static final class DiarioComFalha implements ObservadorArvore {
+        private final List<Integer> registrados = new ArrayList<>();
+        private int falharNo;
+
+        private DiarioComFalha(int falharNo) {
+            this.falharNo = falharNo;
+        }
+
+        private void reiniciar(int falharNo) {
+            this.falharNo = falharNo;
+            registrados.clear();
+        }
+
+        @Override
+        public boolean avisarAntes() {
+            return true;
+        }
+
+        @Override
+        public void aoInserir(Produto produto) {
+            anotar(produto);
+        }
+
+        @Override
+        public void aoRemover(Produto produto) {
+            anotar(produto);
+        }
+
+        private void anotar(Produto produto) {
+            if (registrados.size() + 1 >= falharNo) throw new IllegalStateException("Falha simulada do diário");
+            registrados.add(produto.getId());
+        }
+    }
+
+    private static List<Integer> ids(ArvoreAVL arvore) {
+        return arvore.stream().map(Produto::getId).toList();
+    }
+
+    private static List<Integer> ids(int de, int ate) {
+        return produtos(de, ate).stream().map(Produto::getId).toList();
+    }
+
+    private static void conferir(int operacao, long semente) {
+        SplittableRandom aleatorio = new SplittableRandom(semente);
+
+        for (int rodada = 0; rodada < RODADAS; rodada++) {
+            int maximo = (rodada % 100 == 0) ? 200_000 : 2_000;
+            int faixa = 1 + aleatorio.nextInt(4 * maximo);
+
+            TreeMap<Integer, Produto> esperado = new TreeMap<>();
+            TreeMap<Integer, Produto> outroEsperado = new TreeMap<>();
+            ArvoreAVL arvore = sortear(aleatorio, aleatorio.nextInt(maximo), faixa, esperado);
+            ArvoreAVL outra = sortear(aleatorio, aleatorio.nextInt(aleatorio.nextBoolean() ? maximo : 50), faixa, outroEsperado);
+
+            int antes = esperado.size();
+            int retorno;
+            int variacao;
+            switch (operacao) {
+                case 0 -> {
+                    retorno = arvore.uniao(outra);
+                    outroEsperado.forEach(esperado::putIfAbsent);
+                    variacao = esperado.size() - antes;
+                }
+                case 1 -> {
+                    retorno = arvore.intersecao(outra);
+                    esperado.keySet().retainAll(outroEsperado.keySet());
+                    variacao = antes - esperado.size();
+                }
+                default -> {
+                    retorno = arvore.diferenca(outra);
+                    esperado.keySet().removeAll(outroEsperado.keySet());
+                    variacao = antes - esperado.size();
+                }
+            }
+
+            String contexto = "rodada " + rodada;
+            assertEquals(variacao, retorno, contexto + ": retorno");
+            comparar(arvore, esperado, contexto);
+            comparar(outra, outroEsperado, contexto + ", outra árvore");
+
+            for (int i = 0; i < 100; i++) {
+                int id = aleatorio.nextInt(faixa);
+                if (aleatorio.nextBoolean()) {
+                    Produto produto = produto(id);
+                    if (arvore.inserir(produto)) esperado.put(id, produto);
+                } else if (arvore.remover(id)) {
+                    esperado.remove(id);
+                }
+            }
+            comparar(arvore, esperado, contexto + ", após inserções e remoções");
+        }
+    }
+
+    private static ArvoreAVL sortear(SplittableRandom aleatorio, int quantidade, int faixa, TreeMap<Integer, Produto> esperado) {
+        List<Produto> produtos = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Produto produto = produto(aleatorio.nextInt(faixa));
+            if (esperado.putIfAbsent(produto.getId(), produto) == null) produtos.add(produto);
+        }
+        return ArvoreAVL.construirDeLista(produtos);
+    }
+
+    private static void comparar(ArvoreAVL arvore, TreeMap<Integer, Produto> esperado, String contexto) {
+        assertEquals(esperado.size(), arvore.tamanho(), contexto + ": tamanho");
+        List<Produto> lista = arvore.listar();
+        int i = 0;
+        for (Produto produto : esperado.values()) {
+            assertSame(produto, lista.get(i), contexto + ": posição " + i);
+            assertSame(produto, arvore.buscar(produto.getId()), contexto + ": ID " + produto.getId());
+            i++;
+        }
+    }
+
+    private static List<Produto> produtos(int de, int ate) {
+        List<Produto> produtos = new ArrayList<>();
+        for (int id = de; id < ate; id++) produtos.add(produto(id));
+        return produtos;
+    }
+
+    private static Produto produto(int id) {
+        return new Produto(id, "Produto " + id, BigDecimal.valueOf(id % 10_000, 2), id % 100);
+    }
+}
@@ -0,0 +1,51 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Admissão no cache concorrente com alterações: um produto lido da árvore antes de
+ * uma atualização ou remoção não pode entrar no cache depois dela.
+ */
+class CacheProdutosTest {
+
+    @Test
+    void naoAdmiteProdutoLidoAntesDeUmaAtualizacao() {
+        CacheProdutos cache = new CacheProdutos(16);
+        Produto anterior = produto(1, 10);
+        Produto atual = produto(1, 11);
+
+        long versao = cache.versao(); // A busca lê a versão e o produto da árvore...
+        cache.aoAtualizar(anterior, atual); // ...uma escrita troca o produto...
+        cache.admitir(1, anterior, versao); // ...e só então a busca oferece o que leu.
+        assertNull(cache.obter(1));
+
+        cache.admitir(1, atual, cache.versao());
+        assertSame(atual, cache.obter(1));
+    }
+
+    @Test
+    void atualizacaoRepontaAEntradaExistente() {
+        CacheProdutos cache = new CacheProdutos(16);
+        Produto anterior = produto(1, 10);
+        cache.admitir(1, anterior, cache.versao());
+
+        Produto atual = produto(1, 11);
+        cache.aoAtualizar(anterior, atual);
+        assertSame(atual, cache.obter(1));
+
+        long versao = cache.versao();
+        cache.aoRemover(atual);
+        cache.admitir(1, atual, versao);
+        assertNull(cache.obter(1));
+    }
+
+    private static Produto produto(int id, int quantidade) {
+        return new Produto(id, "Produto " + id, BigDecimal.ONE, quantidade);
+    }
+}
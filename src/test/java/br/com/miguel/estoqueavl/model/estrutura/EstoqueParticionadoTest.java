@@ -0,0 +1,162 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Teste de estresse do EstoqueParticionado enquanto as partições se dividem e se juntam.
+ *
+ * Cada escritor insere os IDs escritor, escritor + E, escritor + 2E... (todos os
+ * escritores passam por todas as faixas), publicando até onde já inseriu, e depois
+ * remove 9 de cada 10, o que força as partições a se juntarem de novo. Os leitores
+ * consultam IDs publicados que nunca são removidos e listam intervalos aleatórios,
+ * verificando que:
+ *   - um ID publicado e mantido é sempre encontrado, com o ID pedido;
+ *   - um intervalo vem ordenado, sem repetidos e só com IDs de dentro dele.
+ * No final, a listagem precisa ter exatamente os IDs mantidos, e cada partição
+ * só os IDs da sua faixa.
+ */
+class EstoqueParticionadoTest {
+
+    private static final int ESCRITORES = 4;
+    private static final int LEITORES = 2;
+    private static final int IDS_POR_ESCRITOR = 40_000;
+    private static final int PARTICOES_ALVO = 16;
+    private static final int MANTIDO_A_CADA = 10;
+    private static final int LARGURA_INTERVALO = 5_000;
+
+    @Test
+    void escritasELeiturasConcorrentesEnquantoAsFaixasMudam() throws InterruptedException {
+        EstoqueParticionado estoque = new EstoqueParticionado(PARTICOES_ALVO);
+        AtomicInteger[] publicados = new AtomicInteger[ESCRITORES];
+        for (int i = 0; i < ESCRITORES; i++) publicados[i] = new AtomicInteger(-1);
+
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        AtomicLong falhas = new AtomicLong();
+        AtomicInteger maximoParticoes = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int e = 0; e < ESCRITORES; e++) {
+            final int escritor = e;
+            threads.add(new Thread(() -> {
+                aguardar(largada);
+                for (int i = 0; i < IDS_POR_ESCRITOR; i++) {
+                    if (!estoque.inserir(produto(i * ESCRITORES + escritor))) falhas.incrementAndGet();
+                    publicados[escritor].set(i);
+                }
+                maximoParticoes.accumulateAndGet(estoque.iniciosParticoes().length, Math::max);
+                for (int i = 0; i < IDS_POR_ESCRITOR; i++) {
+                    if (i % MANTIDO_A_CADA != 0 && !estoque.remover(i * ESCRITORES + escritor)) falhas.incrementAndGet();
+                }
+            }, "escritor-" + e));
+        }
+
+        for (int l = 0; l < LEITORES; l++) {
+            final long semente = l;
+            threads.add(new Thread(() -> {
+                aguardar(largada);
+                SplittableRandom aleatorio = new SplittableRandom(semente);
+                while (escrevendo.get()) {
+                    if (aleatorio.nextInt(100) == 0) {
+                        int de = aleatorio.nextInt(ESCRITORES * IDS_POR_ESCRITOR);
+                        int ate = de + LARGURA_INTERVALO;
+                        List<Produto> lista = estoque.intervalo(de, ate);
+                        for (int i = 0; i < lista.size(); i++) {
+                            int id = lista.get(i).getId();
+                            if (id < de || id > ate || (i > 0 && lista.get(i - 1).getId() >= id)) falhas.incrementAndGet();
+                        }
+                        continue;
+                    }
+
+                    int escritor = aleatorio.nextInt(ESCRITORES);
+                    int limite = publicados[escritor].get();
+                    if (limite < 0) continue;
+
+                    int i = aleatorio.nextInt(limite + 1) / MANTIDO_A_CADA * MANTIDO_A_CADA; // só os mantidos
+                    int id = i * ESCRITORES + escritor;
+                    Produto p = estoque.buscar(id);
+                    if (p == null || p.getId() != id) falhas.incrementAndGet();
+                }
+            }, "leitor-" + l));
+        }
+
+        threads.forEach(Thread::start);
+        largada.countDown();
+        for (int i = 0; i < ESCRITORES; i++) threads.get(i).join();
+        escrevendo.set(false);
+        for (int i = ESCRITORES; i < threads.size(); i++) threads.get(i).join();
+
+        assertEquals(0, falhas.get(), "falhas de escrita ou leitura");
+        assertTrue(maximoParticoes.get() > 1, "o estoque deveria ter se dividido");
+
+        // Conteúdo: exatamente os IDs mantidos, em ordem.
+        List<Produto> lista = estoque.listar();
+        assertEquals(ESCRITORES * ((IDS_POR_ESCRITOR + MANTIDO_A_CADA - 1) / MANTIDO_A_CADA), lista.size());
+        for (int i = 0; i < lista.size(); i++) {
+            int id = lista.get(i).getId();
+            assertEquals(0, (id / ESCRITORES) % MANTIDO_A_CADA, "ID " + id + " deveria ter sido removido");
+            if (i > 0) assertTrue(lista.get(i - 1).getId() < id, "listagem fora de ordem no ID " + id);
+        }
+
+        // Faixas: cada partição tem exatamente os IDs da listagem que caem em [inicio, próximo início).
+        int[] inicios = estoque.iniciosParticoes();
+        int[] tamanhos = estoque.tamanhosParticoes();
+        assertEquals(inicios.length, tamanhos.length);
+        assertEquals(Integer.MIN_VALUE, inicios[0]);
+        int posicao = 0;
+        for (int k = 0; k < inicios.length; k++) {
+            if (k > 0) assertTrue(inicios[k - 1] < inicios[k], "faixas fora de ordem");
+            long fim = (k + 1 < inicios.length) ? inicios[k + 1] : Integer.MAX_VALUE + 1L;
+            int naFaixa = 0;
+            while (posicao < lista.size() && lista.get(posicao).getId() < fim) {
+                posicao++;
+                naFaixa++;
+            }
+            assertEquals(naFaixa, tamanhos[k], "tamanho da partição " + k);
+        }
+
+        int metade = ESCRITORES * IDS_POR_ESCRITOR / 2;
+        assertEquals(lista.size(), estoque.tamanho());
+        assertEquals(lista.stream().filter(p -> p.getId() <= metade).count(), estoque.contarIntervalo(0, metade));
+    }
+
+    @Test
+    void recusaArvoreComObservadores() {
+        ArvoreAVL arvore = new ArvoreAVL();
+        for (int id = 0; id < 10_000; id++) arvore.inserir(produto(id));
+        arvore.usarCache(1024); // O cache não conta: fica só na primeira partição
+        assertEquals(10_000, new EstoqueParticionado(arvore, 2).tamanho());
+
+        ArvoreAVL indexada = new ArvoreAVL();
+        IndiceNome.indexar(indexada);
+        assertThrows(IllegalArgumentException.class, () -> new EstoqueParticionado(indexada, 2));
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    private static void aguardar(CountDownLatch largada) {
+        try {
+            largada.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Produto produto(int id) {
+        return new Produto(id, "Produto " + id, BigDecimal.valueOf(id % 10_000, 2), id % 100);
+    }
+}
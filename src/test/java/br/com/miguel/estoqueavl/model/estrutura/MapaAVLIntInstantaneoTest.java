@@ -0,0 +1,123 @@
+package br.com.miguel.estoqueavl.model.estrutura;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Confere os instantâneos do MapaAVLInt contra cópias de TreeMap.
+ *
+ * Em cada rodada altera um mapa por todos os caminhos de escrita (inserir, colocar,
+ * remover, separar e concatenar, união, interseção e diferença), tirando instantâneos
+ * no meio do caminho, e verifica que:
+ *   - cada instantâneo continua com exatamente o conteúdo do momento em que foi tirado;
+ *   - um instantâneo também pode ser alterado, sem afetar o mapa nem os outros;
+ *   - o mapa continua uma AVL com o conteúdo esperado.
+ */
+class MapaAVLIntInstantaneoTest {
+
+    private static final int RODADAS = 200;
+    private static final int FAIXA = 4_000;
+
+    @Test
+    void instantaneosNaoMudamComAsEscritas() {
+        SplittableRandom aleatorio = new SplittableRandom(5L);
+        MapaAVLInt<Integer> mapa = new MapaAVLInt<>();
+        TreeMap<Integer, Integer> esperado = new TreeMap<>();
+        List<MapaAVLInt<Integer>> instantaneos = new ArrayList<>();
+        List<TreeMap<Integer, Integer>> congelados = new ArrayList<>();
+
+        for (int rodada = 0; rodada < RODADAS; rodada++) {
+            if (rodada % 10 == 0) {
+                instantaneos.add(mapa.instantaneo());
+                congelados.add(new TreeMap<>(esperado));
+            }
+            alterar(aleatorio, mapa, esperado, rodada);
+
+            // De vez em quando altera um instantâneo, que passa a ter o seu próprio conteúdo.
+            if (rodada % 25 == 24) {
+                int i = aleatorio.nextInt(instantaneos.size());
+                alterar(aleatorio, instantaneos.get(i), congelados.get(i), rodada);
+            }
+
+            String contexto = "rodada " + rodada;
+            comparar(mapa, esperado, contexto);
+            for (int i = 0; i < instantaneos.size(); i++) {
+                comparar(instantaneos.get(i), congelados.get(i), contexto + ", instantâneo " + i);
+            }
+        }
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    private static void alterar(SplittableRandom aleatorio, MapaAVLInt<Integer> mapa, TreeMap<Integer, Integer> esperado, int rodada) {
+        for (int i = 0; i < 200; i++) {
+            int chave = aleatorio.nextInt(FAIXA);
+            int valor = aleatorio.nextInt();
+            switch (aleatorio.nextInt(3)) {
+                case 0 -> assertEquals(esperado.putIfAbsent(chave, valor) == null, mapa.inserir(chave, valor));
+                case 1 -> assertEquals(esperado.put(chave, valor), mapa.colocar(chave, valor));
+                default -> assertEquals(esperado.remove(chave), mapa.remover(chave));
+            }
+        }
+
+        switch (rodada % 4) {
+            case 0 -> {
+                int chave = aleatorio.nextInt(FAIXA);
+                MapaAVLInt<Integer> maiores = mapa.separar(chave);
+                MapaAVLInt<Integer> copiaMaiores = maiores.instantaneo();
+                assertEquals(esperado.tailMap(chave).size(), maiores.tamanho());
+                mapa.concatenar(maiores);
+                comparar(copiaMaiores, new TreeMap<>(esperado.tailMap(chave)), "metade separada");
+            }
+            case 1 -> {
+                TreeMap<Integer, Integer> outro = sortear(aleatorio);
+                mapa.uniao(mapaDe(outro));
+                outro.forEach(esperado::putIfAbsent);
+            }
+            case 2 -> {
+                TreeMap<Integer, Integer> outro = sortear(aleatorio);
+                outro.putAll(esperado.subMap(0, FAIXA / 2)); // Mantém boa parte do mapa
+                mapa.intersecao(mapaDe(outro));
+                esperado.keySet().retainAll(outro.keySet());
+            }
+            default -> {
+                TreeMap<Integer, Integer> outro = sortear(aleatorio);
+                mapa.diferenca(mapaDe(outro));
+                esperado.keySet().removeAll(outro.keySet());
+            }
+        }
+    }
+
+    private static TreeMap<Integer, Integer> sortear(SplittableRandom aleatorio) {
+        TreeMap<Integer, Integer> outro = new TreeMap<>();
+        int quantidade = aleatorio.nextBoolean() ? 20 : 400;
+        for (int i = 0; i < quantidade; i++) outro.put(aleatorio.nextInt(FAIXA), aleatorio.nextInt());
+        return outro;
+    }
+
+    private static MapaAVLInt<Integer> mapaDe(TreeMap<Integer, Integer> conteudo) {
+        MapaAVLInt<Integer> mapa = new MapaAVLInt<>();
+        conteudo.forEach(mapa::colocar);
+        return mapa;
+    }
+
+    private static void comparar(MapaAVLInt<Integer> mapa, TreeMap<Integer, Integer> esperado, String contexto) {
+        assertEquals(esperado.size(), mapa.tamanho(), contexto + ": tamanho");
+        List<Integer> valores = new ArrayList<>();
+        mapa.forEach(valores::add);
+        assertEquals(new ArrayList<>(esperado.values()), valores, contexto + ": valores");
+        for (Map.Entry<Integer, Integer> e : esperado.entrySet()) {
+            assertEquals(e.getValue(), mapa.obter(e.getKey()), contexto + ": chave " + e.getKey());
+        }
+        // Altura de uma AVL: no máximo ~1,44 log2(n + 2).
+        assertTrue(mapa.altura() <= 1.45 * Math.log(mapa.tamanho() + 2) / Math.log(2), contexto + ": altura");
+    }
+}
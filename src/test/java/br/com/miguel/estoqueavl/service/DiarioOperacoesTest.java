@@ -0,0 +1,155 @@
+package br.com.miguel.estoqueavl.service;
+
+import br.com.miguel.estoqueavl.model.Produto;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVL;
+import br.com.miguel.estoqueavl.model.estrutura.ArvoreAVLConcorrente;
+import br.com.miguel.estoqueavl.model.estrutura.ObservadorArvore;
+import br.com.miguel.estoqueavl.model.estrutura.Operacao;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recuperação pelo diário de operações: o que foi registrado é reaplicado sobre o
+ * último instantâneo, um registro incompleto no fim é descartado, e uma falha de
+ * gravação cancela a operação sem alterar a árvore.
+ */
+class DiarioOperacoesTest {
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void reaplicaTodasAsOperacoesSobreUmaArvoreVazia() throws IOException {
+        String arquivo = pasta.resolve("estoque.wal").toString();
+        ArvoreAVL arvore = new ArvoreAVL();
+        try (DiarioOperacoes diario = new DiarioOperacoes(arquivo, DiarioOperacoes.Sincronizacao.SEMPRE, 0)) {
+            diario.abrir(arvore);
+            alterar(arvore);
+        }
+
+        ArvoreAVL recuperada = new ArvoreAVL();
+        try (DiarioOperacoes diario = new DiarioOperacoes(arquivo)) {
+            diario.abrir(recuperada);
+        }
+        assertEquals(arvore.listar(), recuperada.listar());
+    }
+
+    @Test
+    void descartaRegistroIncompletoNoFim() throws IOException {
+        String arquivo = pasta.resolve("estoque.wal").toString();
+        ArvoreAVL arvore = new ArvoreAVL();
+        try (DiarioOperacoes diario = new DiarioOperacoes(arquivo)) {
+            diario.abrir(arvore);
+            for (int id = 0; id < 10; id++) arvore.inserir(produto(id));
+        }
+        // Gravação interrompida no meio do último registro.
+        try (FileChannel canal = FileChannel.open(Path.of(arquivo), StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 3);
+        }
+
+        ArvoreAVL recuperada = new ArvoreAVL();
+        try (DiarioOperacoes diario = new DiarioOperacoes(arquivo)) {
+            assertEquals(9, diario.abrir(recuperada));
+            recuperada.inserir(produto(100)); // O diário continua de um ponto válido
+        }
+        assertEquals(arvore.listar().subList(0, 9), recuperada.listar().subList(0, 9));
+
+        ArvoreAVL depois = new ArvoreAVL();
+        try (DiarioOperacoes diario = new DiarioOperacoes(arquivo)) {
+            assertEquals(10, diario.abrir(depois));
+        }
+        assertEquals(recuperada.listar(), depois.listar());
+    }
+
+    @Test
+    void recuperaInstantaneoMaisDiarioAposCheckpoint() throws IOException {
+        String dados = pasta.resolve("estoque.bin").toString();
+        String arquivo = pasta.resolve("estoque.wal").toString();
+        PersistenciaServico servico = new PersistenciaServico(dados, PersistenciaServico.Formato.BINARIO);
+
+        ArvoreAVL arvore;
+        try (DiarioOperacoes diario = new DiarioOperacoes(arquivo)) {
+            arvore = servico.carregar(diario);
+            for (int id = 0; id < 1_000; id++) arvore.inserir(produto(id));
+            assertTrue(servico.checkpoint(new ArvoreAVLConcorrente(arvore), diario) > 0);
+            alterar(arvore);
+        }
+
+        try (DiarioOperacoes diario = new DiarioOperacoes(arquivo)) {
+            assertEquals(arvore.listar(), servico.carregar(diario).listar());
+        }
+    }
+
+    @Test
+    void falhaDeGravacaoCancelaAOperacao() throws IOException {
+        String arquivo = pasta.resolve("estoque.wal").toString();
+        ArvoreAVL arvore = new ArvoreAVL();
+        List<Produto> avisados = new ArrayList<>();
+        DiarioOperacoes diario = new DiarioOperacoes(arquivo, DiarioOperacoes.Sincronizacao.SEMPRE, 0);
+        diario.abrir(arvore);
+        arvore.adicionarObservador(new ObservadorArvore() {
+            @Override
+            public void aoInserir(Produto produto) {
+                avisados.add(produto);
+            }
+
+            @Override
+            public void aoAtualizar(Produto anterior, Produto atual) {
+                avisados.add(atual);
+            }
+
+            @Override
+            public void aoRemover(Produto produto) {
+                avisados.add(produto);
+            }
+        });
+        arvore.inserir(produto(1));
+        diario.close(); // As próximas gravações falham
+
+        assertThrows(UncheckedIOException.class, () -> arvore.inserir(produto(2)));
+        assertThrows(UncheckedIOException.class, () -> arvore.ajustarQuantidade(1, 5));
+        assertThrows(UncheckedIOException.class, () -> arvore.remover(1));
+
+        assertNull(arvore.buscar(2));
+        assertEquals(produto(1), arvore.buscar(1));
+        assertEquals(1, arvore.tamanho());
+        assertEquals(List.of(produto(1)), avisados);
+    }
+
+    // ###### MÉTODOS AUXILIARES ######
+
+    /**
+     * Passa por todos os tipos de registro: inserção, atualização, ajuste, remoção e um
+     * lote grande (que é mesclado com a árvore em vez de aplicado um a um).
+     */
+    private static void alterar(ArvoreAVL arvore) {
+        for (int id = 1_000; id < 1_200; id++) arvore.inserir(produto(id));
+        arvore.atualizar(1_010, p -> p.setNome("Renomeado"));
+        arvore.ajustarQuantidade(1_020, 7);
+        arvore.remover(1_030);
+
+        List<Operacao> lote = new ArrayList<>();
+        for (int id = 900; id < 1_300; id += 2) lote.add(Operacao.ajustar(id, 1));
+        for (int id = 1_300; id < 1_600; id++) lote.add(Operacao.inserir(produto(id)));
+        lote.add(Operacao.remover(1_040));
+        arvore.aplicarLote(lote);
+    }
+
+    private static Produto produto(int id) {
+        return new Produto(id, "Produto " + id, BigDecimal.valueOf(id % 10_000, 2), id % 100);
+    }
+}